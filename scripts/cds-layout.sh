@@ -0,0 +1,34 @@
+#!/bin/sh
+# Convierte el fat jar de Spring Boot en el layout que necesita AppCDS:
+#   <destino>/lib/*.jar          dependencias (capa que casi nunca cambia)
+#   <destino>/application.jar    clases de la app, con Class-Path: lib/...
+# CDS solo archiva clases cargadas desde jars "planos" del classpath (no desde BOOT-INF/ del fat jar).
+# Uso: scripts/cds-layout.sh target/user-0.0.1-SNAPSHOT.jar target/cds   (requiere un JDK: usa "jar")
+set -eu
+
+FAT_JAR=$1
+DEST=$2
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+java -Djarmode=layertools -jar "$FAT_JAR" extract --destination "$WORK"
+
+rm -rf "$DEST"
+mkdir -p "$DEST/lib"
+for layer in dependencies spring-boot-loader snapshot-dependencies; do
+    if [ -d "$WORK/$layer/BOOT-INF/lib" ]; then
+        cp "$WORK/$layer/BOOT-INF/lib/"*.jar "$DEST/lib/"
+    fi
+done
+
+MAIN_CLASS=$(unzip -p "$FAT_JAR" META-INF/MANIFEST.MF | sed -n 's/^Start-Class: *//p' | tr -d '\r')
+{
+    echo "Main-Class: $MAIN_CLASS"
+    echo "Class-Path: "
+    for jar in "$DEST"/lib/*.jar; do
+        echo "  lib/$(basename "$jar")"
+    done
+} > "$WORK/MANIFEST.MF"
+
+jar cfm "$DEST/application.jar" "$WORK/MANIFEST.MF" -C "$WORK/application/BOOT-INF/classes" .
+echo "✅ Layout CDS en $DEST ($(ls "$DEST/lib" | wc -l) dependencias)"
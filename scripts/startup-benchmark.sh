@@ -0,0 +1,74 @@
+#!/usr/bin/env bash
+# Compara el tiempo de arranque de las variantes del servicio:
+#   jar      java -jar con el fat jar (como el Dockerfile anterior)
+#   aot      layout CDS sin archivo + -Dspring.aot.enabled=true
+#   aot-cds  lo anterior + -XX:SharedArchiveFile (la imagen del Dockerfile)
+#   native   target/user, si existe (mvn -Pnative native:compile)
+# Mide hasta la primera respuesta HTTP de /actuator/health (cualquier código: la BD puede no estar)
+# y la memoria residente en ese momento. Devuelve la mediana de N arranques.
+#
+# Uso: mvn -Paot package -DskipTests && scripts/startup-benchmark.sh [repeticiones]
+# Las variables de la aplicación (DB_URL, FIREBASE_CREDENTIALS, SUPABASE_*, MAIL_*…) se toman del entorno.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${BENCH_PORT:-18090}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=$ROOT/target/startup-bench
+FAT_JAR=$(ls "$ROOT"/target/*.jar | grep -v -- '-plain.jar' | head -1)
+
+if ! unzip -l "$FAT_JAR" | grep '__BeanFactoryRegistrations' > /dev/null; then
+    echo "❌ $FAT_JAR no tiene el procesamiento AOT: ejecutar antes mvn -Paot package -DskipTests" >&2
+    exit 1
+fi
+
+sh "$ROOT/scripts/cds-layout.sh" "$FAT_JAR" "$WORK" > /dev/null
+echo "🔹 Generando el archivo CDS (arranque de entrenamiento)…"
+(cd "$WORK" && java -XX:ArchiveClassesAtExit=app.jsa -Dspring.aot.enabled=true \
+    -Dspring.context.exit=onRefresh -Xlog:cds=off -jar application.jar > training.log 2>&1)
+
+now_ms() { date +%s%3N; }
+
+# Arranca el comando, espera a la primera respuesta HTTP y lo detiene; imprime "ms rss_kb"
+measure() {
+    local start pid ms rss
+    start=$(now_ms)
+    (cd "$WORK" && exec "$@" --server.port="$PORT") > "$WORK/run.log" 2>&1 &
+    pid=$!
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health")" != "000" ]; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "❌ El proceso terminó antes de responder (ver $WORK/run.log)" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    ms=$(( $(now_ms) - start ))
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status" 2> /dev/null || echo 0)
+    kill "$pid" && wait "$pid" 2> /dev/null || true
+    echo "$ms $rss"
+}
+
+median() { sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'; }
+
+bench() {
+    local name=$1; shift
+    local times=() rss=() result
+    for _ in $(seq "$RUNS"); do
+        result=$(measure "$@")
+        times+=("${result% *}")
+        rss+=("${result#* }")
+    done
+    printf "%-10s %12s %12s\n" "$name" \
+        "$(printf '%s\n' "${times[@]}" | median)" \
+        "$(( $(printf '%s\n' "${rss[@]}" | median) / 1024 ))"
+}
+
+printf "%-10s %12s %12s\n" "Variante" "Arranque ms" "RSS MB"
+bench jar java -jar "$FAT_JAR"
+bench aot java -Dspring.aot.enabled=true -jar application.jar
+bench aot-cds java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar application.jar
+if [ -x "$ROOT/target/user" ]; then
+    bench native "$ROOT/target/user"
+else
+    echo "native     (sin target/user: mvn -Pnative native:compile -DskipTests)"
+fi
@@ -0,0 +1,107 @@
+package pe.edu.vallegrande.user.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Caché de tokens ya verificados delante de otro {@link ReactiveJwtDecoder}.
+ * <ul>
+ *     <li>Clave: SHA-256 del token (no se guarda el token en claro como clave)</li>
+ *     <li>Cada entrada expira en el {@code exp} del token (como mucho {@code maxTtl}); un token vencido falla con
+ *     {@link JwtValidationException}, igual que sin caché</li>
+ *     <li>Solo se guardan tokens válidos: los errores de verificación no se cachean</li>
+ *     <li>Verificaciones concurrentes del mismo token comparten una sola llamada al decoder</li>
+ * </ul>
+ * Métricas: {@code cache.gets{result=hit|miss}}, {@code cache.size}… con {@code cache=jwt}.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final AsyncCache<String, Jwt> verified;
+    private final Clock clock;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry,
+                                     long maxSize, Duration maxTtl) {
+        this(delegate, meterRegistry, maxSize, maxTtl, Clock.systemUTC());
+    }
+
+    CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry,
+                              long maxSize, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpires(maxTtl, clock))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        return Mono.fromFuture(() -> verified.get(hash(token), (key, executor) -> delegate.decode(token).toFuture()), true)
+                .flatMap(jwt -> notExpired(jwt) ? Mono.just(jwt) : Mono.error(expired(jwt)));
+    }
+
+    // Red de seguridad: la entrada caduca en exp, pero puede leerse justo en el límite
+    private boolean notExpired(Jwt jwt) {
+        return jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(clock.instant());
+    }
+
+    // El mismo error que da JwtTimestampValidator: un token vencido es un 401, nunca una autenticación vacía (500)
+    private static JwtValidationException expired(Jwt jwt) {
+        OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN, "Jwt expired at " + jwt.getExpiresAt(),
+                "https://tools.ietf.org/html/rfc6750#section-3.1");
+        return new JwtValidationException(error.getDescription(), List.of(error));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record UntilTokenExpires(Duration maxTtl, Clock clock) implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) return maxTtl.toNanos();
+            Duration remaining = Duration.between(clock.instant(), expiresAt);
+            if (remaining.isNegative()) return 0;
+            return (remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
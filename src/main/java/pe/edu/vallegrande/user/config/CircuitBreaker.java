@@ -0,0 +1,117 @@
+package pe.edu.vallegrande.user.config;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker de un {@link OutboundHttpClient}, por número de llamadas:
+ * <ul>
+ *     <li>CLOSED: se guardan los resultados de las últimas {@code sliding-window} llamadas; con al menos
+ *     {@code minimum-calls} y un {@code failure-rate-threshold}% de fallos pasa a OPEN</li>
+ *     <li>OPEN: se rechaza todo durante {@code open-duration}</li>
+ *     <li>HALF_OPEN: se dejan pasar {@code half-open-calls} llamadas de prueba; si todas van bien vuelve a
+ *     CLOSED (con la ventana vacía), con el primer fallo vuelve a OPEN</li>
+ * </ul>
+ * Solo cuentan como fallo los errores del servicio remoto (ver {@link OutboundHttpClient#isFailure}).
+ */
+final class CircuitBreaker {
+
+    enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final HttpClientProperties.CircuitBreaker config;
+    private final LongSupplier nanoClock;
+
+    // Ventana circular de resultados (true = fallo)
+    private final boolean[] window;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    CircuitBreaker(HttpClientProperties.CircuitBreaker config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.window = new boolean[Math.max(1, config.getSlidingWindow())];
+    }
+
+    /**
+     * @return si la llamada puede hacerse; si es true, hay que informar del resultado con
+     * {@link #onSuccess}, {@link #onFailure} o {@link #onIgnored}
+     */
+    synchronized boolean tryAcquire() {
+        if (!config.isEnabled()) return true;
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < config.getOpenDuration().toNanos()) return false;
+            state = State.HALF_OPEN;
+            halfOpenPermits = config.getHalfOpenCalls();
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) return false;
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        switch (state) {
+            case CLOSED -> record(false);
+            case HALF_OPEN -> {
+                if (++halfOpenSuccesses >= config.getHalfOpenCalls()) close();
+            }
+            case OPEN -> {
+                // Llamada iniciada antes de abrir: no cambia nada
+            }
+        }
+    }
+
+    synchronized void onFailure() {
+        switch (state) {
+            case CLOSED -> {
+                record(true);
+                if (recorded >= config.getMinimumCalls()
+                        && failures * 100 >= config.getFailureRateThreshold() * recorded) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> open();
+            case OPEN -> {
+            }
+        }
+    }
+
+    // Llamada cancelada: sin resultado, libera su permiso de prueba
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) halfOpenPermits++;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) failures--;
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) failures++;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -2,6 +2,8 @@ package pe.edu.vallegrande.user.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
@@ -29,8 +31,9 @@ public class CorsConfig {
         return source;
     }
 
-    // Crea el filtro que intercepta y aplica la configuración CORS
+    // Crea el filtro que intercepta y aplica la configuración CORS (el primero, antes del rate limiting)
     @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public CorsWebFilter corsWebFilter(CorsConfigurationSource corsConfigurationSource) {
         return new CorsWebFilter(corsConfigurationSource);
     }
@@ -0,0 +1,105 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Pool de conexiones R2DBC a Postgres.
+ * <ul>
+ *     <li>Tamaño, tiempos de adquisición/creación, inactividad y vida máxima desde {@code spring.r2dbc.pool.*}</li>
+ *     <li>Opciones del driver desde {@code spring.r2dbc.properties.*} (p. ej. {@code preparedStatementCacheQueries})</li>
+ *     <li>Métricas: {@code r2dbc.pool.*} de Actuator (adquiridas, inactivas, pendientes…), más
+ *     {@code r2dbc.pool.acquire}, {@code r2dbc.pool.create} y {@code r2dbc.pool.utilization}</li>
+ *     <li>Tiempo de cada consulta: {@code r2dbc.query} (r2dbc-proxy + Observation de Actuator, aplicado a las
+ *     conexiones del driver dentro del pool)</li>
+ *     <li>Calentamiento al arrancar ({@link StartupWarmup}): se abren {@code initial-size} conexiones antes de
+ *     declarar el servicio listo</li>
+ * </ul>
+ * Sustituye al pool autoconfigurado por Spring Boot (que no permite medir la adquisición ni calentar).
+ */
+@Configuration
+public class DatabaseConfig {
+
+    public static final String POOL_NAME = "users";
+
+    @Bean(destroyMethod = "dispose")
+    public MeteredConnectionFactory connectionFactory(
+            R2dbcProperties properties,
+            MeterRegistry meterRegistry,
+            ObjectProvider<ConnectionFactoryDecorator> decorators,
+            @Value("${database.pool.background-eviction-interval:60s}") Duration backgroundEvictionInterval
+    ) {
+        ConnectionPool pool = connectionPool(properties, backgroundEvictionInterval, meterRegistry,
+                decorators.orderedStream().toList());
+        return new MeteredConnectionFactory(pool, meterRegistry);
+    }
+
+    /**
+     * Crea el pool a partir de las propiedades estándar de Spring Boot (también lo usa la prueba de carga).
+     */
+    public static ConnectionPool connectionPool(R2dbcProperties properties, Duration backgroundEvictionInterval,
+                                                MeterRegistry meterRegistry) {
+        return connectionPool(properties, backgroundEvictionInterval, meterRegistry, List.of());
+    }
+
+    /**
+     * @param decorators se aplican a la fábrica del driver (p. ej. la observación de consultas de Actuator),
+     *                   de modo que el pool sigue siendo la capa exterior y sus métricas no cambian
+     */
+    public static ConnectionPool connectionPool(R2dbcProperties properties, Duration backgroundEvictionInterval,
+                                                MeterRegistry meterRegistry, List<ConnectionFactoryDecorator> decorators) {
+        ConnectionFactoryOptions urlOptions = ConnectionFactoryOptions.parse(properties.getUrl());
+        ConnectionFactoryOptions.Builder options = urlOptions.mutate();
+
+        // "r2dbc:pool:postgresql://…" → el pool lo creamos aquí, el driver real es el protocolo
+        if ("pool".equals(urlOptions.getValue(ConnectionFactoryOptions.DRIVER))) {
+            options.option(ConnectionFactoryOptions.DRIVER, (String) urlOptions.getRequiredValue(ConnectionFactoryOptions.PROTOCOL));
+            options.option(ConnectionFactoryOptions.PROTOCOL, "");
+        }
+        if (StringUtils.hasText(properties.getUsername())) {
+            options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        }
+        if (StringUtils.hasText(properties.getPassword())) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        }
+        properties.getProperties().forEach((key, value) -> options.option(Option.valueOf(key), value));
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.build());
+        for (ConnectionFactoryDecorator decorator : decorators) {
+            connectionFactory = decorator.decorate(connectionFactory);
+        }
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+                .name(POOL_NAME)
+                .initialSize(pool.getInitialSize())
+                .minIdle(pool.getMinIdle())
+                .maxSize(pool.getMaxSize())
+                .maxAcquireTime(pool.getMaxAcquireTime())
+                .maxCreateConnectionTime(pool.getMaxCreateConnectionTime())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .maxValidationTime(pool.getMaxValidationTime())
+                .validationDepth(pool.getValidationDepth())
+                .backgroundEvictionInterval(backgroundEvictionInterval)
+                .metricsRecorder(new MicrometerPoolMetricsRecorder(meterRegistry, POOL_NAME));
+        if (StringUtils.hasText(pool.getValidationQuery())) {
+            configuration.validationQuery(pool.getValidationQuery());
+        }
+        return new ConnectionPool(configuration.build());
+    }
+}
@@ -0,0 +1,95 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpResources;
+import reactor.netty.tcp.TcpResources;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retraso de los event loops de Reactor Netty: cada segundo se encola una tarea vacía en cada loop
+ * y se mide cuánto tarda en ejecutarse. Un valor alto indica trabajo bloqueante en el event loop.
+ * <ul>
+ *     <li>{@code eventloop.lag{group,loop}}: último retraso medido por loop (si la sonda anterior sigue
+ *     sin ejecutarse, crece hasta que el loop se libera)</li>
+ *     <li>{@code eventloop.lag.probe{group}}: distribución de los retrasos (SLO configurables)</li>
+ * </ul>
+ * Grupos: {@code http} (servidor y WebClient) y {@code tcp} (conexiones del driver R2DBC).
+ */
+@Component
+@ConditionalOnProperty(name = "metrics.event-loop.enabled", havingValue = "true", matchIfMissing = true)
+public class EventLoopLagMonitor {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<EventExecutor, Probe> probes = new ConcurrentHashMap<>();
+
+    public EventLoopLagMonitor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedRateString = "${metrics.event-loop.probe-interval-ms:1000}")
+    public void probe() {
+        probe("http", HttpResources.get().onServer(true));
+        probe("tcp", TcpResources.get().onServer(true));
+    }
+
+    private void probe(String group, EventLoopGroup loops) {
+        int index = 0;
+        for (EventExecutor loop : loops) {
+            int loopIndex = index++;
+            probes.computeIfAbsent(loop, key -> new Probe(group, loopIndex)).send(loop);
+        }
+    }
+
+    private final class Probe {
+
+        private final AtomicLong pendingSince = new AtomicLong();
+        private final AtomicLong lastLagNanos = new AtomicLong();
+        private final Timer lag;
+
+        Probe(String group, int loop) {
+            Gauge.builder("eventloop.lag", lastLagNanos, nanos -> nanos.get() / 1e9)
+                    .description("Último retraso medido del event loop")
+                    .baseUnit("seconds")
+                    .tag("group", group)
+                    .tag("loop", String.valueOf(loop))
+                    .register(meterRegistry);
+            this.lag = Timer.builder("eventloop.lag.probe")
+                    .description("Retraso entre encolar una tarea en el event loop y su ejecución")
+                    .tag("group", group)
+                    .register(meterRegistry);
+        }
+
+        void send(EventExecutor loop) {
+            long now = System.nanoTime();
+            long since = pendingSince.get();
+            if (since != 0) {
+                // La sonda anterior aún no se ejecutó: el loop sigue ocupado
+                lastLagNanos.accumulateAndGet(now - since, Math::max);
+                return;
+            }
+            pendingSince.set(now);
+            try {
+                loop.execute(() -> {
+                    long lagNanos = System.nanoTime() - now;
+                    lastLagNanos.set(lagNanos);
+                    lag.record(lagNanos, TimeUnit.NANOSECONDS);
+                    pendingSince.set(0);
+                });
+            } catch (RejectedExecutionException e) {
+                pendingSince.set(0); // el loop se está cerrando (apagado de la aplicación)
+            }
+        }
+    }
+}
@@ -3,34 +3,44 @@ package pe.edu.vallegrande.user.config;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import com.google.firebase.auth.FirebaseAuth;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Base64;
 
+@Slf4j
 @Configuration
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "firebase.gateway.mode", havingValue = "admin", matchIfMissing = true)
 public class FirebaseConfig {
 
-    @Value("${firebase.credentials}")
-    private String credentialsBase64;
-
-    @PostConstruct
-    public void initialize() throws IOException {
+    // Perezoso: las credenciales se decodifican y el SDK se inicializa en la primera llamada a Firebase
+    // o en el calentamiento de StartupWarmup (en el carril de FirebaseExecutionLane), no al crear el contexto
+    @Bean
+    @Lazy
+    public GoogleCredentials firebaseCredentials(@Value("${firebase.credentials}") String credentialsBase64) throws IOException {
         byte[] decodedBytes = Base64.getDecoder().decode(credentialsBase64);
         try (ByteArrayInputStream serviceAccount = new ByteArrayInputStream(decodedBytes)) {
-            FirebaseOptions options = FirebaseOptions.builder()
-                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
-                    .build();
+            return GoogleCredentials.fromStream(serviceAccount);
+        }
+    }
 
-            if (FirebaseApp.getApps().isEmpty()) {
-                FirebaseApp.initializeApp(options);
-                System.out.println("✅ Firebase inicializado correctamente desde BASE64");
-            }
+    // Mismas credenciales que firebaseCredentials: el token que obtenga el calentamiento lo reutiliza el SDK
+    @Bean
+    @Lazy
+    public FirebaseAuth firebaseAuth(GoogleCredentials firebaseCredentials) {
+        if (FirebaseApp.getApps().isEmpty()) {
+            FirebaseApp.initializeApp(FirebaseOptions.builder()
+                    .setCredentials(firebaseCredentials)
+                    .build());
+            log.info("✅ Firebase inicializado correctamente desde BASE64");
         }
+        return FirebaseAuth.getInstance();
     }
 }
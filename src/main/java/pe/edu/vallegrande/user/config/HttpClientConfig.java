@@ -0,0 +1,19 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+// Clientes HTTP salientes con nombre (http.clients.*): pool, timeouts, reintentos y circuit breaker propios
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public OutboundHttpClients outboundHttpClients(WebClient.Builder webClientBuilder, HttpClientProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new OutboundHttpClients(webClientBuilder, properties, meterRegistry);
+    }
+}
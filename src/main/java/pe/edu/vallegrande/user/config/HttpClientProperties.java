@@ -0,0 +1,61 @@
+package pe.edu.vallegrande.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Clientes HTTP salientes con nombre ({@code http.clients.<nombre>.*} en application.yml), ver
+ * {@link OutboundHttpClients}. Un nombre sin configurar usa los valores por defecto.
+ */
+@Data
+@ConfigurationProperties(prefix = "http")
+public class HttpClientProperties {
+
+    private Map<String, Client> clients = new LinkedHashMap<>();
+
+    public Client client(String name) {
+        return clients.getOrDefault(name, new Client());
+    }
+
+    @Data
+    public static class Client {
+        // Pool de conexiones propio del cliente
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 500;       // peticiones esperando conexión; más → error inmediato
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);   // antes de que el servidor cierre la conexión
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+
+        private Duration connectTimeout = Duration.ofSeconds(3);
+        private Duration responseTimeout = Duration.ofSeconds(10);  // por defecto, hasta recibir la respuesta
+        private Map<String, Duration> timeouts = new LinkedHashMap<>();  // por operación (p. ej. upload: 30s)
+        private boolean http2 = true;   // HTTP/2 por ALPN en https; HTTP/1.1 si el servidor no lo ofrece
+
+        private Retry retry = new Retry();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    }
+
+    // Solo para operaciones idempotentes (PUT/DELETE) con cuerpo repetible
+    @Data
+    public static class Retry {
+        private int maxAttempts = 3;    // incluye el primer intento
+        private Duration minBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private double jitter = 0.5;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private int slidingWindow = 20;         // últimas llamadas consideradas
+        private int minimumCalls = 10;          // antes no se abre
+        private int failureRateThreshold = 50;  // % de fallos que abre el circuito
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 3;          // llamadas de prueba; todas deben ir bien para cerrar
+    }
+}
@@ -0,0 +1,252 @@
+package pe.edu.vallegrande.user.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Claves públicas (JWK set) con las que se verifican los ID tokens de Firebase.
+ * <ul>
+ *     <li>Se descargan al arrancar ({@link StartupWarmup}), antes de declarar el servicio listo</li>
+ *     <li>Se renuevan en segundo plano según el {@code Cache-Control: max-age} de Google
+ *     (al {@value #REFRESH_AT_FRACTION_PERCENT}% de su vigencia)</li>
+ *     <li>Mientras se renuevan (o si la renovación falla) se siguen usando las claves actuales</li>
+ *     <li>Un {@code kid} desconocido (rotación de claves) fuerza una renovación, como mucho una
+ *     cada {@code min-refresh-interval}</li>
+ *     <li>{@code security.jwk.local-file}: JWK set local y fijo, sin red (pruebas aisladas)</li>
+ * </ul>
+ * Métricas: {@code jwk.refresh{outcome}}, {@code jwk.refresh.failures}, {@code jwk.keys}, {@code jwk.age}.
+ */
+@Slf4j
+@Component
+public class JwkSetManager {
+
+    private static final int REFRESH_AT_FRACTION_PERCENT = 80;
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final String localFile;
+    private final Duration defaultMaxAge;
+    private final Duration minRefreshInterval;
+    private final Duration timeout;
+    private final Clock clock;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final AtomicReference<Mono<Snapshot>> inFlight = new AtomicReference<>();
+    private final AtomicReference<Instant> lastAttempt = new AtomicReference<>();
+    private final Timer refreshSuccess;
+    private final Timer refreshError;
+    private final Counter failures;
+
+    @Autowired
+    public JwkSetManager(
+            WebClient.Builder webClientBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${security.jwk.local-file:}") String localFile,
+            @Value("${security.jwk.default-max-age:1h}") Duration defaultMaxAge,
+            @Value("${security.jwk.min-refresh-interval:30s}") Duration minRefreshInterval,
+            @Value("${security.jwk.timeout:5s}") Duration timeout
+    ) {
+        this(webClientBuilder.build(), meterRegistry, jwkSetUri, localFile, defaultMaxAge, minRefreshInterval,
+                timeout, Clock.systemUTC());
+    }
+
+    JwkSetManager(WebClient webClient, MeterRegistry meterRegistry, String jwkSetUri, String localFile,
+                  Duration defaultMaxAge, Duration minRefreshInterval, Duration timeout, Clock clock) {
+        this.webClient = webClient;
+        this.jwkSetUri = jwkSetUri;
+        this.localFile = localFile;
+        this.defaultMaxAge = defaultMaxAge;
+        this.minRefreshInterval = minRefreshInterval;
+        this.timeout = timeout;
+        this.clock = clock;
+
+        this.refreshSuccess = refreshTimer(meterRegistry, "success");
+        this.refreshError = refreshTimer(meterRegistry, "error");
+        this.failures = Counter.builder("jwk.refresh.failures")
+                .description("Renovaciones del JWK set fallidas (se siguen usando las claves anteriores)")
+                .register(meterRegistry);
+        Gauge.builder("jwk.keys", current, ref -> ref.get().keys().getKeys().size())
+                .description("Claves públicas disponibles")
+                .register(meterRegistry);
+        Gauge.builder("jwk.age", current, ref -> ref.get().fetchedAt() == null ? 0
+                        : Duration.between(ref.get().fetchedAt(), clock.instant()).toSeconds())
+                .description("Antigüedad de las claves en uso")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static Timer refreshTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwk.refresh")
+                .description("Duración de la descarga del JWK set")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 🔑 Fuente de claves para {@code NimbusReactiveJwtDecoder.withJwkSource}: claves que coinciden con la
+     * cabecera del token. Si no hay ninguna (clave rotada) se renueva el set y se vuelve a buscar.
+     */
+    public Flux<JWK> keysFor(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        List<JWK> keys = selector.select(current.get().keys());
+        if (!keys.isEmpty() || isLocal()) return Flux.fromIterable(keys);
+
+        return refreshIfAllowed()
+                .flatMapIterable(snapshot -> selector.select(snapshot.keys()));
+    }
+
+    /**
+     * 🚀 Primera carga (al arrancar). No lanza errores: sin claves, la primera petición reintenta.
+     */
+    public Mono<Void> prefetch() {
+        return warmup().onErrorResume(e -> !isLocal(), e -> Mono.empty());
+    }
+
+    /**
+     * 🔥 Primera carga que sí propaga el error, para que {@code StartupWarmup} reintente hasta tener claves.
+     */
+    public Mono<Void> warmup() {
+        if (isLocal()) {
+            return Mono.fromCallable(this::loadLocalFile)
+                    .doOnNext(current::set)
+                    .doOnNext(snapshot -> log.info("🔑 JWK set local cargado: {} claves", snapshot.keys().getKeys().size()))
+                    .then();
+        }
+        return refresh()
+                .doOnNext(snapshot -> log.info("🔑 JWK set precargado: {} claves, vigente hasta {}",
+                        snapshot.keys().getKeys().size(), snapshot.expiresAt()))
+                .then();
+    }
+
+    /**
+     * 🔁 Renovación en segundo plano: cuando se supera el {@value #REFRESH_AT_FRACTION_PERCENT}% de la
+     * vigencia, o tras un fallo (cada {@code min-refresh-interval})
+     */
+    @Scheduled(fixedDelayString = "${security.jwk.check-interval-ms:15000}")
+    public Mono<Void> refreshIfDue() {
+        if (isLocal() || clock.instant().isBefore(current.get().refreshAt())) return Mono.empty();
+        return refresh().onErrorResume(e -> Mono.empty()).then();
+    }
+
+    // Un kid desconocido no debe provocar una descarga por petición
+    private Mono<Snapshot> refreshIfAllowed() {
+        Instant attempted = lastAttempt.get();
+        if (attempted != null && clock.instant().isBefore(attempted.plus(minRefreshInterval))) {
+            return Mono.just(current.get());
+        }
+        return refresh().onErrorResume(e -> Mono.just(current.get()));
+    }
+
+    // Una sola descarga a la vez; las peticiones concurrentes comparten su resultado
+    Mono<Snapshot> refresh() {
+        Mono<Snapshot> running = inFlight.get();
+        if (running != null) return running;
+
+        Mono<Snapshot> download = Mono.defer(this::download)
+                // Antes de notificar: quien espere el resultado y pida otra renovación no debe recibir esta
+                .doOnTerminate(() -> inFlight.set(null))
+                .cache();
+        // La descarga que ganó puede terminar (y dejar inFlight en null) entre el CAS fallido y la lectura
+        while (!inFlight.compareAndSet(null, download)) {
+            running = inFlight.get();
+            if (running != null) return running;
+        }
+        return download;
+    }
+
+    private Mono<Snapshot> download() {
+        lastAttempt.set(clock.instant());
+        Timer.Sample sample = Timer.start();
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .toEntity(String.class)
+                .timeout(timeout)
+                .map(this::toSnapshot)
+                .doOnNext(snapshot -> {
+                    sample.stop(refreshSuccess);
+                    current.set(snapshot);
+                })
+                .doOnError(e -> {
+                    sample.stop(refreshError);
+                    failures.increment();
+                    // Se reintenta tras min-refresh-interval; mientras tanto se usan las claves anteriores
+                    current.updateAndGet(old -> old.retryAt(clock.instant().plus(minRefreshInterval)));
+                    log.warn("⚠️ No se pudo renovar el JWK set ({}), se mantienen las claves actuales: {}",
+                            jwkSetUri, e.getMessage());
+                });
+    }
+
+    private Snapshot toSnapshot(ResponseEntity<String> response) {
+        try {
+            JWKSet keys = JWKSet.parse(response.getBody());
+            Duration maxAge = maxAge(response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+            Instant now = clock.instant();
+            return new Snapshot(keys, now, now.plus(maxAge),
+                    now.plus(maxAge.multipliedBy(REFRESH_AT_FRACTION_PERCENT).dividedBy(100)));
+        } catch (ParseException e) {
+            throw new IllegalStateException("JWK set inválido en " + jwkSetUri, e);
+        }
+    }
+
+    private Duration maxAge(String cacheControl) {
+        if (cacheControl == null) return defaultMaxAge;
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        return matcher.find() ? Duration.ofSeconds(Long.parseLong(matcher.group(1))) : defaultMaxAge;
+    }
+
+    private Snapshot loadLocalFile() throws Exception {
+        try (InputStream in = new DefaultResourceLoader().getResource(localFile).getInputStream()) {
+            JWKSet keys = JWKSet.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            return new Snapshot(keys, clock.instant(), Instant.MAX, Instant.MAX);
+        }
+    }
+
+    private boolean isLocal() {
+        return StringUtils.hasText(localFile);
+    }
+
+    /**
+     * Claves en uso y cuándo se descargaron, caducan y deben renovarse.
+     */
+    record Snapshot(JWKSet keys, Instant fetchedAt, Instant expiresAt, Instant refreshAt) {
+
+        static final Snapshot EMPTY = new Snapshot(new JWKSet(), null, Instant.MIN, Instant.MIN);
+
+        Snapshot retryAt(Instant when) {
+            return new Snapshot(keys, fetchedAt, expiresAt, when);
+        }
+    }
+}
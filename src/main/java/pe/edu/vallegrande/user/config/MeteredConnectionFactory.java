@@ -0,0 +1,85 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ConnectionFactory} que delega en el pool y mide cuánto espera cada petición por una conexión
+ * ({@code r2dbc.pool.acquire{outcome}}). Implementa {@link Wrapped} para que Actuator siga
+ * encontrando el {@link ConnectionPool} y publique sus métricas {@code r2dbc.pool.*}.
+ */
+public class MeteredConnectionFactory implements ConnectionFactory, Wrapped<ConnectionPool>, Disposable {
+
+    private final ConnectionPool pool;
+    private final Timer acquired;
+    private final Timer failed;
+
+    public MeteredConnectionFactory(ConnectionPool pool, MeterRegistry meterRegistry) {
+        this.pool = pool;
+        this.acquired = acquireTimer(meterRegistry, "success");
+        this.failed = acquireTimer(meterRegistry, "error");
+        Gauge.builder("r2dbc.pool.utilization", pool, MeteredConnectionFactory::utilization)
+                .description("Fracción de conexiones del pool en uso (adquiridas / máximo)")
+                .tag("name", DatabaseConfig.POOL_NAME)
+                .register(meterRegistry);
+    }
+
+    private static Timer acquireTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("Espera hasta obtener una conexión del pool")
+                .tag("name", DatabaseConfig.POOL_NAME)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static double utilization(ConnectionPool pool) {
+        return pool.getMetrics()
+                .map(metrics -> metrics.getMaxAllocatedSize() == 0 ? 0.0
+                        : (double) metrics.acquiredSize() / metrics.getMaxAllocatedSize())
+                .orElse(0.0);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start();
+            return pool.create()
+                    .doOnSuccess(connection -> sample.stop(acquired))
+                    .doOnError(e -> sample.stop(failed));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return pool.getMetadata();
+    }
+
+    @Override
+    public ConnectionPool unwrap() {
+        return pool;
+    }
+
+    public PoolMetrics metrics() {
+        return pool.getMetrics().orElseThrow();
+    }
+
+    @Override
+    public void dispose() {
+        pool.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pool.isDisposed();
+    }
+}
@@ -0,0 +1,87 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.pool.PoolMetricsRecorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica en Micrometer los eventos internos del pool (reactor-pool): creación de conexiones,
+ * su vida útil y tiempo inactivo, y si la adquisición fue inmediata (fast path) o tuvo que esperar.
+ */
+class MicrometerPoolMetricsRecorder implements PoolMetricsRecorder {
+
+    private final Timer createSuccess;
+    private final Timer createError;
+    private final Timer lifetime;
+    private final Timer idle;
+    private final Counter fastPath;
+    private final Counter slowPath;
+
+    MicrometerPoolMetricsRecorder(MeterRegistry meterRegistry, String poolName) {
+        this.createSuccess = createTimer(meterRegistry, poolName, "success");
+        this.createError = createTimer(meterRegistry, poolName, "error");
+        this.lifetime = Timer.builder("r2dbc.pool.connection.lifetime")
+                .description("Vida de las conexiones hasta que se cierran")
+                .tag("name", poolName)
+                .register(meterRegistry);
+        this.idle = Timer.builder("r2dbc.pool.connection.idle")
+                .description("Tiempo que una conexión pasó inactiva antes de reutilizarse")
+                .tag("name", poolName)
+                .register(meterRegistry);
+        this.fastPath = Counter.builder("r2dbc.pool.acquire.path").tag("name", poolName).tag("path", "fast").register(meterRegistry);
+        this.slowPath = Counter.builder("r2dbc.pool.acquire.path").tag("name", poolName).tag("path", "slow").register(meterRegistry);
+    }
+
+    private static Timer createTimer(MeterRegistry meterRegistry, String poolName, String outcome) {
+        return Timer.builder("r2dbc.pool.create")
+                .description("Tiempo de abrir una conexión nueva con Postgres")
+                .tag("name", poolName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void recordAllocationSuccessAndLatency(long latencyMs) {
+        createSuccess.record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordAllocationFailureAndLatency(long latencyMs) {
+        createError.record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordResetLatency(long latencyMs) {
+    }
+
+    @Override
+    public void recordDestroyLatency(long latencyMs) {
+    }
+
+    @Override
+    public void recordRecycled() {
+    }
+
+    @Override
+    public void recordLifetimeDuration(long millisecondsSinceAllocation) {
+        lifetime.record(millisecondsSinceAllocation, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordIdleTime(long millisecondsIdle) {
+        idle.record(millisecondsIdle, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordSlowPath() {
+        slowPath.increment();
+    }
+
+    @Override
+    public void recordFastPath() {
+        fastPath.increment();
+    }
+}
@@ -0,0 +1,104 @@
+package pe.edu.vallegrande.user.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+import pe.edu.vallegrande.user.dto.RoleCountDto;
+import pe.edu.vallegrande.user.dto.UserChangeEventDto;
+import pe.edu.vallegrande.user.dto.UserCreateDto;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.dto.UserImportResultDto;
+import pe.edu.vallegrande.user.dto.UserPageDto;
+import pe.edu.vallegrande.user.dto.UserSearchPageDto;
+import pe.edu.vallegrande.user.model.ClaimsSync;
+import pe.edu.vallegrande.user.model.MailOutbox;
+import pe.edu.vallegrande.user.model.StorageDeletion;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.model.UserCreationRequest;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Metadatos para el procesamiento AOT y la imagen nativa (perfiles {@code aot} y {@code native}); en la JVM
+ * normal no tiene efecto.
+ * <ul>
+ *     <li>DTOs (Lombok) y entidades R2DBC: Jackson y Spring Data los leen y escriben por reflexión</li>
+ *     <li>Firebase Admin SDK: sus respuestas JSON se mapean a campos con {@code @Key} de google-http-client</li>
+ *     <li>Recursos: migraciones {@code db/schema/*.sql} y {@code admin_sdk.properties} de Firebase</li>
+ * </ul>
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.UserRuntimeHints.class)
+@RegisterReflectionForBinding({
+        UserDto.class, UserCreateDto.class, UserPageDto.class, UserSearchPageDto.class, RoleCountDto.class,
+        UserImportResultDto.class, User.class, MailOutbox.class, StorageDeletion.class, UserCreationRequest.class,
+        ClaimsSync.class, UserChangeEvent.class, UserChangeEventDto.class
+})
+public class NativeHintsConfig {
+
+    @Slf4j
+    static class UserRuntimeHints implements RuntimeHintsRegistrar {
+
+        // Paquetes con clases mapeadas por google-http-client (Firebase Auth, credenciales OAuth2, JWT)
+        private static final List<String> GOOGLE_JSON_PACKAGES = List.of(
+                "com/google/firebase/**", "com/google/auth/oauth2/**", "com/google/api/client/**");
+        private static final String KEY_ANNOTATION = "com.google.api.client.util.Key";
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("db/schema/*.sql");
+            hints.resources().registerPattern("admin_sdk.properties");
+
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+            MetadataReaderFactory readers = new CachingMetadataReaderFactory(resolver);
+            for (String pkg : GOOGLE_JSON_PACKAGES) {
+                try {
+                    for (Resource resource : resolver.getResources("classpath*:" + pkg + "/*.class")) {
+                        String className = readers.getMetadataReader(resource).getClassMetadata().getClassName();
+                        Class<?> type = load(className, classLoader);
+                        if (type != null && hasKeyFields(type)) {
+                            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("⚠️ No se pudieron registrar los hints de {}: {}", pkg, e.getMessage());
+                }
+            }
+        }
+
+        // Solo se carga la clase (sin inicializarla); las que dependen de librerías ausentes se ignoran
+        private static Class<?> load(String className, ClassLoader classLoader) {
+            try {
+                return ClassUtils.forName(className, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                return null;
+            }
+        }
+
+        private static boolean hasKeyFields(Class<?> type) {
+            try {
+                for (Field field : type.getDeclaredFields()) {
+                    for (var annotation : field.getDeclaredAnnotations()) {
+                        if (annotation.annotationType().getName().equals(KEY_ANNOTATION)) return true;
+                    }
+                }
+            } catch (LinkageError e) {
+                return false;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Cliente HTTP saliente con nombre, creado por {@link OutboundHttpClients}:
+ * <ul>
+ *     <li>{@link #webClient()}: WebClient de Spring Boot (medido en {@code http.client.requests}) sobre un pool
+ *     de conexiones propio, con timeouts de conexión y de respuesta</li>
+ *     <li>{@link #responseTimeout(String)}: timeout de respuesta de una operación concreta</li>
+ *     <li>{@link #idempotent}: circuit breaker + reintentos con backoff exponencial y jitter</li>
+ *     <li>{@link #once}: solo circuit breaker (cuerpos en streaming u operaciones no idempotentes)</li>
+ * </ul>
+ * Métricas: {@code http.client.retries}, {@code http.client.circuit.state} (0 cerrado, 1 abierto, 2 semiabierto)
+ * y {@code http.client.circuit.rejected}, con el tag {@code client}.
+ */
+@Slf4j
+public class OutboundHttpClient {
+
+    private final String name;
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final HttpClientProperties.Client config;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter retries;
+    private final Counter rejected;
+
+    OutboundHttpClient(String name, WebClient webClient, ConnectionProvider connectionProvider,
+                       HttpClientProperties.Client config, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.webClient = webClient;
+        this.connectionProvider = connectionProvider;
+        this.config = config;
+        this.circuitBreaker = new CircuitBreaker(config.getCircuitBreaker(), System::nanoTime);
+
+        this.retries = Counter.builder("http.client.retries")
+                .description("Reintentos de llamadas salientes idempotentes")
+                .tag("client", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("http.client.circuit.rejected")
+                .description("Llamadas rechazadas sin salir por tener el circuito abierto")
+                .tag("client", name)
+                .register(meterRegistry);
+        Gauge.builder("http.client.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Estado del circuit breaker: 0 cerrado, 1 abierto, 2 semiabierto")
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    public WebClient webClient() {
+        return webClient;
+    }
+
+    /**
+     * ⏱️ Para {@code .httpRequest(...)}: timeout de respuesta de la operación ({@code timeouts.<operación>},
+     * o {@code response-timeout} si no tiene uno propio). Cuenta desde que se termina de enviar la petición.
+     */
+    public Consumer<ClientHttpRequest> responseTimeout(String operation) {
+        Duration timeout = config.getTimeouts().getOrDefault(operation, config.getResponseTimeout());
+        return request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(timeout);
+    }
+
+    /**
+     * 🔁 Llamada idempotente con cuerpo repetible: cada reintento vuelve a suscribirse a {@code call}
+     * (una petición nueva). Se reintentan solo los fallos del servicio remoto, nunca un 4xx.
+     */
+    public <T> Mono<T> idempotent(Mono<T> call) {
+        HttpClientProperties.Retry retry = config.getRetry();
+        return once(call)
+                .retryWhen(Retry.backoff(Math.max(0, retry.getMaxAttempts() - 1), retry.getMinBackoff())
+                        .maxBackoff(retry.getMaxBackoff())
+                        .jitter(retry.getJitter())
+                        .filter(OutboundHttpClient::isFailure)
+                        .doBeforeRetry(signal -> {
+                            retries.increment();
+                            log.warn("🔁 Reintento {} de una llamada a {}: {}", signal.totalRetries() + 1, name,
+                                    signal.failure().getMessage());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /**
+     * 🛡️ Llamada protegida por el circuit breaker, sin reintentos.
+     */
+    public <T> Mono<T> once(Mono<T> call) {
+        return protect(call.flux()).singleOrEmpty();
+    }
+
+    public <T> Flux<T> once(Flux<T> call) {
+        return protect(call);
+    }
+
+    private <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                rejected.increment();
+                return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Servicio externo '" + name + "' no disponible (circuito abierto)"));
+            }
+            AtomicBoolean reported = new AtomicBoolean();
+            return call
+                    .doOnComplete(() -> {
+                        if (reported.compareAndSet(false, true)) circuitBreaker.onSuccess();
+                    })
+                    .doOnError(e -> {
+                        if (!reported.compareAndSet(false, true)) return;
+                        // Un 4xx es un error de la petición, no del servicio: no abre el circuito
+                        if (isFailure(e)) circuitBreaker.onFailure();
+                        else circuitBreaker.onSuccess();
+                    })
+                    .doOnCancel(() -> {
+                        if (reported.compareAndSet(false, true)) circuitBreaker.onIgnored();
+                    });
+        });
+    }
+
+    /**
+     * Fallo del servicio remoto o de la red: conexión, timeout, 5xx o 429.
+     */
+    static boolean isFailure(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError()
+                    || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        // Sin respuesta: conexión rechazada/cerrada o timeout de respuesta (ReadTimeoutException)
+        if (e instanceof WebClientRequestException request) {
+            return !(request.getCause() instanceof ResponseStatusException);
+        }
+        return e instanceof TimeoutException;
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    void dispose() {
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,70 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🌐 Fábrica de {@link OutboundHttpClient}: uno por nombre ({@code http.clients.<nombre>.*}), cada uno con su
+ * propio pool de Reactor Netty para que una ráfaga hacia un servicio no deje sin conexiones a los demás.
+ * Métricas del pool: {@code reactor.netty.connection.provider.*} (activas, inactivas, pendientes, máximo y
+ * tiempo de espera por una conexión), con el tag {@code name = http.<nombre>}.
+ */
+public class OutboundHttpClients {
+
+    private final WebClient.Builder webClientBuilder;
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OutboundHttpClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * @param webClientBuilder builder de Spring Boot, con la observación de {@code http.client.requests}
+     */
+    public OutboundHttpClients(WebClient.Builder webClientBuilder, HttpClientProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.webClientBuilder = webClientBuilder;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public OutboundHttpClient client(String name) {
+        return clients.computeIfAbsent(name, this::create);
+    }
+
+    public void dispose() {
+        clients.values().forEach(OutboundHttpClient::dispose);
+    }
+
+    private OutboundHttpClient create(String name) {
+        HttpClientProperties.Client config = properties.client(name);
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("http." + name)
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(config.getPendingAcquireTimeout())
+                .maxIdleTime(config.getMaxIdleTime())
+                .maxLifeTime(config.getMaxLifeTime())
+                .evictInBackground(config.getEvictInBackground())
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) config.getConnectTimeout().toMillis())
+                .responseTimeout(config.getResponseTimeout())
+                // HTTP/2 se negocia por ALPN solo en https; en http (o si el servidor no lo ofrece) se usa HTTP/1.1
+                .protocol(config.isHttp2()
+                        ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11});
+
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        return new OutboundHttpClient(name, webClient, connectionProvider, config, meterRegistry);
+    }
+}
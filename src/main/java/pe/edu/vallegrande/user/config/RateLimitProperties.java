@@ -0,0 +1,42 @@
+package pe.edu.vallegrande.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Límites por ruta de {@link RateLimitWebFilter} ({@code security.rate-limit.*} en application.yml).
+ * Cada ruta puede tener varios límites; la petición se rechaza con el primero que no tenga tokens.
+ */
+@Data
+@ConfigurationProperties(prefix = "security.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    // Tope del cuerpo que se lee para sacar el email (las rutas limitadas por email reciben JSON pequeño)
+    private int maxBodySize = 16 * 1024;
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Route {
+        private String id;
+        private String method;   // null = cualquier método
+        private String path;     // patrón de Spring, p. ej. /api/auth/**
+        private List<Limit> limits = new ArrayList<>();
+    }
+
+    @Data
+    public static class Limit {
+        private Key key = Key.IP;
+        private int capacity;     // peticiones seguidas permitidas
+        private Duration period;  // tiempo en que el bucket se rellena entero
+    }
+
+    public enum Key {
+        IP,     // dirección remota
+        EMAIL   // campo "email" del cuerpo JSON (normalizado a minúsculas)
+    }
+}
@@ -0,0 +1,212 @@
+package pe.edu.vallegrande.user.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import pe.edu.vallegrande.user.model.Emails;
+import pe.edu.vallegrande.user.service.RateLimitStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rate limiting por ruta ({@code security.rate-limit.routes}) con token buckets por IP y/o por email.
+ * <ul>
+ *     <li>Los límites de una ruta se comprueban en orden; el primero sin tokens corta con 429,
+ *     {@code Retry-After} (segundos) y {@code {"error": ...}}, sin consumir los siguientes</li>
+ *     <li>Para la clave EMAIL se lee el cuerpo JSON (como mucho {@code max-body-size}) y se vuelve
+ *     a entregar intacto al controlador</li>
+ *     <li>Las claves se guardan como SHA-256 (no quedan emails en claro en memoria ni en la BD)</li>
+ *     <li>Si el almacén falla se deja pasar la petición (fail-open) y se registra</li>
+ * </ul>
+ * Métricas: {@code rate.limit.requests{route, key, outcome=allowed|rejected|error}}.
+ */
+@Slf4j
+public class RateLimitWebFilter implements WebFilter {
+
+    private final List<CompiledRoute> routes;
+    private final RateLimitStore store;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int maxBodySize;
+
+    public RateLimitWebFilter(RateLimitProperties properties, RateLimitStore store,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxBodySize = properties.getMaxBodySize();
+        this.routes = properties.getRoutes().stream().map(RateLimitWebFilter::compile).toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        CompiledRoute route = match(exchange.getRequest());
+        if (route == null) return chain.filter(exchange);
+
+        if (!route.needsEmail()) return limit(exchange, chain, route, null);
+
+        return DataBufferUtils.join(exchange.getRequest().getBody(), maxBodySize)
+                .map(RateLimitWebFilter::toBytes)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> limit(withBody(exchange, body), chain, route, email(body)))
+                .onErrorResume(DataBufferLimitException.class,
+                        e -> reject(exchange, HttpStatus.PAYLOAD_TOO_LARGE, null, "El cuerpo de la petición es demasiado grande"));
+    }
+
+    private Mono<Void> limit(ServerWebExchange exchange, WebFilterChain chain, CompiledRoute route, String email) {
+        return decide(route, remoteIp(exchange.getRequest()), email)
+                .flatMap(decision -> {
+                    meterRegistry.counter("rate.limit.requests", "route", route.id(),
+                            "key", decision.key(), "outcome", decision.outcome()).increment();
+                    if (decision.retryAfter() == null) return chain.filter(exchange);
+                    return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, decision.retryAfter(),
+                            "Demasiadas solicitudes, inténtalo de nuevo más tarde");
+                });
+    }
+
+    private Mono<Decision> decide(CompiledRoute route, String ip, String email) {
+        return Flux.fromIterable(route.limits())
+                .concatMap(limit -> {
+                    String value = limit.getKey() == RateLimitProperties.Key.IP ? ip : email;
+                    if (value == null) return Mono.empty(); // sin email en el cuerpo: lo valida el controlador
+                    String key = limit.getKey().name().toLowerCase(Locale.ROOT);
+                    return store.tryAcquire(route.id() + ":" + key + ":" + hash(value), limit.getCapacity(), limit.getPeriod())
+                            .filter(wait -> !wait.isZero())
+                            .map(wait -> new Decision(key, "rejected", wait));
+                })
+                .next()
+                .defaultIfEmpty(Decision.ALLOWED)
+                .onErrorResume(e -> {
+                    log.warn("⚠️ Rate limiting no disponible para {}, se deja pasar: {}", route.id(), e.getMessage());
+                    return Mono.just(Decision.FAILED_OPEN);
+                });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, Duration retryAfter, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        if (retryAfter != null) {
+            long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        }
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(Map.of("error", message));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (IOException e) {
+            return response.setComplete();
+        }
+    }
+
+    private CompiledRoute match(ServerHttpRequest request) {
+        for (CompiledRoute route : routes) {
+            if ((route.method() == null || route.method().equals(request.getMethod()))
+                    && route.pattern().matches(request.getPath().pathWithinApplication())) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // El controlador vuelve a leer el cuerpo ya consumido
+    private static ServerWebExchange withBody(ServerWebExchange exchange, byte[] body) {
+        ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+            }
+        };
+        return exchange.mutate().request(request).build();
+    }
+
+    private String email(byte[] body) {
+        if (body.length == 0) return null;
+        try {
+            JsonNode email = objectMapper.readTree(body).path("email");
+            if (!email.isTextual() || email.asText().isBlank()) return null;
+            return Emails.normalize(email.asText());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Tras un proxy, server.forward-headers-strategy=framework hace que aquí llegue la IP del cliente
+    private static String remoteIp(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        if (address == null) return "unknown";
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+
+    private static byte[] toBytes(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CompiledRoute compile(RateLimitProperties.Route route) {
+        if (route.getPath() == null || route.getLimits().isEmpty()) {
+            throw new IllegalArgumentException("security.rate-limit: cada ruta necesita path y al menos un límite");
+        }
+        for (RateLimitProperties.Limit limit : route.getLimits()) {
+            if (limit.getCapacity() < 1 || limit.getPeriod() == null || limit.getPeriod().isNegative() || limit.getPeriod().isZero()) {
+                throw new IllegalArgumentException("security.rate-limit: límite inválido en " + route.getPath()
+                        + " (capacity >= 1 y period > 0)");
+            }
+        }
+        String id = route.getId() != null ? route.getId() : route.getPath();
+        HttpMethod method = route.getMethod() == null ? null : HttpMethod.valueOf(route.getMethod().toUpperCase(Locale.ROOT));
+        boolean needsEmail = route.getLimits().stream().anyMatch(limit -> limit.getKey() == RateLimitProperties.Key.EMAIL);
+        return new CompiledRoute(id, method, PathPatternParser.defaultInstance.parse(route.getPath()),
+                List.copyOf(route.getLimits()), needsEmail);
+    }
+
+    private record CompiledRoute(String id, HttpMethod method, PathPattern pattern,
+                                 List<RateLimitProperties.Limit> limits, boolean needsEmail) {
+    }
+
+    // retryAfter == null → se deja pasar
+    private record Decision(String key, String outcome, Duration retryAfter) {
+        static final Decision ALLOWED = new Decision("none", "allowed", null);
+        static final Decision FAILED_OPEN = new Decision("none", "error", null);
+    }
+}
@@ -0,0 +1,32 @@
+package pe.edu.vallegrande.user.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Convierte el JWT recibido en un {@link CustomAuthenticationToken} con el rol del claim {@code role}
+ * (asignado como custom claim en Firebase) como authority {@code ROLE_<ROL>}.
+ */
+public class RoleJwtAuthenticationConverter implements Converter<Jwt, Mono<CustomAuthenticationToken>> {
+
+    // Authorities ya construidas por rol: los tokens repiten siempre los mismos pocos roles
+    private final Map<String, Collection<GrantedAuthority>> authoritiesByRole = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<CustomAuthenticationToken> convert(Jwt jwt) {
+        String role = jwt.getClaimAsString("role");
+        Collection<GrantedAuthority> authorities = role != null
+                ? authoritiesByRole.computeIfAbsent(role.toUpperCase(),
+                        upper -> List.of(new SimpleGrantedAuthority("ROLE_" + upper)))
+                : List.of();
+        return Mono.just(new CustomAuthenticationToken(jwt, authorities));
+    }
+}
@@ -0,0 +1,10 @@
+package pe.edu.vallegrande.user.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita las tareas en segundo plano (@Scheduled), p. ej. el envío de la bandeja de correos
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,33 +1,36 @@
 package pe.edu.vallegrande.user.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
-import java.util.Collection;
-import java.util.List;
+import org.springframework.util.StringUtils;
+import pe.edu.vallegrande.user.service.PasswordHashingService;
+import pe.edu.vallegrande.user.service.RateLimitStore;
+
+import java.time.Duration;
 
 // Habilita seguridad por roles usando anotaciones como @PreAuthorize
 @EnableReactiveMethodSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 @Configuration
 public class SecurityConfig {
 
-    // URI del servidor de claves de Firebase (para validar tokens JWT)
-    private static final String JWK_SET_URI = "https://www.googleapis.com/service_accounts/v1/jwk/securetoken@system.gserviceaccount.com";
-
     // Configura las reglas de seguridad de la aplicación
     @Bean
-    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http, ReactiveJwtDecoder jwtDecoder) {
         http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(auth -> auth
@@ -36,36 +39,44 @@ public class SecurityConfig {
                         .anyExchange().permitAll()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtDecoder(jwtDecoder())
-                                .jwtAuthenticationConverter(this::convertJwt))
+                        .jwt(jwt -> jwt.jwtDecoder(jwtDecoder)
+                                .jwtAuthenticationConverter(new RoleJwtAuthenticationConverter()))
                 );
         return http.build();
     }
 
-    // Configura el decodificador JWT con la URI de claves públicas de Firebase
+    // Configura el decodificador JWT con las claves públicas de Firebase (precargadas y renovadas por JwkSetManager)
+    // y el emisor de spring.security.oauth2.resourceserver.jwt.issuer-uri, con caché de tokens ya verificados
+    // (el mismo token llega cientos de veces durante su hora de vida)
     @Bean
-    public ReactiveJwtDecoder jwtDecoder() {
-        return NimbusReactiveJwtDecoder.withJwkSetUri(JWK_SET_URI).build();
-    }
-
-    // Convierte el JWT recibido en un CustomAuthenticationToken (incluye roles)
-    private Mono<CustomAuthenticationToken> convertJwt(Jwt jwt) {
-        String role = jwt.getClaimAsString("role");
-        Collection<GrantedAuthority> authorities = role != null
-                ? List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
-                : List.of();
-        return Mono.just(new CustomAuthenticationToken(jwt, authorities));
+    public ReactiveJwtDecoder jwtDecoder(
+            JwkSetManager jwkSetManager,
+            MeterRegistry meterRegistry,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}") String issuerUri,
+            @Value("${security.jwt.cache.max-size:10000}") long cacheMaxSize,
+            @Value("${security.jwt.cache.max-ttl:1h}") Duration cacheMaxTtl
+    ) {
+        NimbusReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withJwkSource(jwkSetManager::keysFor).build();
+        if (StringUtils.hasText(issuerUri)) {
+            nimbus.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        }
+        return new CachingReactiveJwtDecoder(nimbus, meterRegistry, cacheMaxSize, cacheMaxTtl);
     }
 
-    // Codificador de contraseñas con BCrypt (para guardar contraseñas seguras)
+    // Rate limiting de las rutas públicas (security.rate-limit): justo después de CORS, para que el 429 lleve
+    // las cabeceras CORS, y antes de la cadena de Spring Security
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @ConditionalOnProperty(name = "security.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public RateLimitWebFilter rateLimitWebFilter(RateLimitProperties properties, RateLimitStore store,
+                                                 ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new RateLimitWebFilter(properties, store, objectMapper, meterRegistry);
     }
 
+    // Codificador de contraseñas con BCrypt (mismo coste que PasswordHashingService)
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public PasswordEncoder passwordEncoder(PasswordHashingService passwordHashingService) {
+        return passwordHashingService.encoder();
     }
 
 }
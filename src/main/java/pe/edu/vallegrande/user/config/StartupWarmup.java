@@ -0,0 +1,154 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user.service.FirebaseGateway;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Calentamiento de las dependencias externas al arrancar, todas en paralelo:
+ * <ul>
+ *     <li>{@code database}: abre las {@code initial-size} conexiones del pool R2DBC</li>
+ *     <li>{@code jwk}: descarga las claves públicas de los ID tokens ({@link JwkSetManager})</li>
+ *     <li>{@code firebase}: inicializa el Admin SDK y obtiene su access token ({@link FirebaseGateway#warmup()})</li>
+ * </ul>
+ * Empieza con el ciclo de vida del contexto, a la vez que el servidor HTTP, sin bloquear el arranque.
+ * Cada componente se reintenta con backoff ({@code startup.warmup.*}) hasta que responde; mientras tanto este
+ * indicador está en OUT_OF_SERVICE y, como forma parte del grupo {@code readiness}, el servicio no recibe tráfico.
+ * Métricas: {@code startup.warmup{component}} (tiempo hasta quedar listo, reintentos incluidos),
+ * {@code startup.warmup.failures{component}} y {@code startup.warmup.pending}.
+ */
+@Slf4j
+@Component
+public class StartupWarmup implements SmartLifecycle, HealthIndicator {
+
+    private final List<Task> tasks;
+    private final MeterRegistry meterRegistry;
+    private final Duration attemptTimeout;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+
+    private final Map<String, Duration> ready = new ConcurrentHashMap<>();
+    private volatile Disposable running;
+
+    @Autowired
+    public StartupWarmup(
+            MeteredConnectionFactory connectionFactory,
+            JwkSetManager jwkSetManager,
+            FirebaseGateway firebaseGateway,
+            MeterRegistry meterRegistry,
+            @Value("${startup.warmup.attempt-timeout:10s}") Duration attemptTimeout,
+            @Value("${startup.warmup.min-backoff:500ms}") Duration minBackoff,
+            @Value("${startup.warmup.max-backoff:30s}") Duration maxBackoff
+    ) {
+        this(List.of(
+                new Task("database", () -> connectionFactory.unwrap().warmup()
+                        .doOnNext(opened -> log.info("🔥 Pool R2DBC calentado: {} conexiones abiertas", opened))
+                        .then()),
+                new Task("jwk", jwkSetManager::warmup),
+                new Task("firebase", firebaseGateway::warmup)
+        ), meterRegistry, attemptTimeout, minBackoff, maxBackoff);
+    }
+
+    StartupWarmup(List<Task> tasks, MeterRegistry meterRegistry, Duration attemptTimeout,
+                  Duration minBackoff, Duration maxBackoff) {
+        this.tasks = tasks;
+        this.meterRegistry = meterRegistry;
+        this.attemptTimeout = attemptTimeout;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("startup.warmup.pending", ready, r -> tasks.size() - r.size())
+                .description("Dependencias que aún no están listas (el servicio no acepta tráfico)")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        long startedAt = System.nanoTime();
+        running = Flux.fromIterable(tasks)
+                .flatMap(this::warm)
+                .then()
+                .subscribe(null,
+                        e -> log.error("❌ Calentamiento interrumpido", e),
+                        () -> log.info("✅ Dependencias listas en {} ms: {}",
+                                Duration.ofNanos(System.nanoTime() - startedAt).toMillis(), ready));
+    }
+
+    // Reintenta hasta que el componente responde; el tiempo registrado incluye los reintentos
+    private Mono<Void> warm(Task task) {
+        long startedAt = System.nanoTime();
+        Timer timer = Timer.builder("startup.warmup")
+                .description("Tiempo hasta que la dependencia queda lista al arrancar")
+                .tag("component", task.name())
+                .register(meterRegistry);
+        return Mono.defer(task.action())
+                .subscribeOn(Schedulers.boundedElastic()) // el inicio de una tarea no retrasa a las demás
+                .timeout(attemptTimeout)
+                .doOnError(e -> {
+                    meterRegistry.counter("startup.warmup.failures", "component", task.name()).increment();
+                    log.warn("⚠️ No se pudo calentar {}, se reintenta: {}", task.name(), e.getMessage());
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff).maxBackoff(maxBackoff))
+                .doOnSuccess(done -> {
+                    Duration took = Duration.ofNanos(System.nanoTime() - startedAt);
+                    timer.record(took);
+                    ready.put(task.name(), took);
+                });
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = running;
+        if (current != null) current.dispose();
+        running = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running != null;
+    }
+
+    // Antes que el servidor HTTP (fase DEFAULT_PHASE - 2048): el calentamiento empieza mientras abre el puerto
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * 🚦 UP cuando todas las dependencias están listas (detalle: ms que tardó cada una o {@code pending}).
+     */
+    @Override
+    public Health health() {
+        Health.Builder health = ready.size() == tasks.size() ? Health.up() : Health.outOfService();
+        for (Task task : tasks) {
+            Duration took = ready.get(task.name());
+            health.withDetail(task.name(), took == null ? "pending" : took.toMillis() + "ms");
+        }
+        return health.build();
+    }
+
+    /**
+     * Dependencia a calentar: debe fallar mientras no esté disponible.
+     */
+    record Task(String name, Supplier<Mono<Void>> action) {
+    }
+}
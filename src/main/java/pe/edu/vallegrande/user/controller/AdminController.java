@@ -1,24 +1,58 @@
 package pe.edu.vallegrande.user.controller;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.dto.RoleCountDto;
+import pe.edu.vallegrande.user.dto.UserChangeEventDto;
 import pe.edu.vallegrande.user.dto.UserCreateDto;
 import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.dto.UserImportResultDto;
+import pe.edu.vallegrande.user.dto.UserPageDto;
+import pe.edu.vallegrande.user.dto.UserSearchPageDto;
+import pe.edu.vallegrande.user.service.UserChangeEventStream;
+import pe.edu.vallegrande.user.service.UserCreationService;
+import pe.edu.vallegrande.user.service.UserImportService;
+import pe.edu.vallegrande.user.service.UserSearchService;
 import pe.edu.vallegrande.user.service.UserService;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
 @RestController
 @RequestMapping("/api/admin/users")
 public class AdminController {
 
     private final UserService userService;
+    private final UserCreationService userCreationService;
+    private final UserImportService userImportService;
+    private final UserSearchService userSearchService;
+    private final UserChangeEventStream userChangeEventStream;
+    private final Duration eventsHeartbeat;
 
     @Autowired
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService, UserCreationService userCreationService,
+                           UserImportService userImportService, UserSearchService userSearchService,
+                           UserChangeEventStream userChangeEventStream,
+                           @Value("${user.events.heartbeat:15s}") Duration eventsHeartbeat) {
         this.userService = userService;
+        this.userCreationService = userCreationService;
+        this.userImportService = userImportService;
+        this.userSearchService = userSearchService;
+        this.userChangeEventStream = userChangeEventStream;
+        this.eventsHeartbeat = eventsHeartbeat;
     }
 
     // 🔍 Obtener todos los usuarios
@@ -28,6 +62,79 @@ public class AdminController {
         return userService.findAllUsers();
     }
 
+    // 📤 Exportar todos los usuarios en streaming (Accept: application/x-ndjson)
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<UserDto> streamAllUsers() {
+        return userService.streamAllUsers();
+    }
+
+    // 📡 Cambios de usuarios en directo (SSE): id = offset; al reconectar el navegador/cliente envía Last-Event-ID.
+    // ?after=<offset> reanuda desde ese offset; sin ninguno de los dos, solo los cambios a partir de ahora
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<ServerSentEvent<UserChangeEventDto>> streamChangeEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long after) {
+        Flux<ServerSentEvent<UserChangeEventDto>> events = userChangeEventStream.events(lastEventId != null ? lastEventId : after)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(String.valueOf(event.getOffset()))
+                        .event(event.getType())
+                        .build());
+        // Comentario periódico para que proxies y balanceadores no cierren la conexión inactiva
+        Flux<ServerSentEvent<UserChangeEventDto>> heartbeats = Flux.interval(eventsHeartbeat)
+                .map(tick -> ServerSentEvent.<UserChangeEventDto>builder().comment("keepalive").build());
+        return Flux.merge(events, heartbeats);
+    }
+
+    // 📡 Los mismos cambios como NDJSON (un UserChangeEventDto por línea); se reanuda con ?after=<offset>
+    @GetMapping(value = "/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<UserChangeEventDto> streamChangeEventsNdjson(@RequestParam(required = false) Long after) {
+        return userChangeEventStream.events(after);
+    }
+
+    // 📄 Listado paginado por cursor: ?limit=50&sort=name&direction=asc&cursor=...&role=ADMIN
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<UserPageDto> getUsersPage(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(defaultValue = "id") String sort,
+                                          @RequestParam(defaultValue = "asc") String direction,
+                                          @RequestParam(required = false) String role) {
+        return userService.findUsersPage(cursor, limit, sort, direction, role)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    // 🔎 Búsqueda por nombre, apellido, documento o celular, ordenada por relevancia: ?q=ana perez&page=0&size=50
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<UserSearchPageDto> searchUsers(@RequestParam String q,
+                                               @RequestParam(required = false) Integer page,
+                                               @RequestParam(required = false) Integer size) {
+        return userSearchService.search(q, page, size)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .onErrorMap(TimeoutException.class,
+                        e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                "La búsqueda tardó demasiado; usa términos más específicos"));
+    }
+
+    // 👥 Usuarios por rol: [{ "role": "ADMIN", "total": 3 }, ...]
+    @GetMapping("/roles")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<RoleCountDto> countUsersByRole() {
+        return userService.countUsersByRole();
+    }
+
+    // 👥 Usuarios con un rol concreto
+    @GetMapping("/roles/{role}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<RoleCountDto> countByRole(@PathVariable String role) {
+        return userService.countByRole(role);
+    }
+
     // 🔍 Obtener usuario por ID
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -42,18 +149,41 @@ public class AdminController {
         return userService.findByEmail(email);
     }
 
-    // 🆕 Crear usuario en Firebase + BD
+    // 🆕 Crear usuario en Firebase + BD; con Idempotency-Key los reintentos devuelven el mismo usuario
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public Mono<UserDto> createUser(@RequestBody UserCreateDto dto) {
-        return userService.createUser(dto);
+    public Mono<UserDto> createUser(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                    @RequestBody UserCreateDto dto) {
+        return userCreationService.create(dto, idempotencyKey)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .onErrorMap(DuplicateKeyException.class,
+                        e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
+    }
+
+    // 📥 Importación masiva desde CSV con cabecera (name,lastName,...,email,password,role); resultado por fila en NDJSON
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<UserImportResultDto> importUsersCsv(@RequestBody Flux<String> lines) {
+        return userImportService.importCsv(lines)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    // 📥 Importación masiva desde NDJSON (un UserCreateDto por línea); resultado por fila en NDJSON
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<UserImportResultDto> importUsers(@RequestBody Flux<UserCreateDto> users) {
+        return userImportService.importUsers(users);
     }
 
-    // ✏️ Actualizar usuario (excepto email y password)
+    // ✏️ Actualizar usuario (excepto email y password); con "version" → 409 si otro lo cambió antes
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Mono<UserDto> updateUser(@PathVariable Integer id, @RequestBody UserDto dto) {
-        return userService.updateUser(id, dto);
+        return userService.updateUser(id, dto)
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new ResponseStatusException(HttpStatus.CONFLICT, "El usuario fue modificado por otra persona; recárgalo"));
     }
 
     // 🗑️ Eliminar usuario de Firebase + BD
@@ -63,7 +193,7 @@ public class AdminController {
         return userService.deleteUser(id)
                 .thenReturn(ResponseEntity.noContent().<Void>build()) // 204 sin contenido
                 .onErrorResume(e -> {
-                    System.err.println("❌ Error al eliminar usuario: " + e.getMessage());
+                    log.error("❌ Error al eliminar usuario {}", id, e);
                     return Mono.just(ResponseEntity.status(400).<Void>build()); // 👈 forzamos tipo Void
                 });
     }
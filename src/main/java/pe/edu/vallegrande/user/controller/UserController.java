@@ -1,11 +1,15 @@
 package pe.edu.vallegrande.user.controller;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import pe.edu.vallegrande.user.config.CustomAuthenticationToken;
 import pe.edu.vallegrande.user.dto.UserDto;
 import pe.edu.vallegrande.user.service.UserService;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
@@ -41,6 +45,24 @@ public class UserController {
         return userService.changeEmail(auth.getName(), newEmail);
     }
 
+    // 🖼️ Subir mi foto de perfil en streaming (cuerpo binario de la imagen)
+    @PutMapping(value = "/me/profile-image", consumes = {
+            MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_GIF_VALUE,
+            "image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public Mono<UserDto> uploadMyProfileImage(@AuthenticationPrincipal CustomAuthenticationToken auth,
+                                              @RequestBody Flux<DataBuffer> image) {
+        return userService.updateMyProfileImage(auth.getName(), image);
+    }
+
+    // 🖼️ Subir mi foto de perfil como multipart/form-data (campo "file")
+    @PostMapping(value = "/me/profile-image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public Mono<UserDto> uploadMyProfileImageMultipart(@AuthenticationPrincipal CustomAuthenticationToken auth,
+                                                       @RequestPart("file") Mono<FilePart> file) {
+        return file.flatMap(part -> userService.updateMyProfileImage(auth.getName(), part.content()));
+    }
+
     // ✏️ Editar mis datos
     @PutMapping("/me")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
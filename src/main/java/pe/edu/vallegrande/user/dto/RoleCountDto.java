@@ -0,0 +1,16 @@
+package pe.edu.vallegrande.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Número de usuarios que tienen un rol.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoleCountDto {
+    private String role;
+    private long total;
+}
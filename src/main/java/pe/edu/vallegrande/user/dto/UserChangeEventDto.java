@@ -0,0 +1,26 @@
+package pe.edu.vallegrande.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Cambio de un usuario en /api/admin/users/events (un evento SSE o una línea NDJSON).
+ * Para reanudar tras reconectar se envía el último {@code offset} recibido (Last-Event-ID o {@code ?after=}).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserChangeEventDto {
+    private long offset;        // creciente, en orden de commit
+    private String type;        // CREATED | UPDATED | DELETED
+    private Integer userId;
+    private String firebaseUid;
+    private Instant occurredAt;
+    // UserDto tras el cambio, tal como se guardó en el outbox (se reenvía sin volver a procesarlo)
+    @JsonRawValue
+    private String user;
+}
@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import pe.edu.vallegrande.user.model.User;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
@@ -21,6 +22,10 @@ public class UserDto {
     private String email;
     private List<String> role;
     private String profileImage;
+    // Miniaturas de la foto de perfil: "64", "256", "original" → URL (null en imágenes sin procesar)
+    private Map<String, String> profileImageVariants;
+    // Versión de la fila: si se envía al editar, la edición falla con 409 si otro la cambió antes
+    private Long version;
 
     // ✅ Método estático para convertir de Entity → DTO
     public static UserDto fromEntity(User user) {
@@ -34,7 +39,9 @@ public class UserDto {
                 user.getCellPhone(),
                 user.getEmail(),
                 user.getRole(),
-                user.getProfileImage()
+                user.getProfileImage(),
+                null,
+                user.getVersion()
         );
     }
 }
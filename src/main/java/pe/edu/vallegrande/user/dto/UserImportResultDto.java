@@ -0,0 +1,27 @@
+package pe.edu.vallegrande.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de una fila de la importación masiva (una línea NDJSON por fila).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportResultDto {
+
+    public enum Status {
+        CREATED,    // cuenta creada en Firebase y en la BD
+        DUPLICATE,  // el email ya existe en la BD o se repite en el archivo
+        INVALID,    // fila mal formada o sin datos obligatorios
+        FAILED      // error en Firebase o en la BD (la cuenta de Firebase se revierte)
+    }
+
+    private int row;          // posición de la fila en el archivo (1 = primera fila de datos)
+    private String email;
+    private Status status;
+    private Integer id;       // id en la BD si se creó
+    private String error;
+}
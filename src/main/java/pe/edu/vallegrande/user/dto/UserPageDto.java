@@ -0,0 +1,16 @@
+package pe.edu.vallegrande.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserPageDto {
+    private List<UserDto> items;
+    // Cursor opaco para pedir la página siguiente (null si no hay más)
+    private String nextCursor;
+}
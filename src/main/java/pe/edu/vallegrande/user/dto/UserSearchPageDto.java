@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados de la búsqueda de usuarios, ordenados por relevancia.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSearchPageDto {
+    private List<UserDto> items;
+    private int page;         // 0 = primera página
+    private int size;
+    private boolean hasMore;  // hay otra página (dentro del máximo de resultados)
+}
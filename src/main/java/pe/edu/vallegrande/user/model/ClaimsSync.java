@@ -0,0 +1,39 @@
+package pe.edu.vallegrande.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("claims_sync_queue")
+public class ClaimsSync {
+    @Id
+    @Column("firebase_uid")
+    private String firebaseUid;
+    // Sube con cada cambio de rol encolado: solo se quita de la cola la revisión que se aplicó
+    @Column("revision")
+    private Long revision;
+    @Column("status")
+    private String status;
+    @Column("attempts")
+    private Integer attempts;
+    @Column("next_attempt_at")
+    private Instant nextAttemptAt;
+    @Column("created_at")
+    private Instant createdAt;
+    @Column("last_error")
+    private String lastError;
+    // Rol actual en users al reclamar la fila (null si el usuario ya no existe)
+    @ReadOnlyProperty
+    @Column("role")
+    private List<String> role;
+}
@@ -0,0 +1,18 @@
+package pe.edu.vallegrande.user.model;
+
+import java.util.Locale;
+
+/**
+ * Forma canónica de los emails guardados en {@code users.email}: sin espacios y en minúsculas, como
+ * los guarda Firebase. Todas las escrituras y búsquedas pasan por aquí, de modo que el índice único
+ * {@code ux_users_email} y las comparaciones exactas no distinguen mayúsculas.
+ */
+public final class Emails {
+
+    private Emails() {
+    }
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
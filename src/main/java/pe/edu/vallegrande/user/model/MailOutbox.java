@@ -0,0 +1,37 @@
+package pe.edu.vallegrande.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("mail_outbox")
+public class MailOutbox {
+    @Id
+    private Long id;
+    @Column("recipient")
+    private String recipient;
+    @Column("subject")
+    private String subject;
+    @Column("body")
+    private String body;
+    @Column("status")
+    private String status;
+    @Column("attempts")
+    private Integer attempts;
+    @Column("next_attempt_at")
+    private Instant nextAttemptAt;
+    @Column("created_at")
+    private Instant createdAt;
+    @Column("sent_at")
+    private Instant sentAt;
+    @Column("last_error")
+    private String lastError;
+}
@@ -0,0 +1,43 @@
+package pe.edu.vallegrande.user.model;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Forma canónica de los roles guardados en {@code users.role} (text[] con índice GIN): en mayúsculas,
+ * sin espacios ni repetidos y en el orden recibido. Los filtros por rol comparan elementos exactos.
+ */
+public final class Roles {
+
+    public static final String USER = "USER";
+    public static final String ADMIN = "ADMIN";
+
+    private Roles() {
+    }
+
+    public static String normalize(String role) {
+        return role == null ? null : role.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static List<String> normalize(Collection<String> roles) {
+        if (roles == null) return null;
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String role : roles) {
+            String value = normalize(role);
+            if (value != null && !value.isEmpty()) normalized.add(value);
+        }
+        return List.copyOf(normalized);
+    }
+
+    /**
+     * Custom claims de Firebase para estos roles: {@code role} con el primero (USER si no hay ninguno),
+     * que es el que lee {@code RoleJwtAuthenticationConverter}.
+     */
+    public static Map<String, Object> claims(List<String> roles) {
+        return Map.of("role", roles == null || roles.isEmpty() ? USER : roles.get(0));
+    }
+}
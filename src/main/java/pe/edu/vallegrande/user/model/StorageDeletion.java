@@ -0,0 +1,31 @@
+package pe.edu.vallegrande.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("storage_deletion_queue")
+public class StorageDeletion {
+    @Id
+    private Long id;
+    @Column("object_path")
+    private String objectPath;
+    @Column("status")
+    private String status;
+    @Column("attempts")
+    private Integer attempts;
+    @Column("next_attempt_at")
+    private Instant nextAttemptAt;
+    @Column("created_at")
+    private Instant createdAt;
+    @Column("last_error")
+    private String lastError;
+}
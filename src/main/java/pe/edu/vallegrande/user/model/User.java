@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -36,4 +37,8 @@ public class User {
     private List<String> role;
     @Column("profile_image")
     private String profileImage;
+    // Concurrencia optimista: null = entidad nueva (INSERT); al guardar se exige la misma versión de la BD
+    @Version
+    @Column("version")
+    private Long version;
 }
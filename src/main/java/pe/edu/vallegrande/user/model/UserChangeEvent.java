@@ -0,0 +1,38 @@
+package pe.edu.vallegrande.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("user_change_events")
+public class UserChangeEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    @Id
+    @Column("event_offset")
+    private Long offset;
+    @Column("user_id")
+    private Integer userId;
+    @Column("firebase_uid")
+    private String firebaseUid;
+    @Column("type")
+    private String type;
+    // UserDto del usuario tras el cambio (antes de borrarlo en DELETED), en JSON
+    @Column("payload")
+    private String payload;
+    @Column("created_at")
+    private Instant createdAt;
+}
@@ -0,0 +1,45 @@
+package pe.edu.vallegrande.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("user_creation_requests")
+public class UserCreationRequest {
+
+    public static final String STARTED = "STARTED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @Column("idempotency_key")
+    private String idempotencyKey;
+    @Column("request_hash")
+    private String requestHash;
+    @Column("email")
+    private String email;
+    @Column("firebase_uid")
+    private String firebaseUid;
+    @Column("status")
+    private String status;
+    @Column("step")
+    private String step;
+    @Column("profile_image")
+    private String profileImage;
+    @Column("user_id")
+    private Integer userId;
+    @Column("error")
+    private String error;
+    @Column("created_at")
+    private Instant createdAt;
+    @Column("updated_at")
+    private Instant updatedAt;
+}
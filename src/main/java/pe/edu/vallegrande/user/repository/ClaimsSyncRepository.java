@@ -0,0 +1,68 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user.model.ClaimsSync;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ClaimsSyncRepository extends ReactiveCrudRepository<ClaimsSync, String> {
+
+    // Encola varios UIDs en una sola sentencia; si ya estaban, se agrupan en la misma fila con una revisión nueva
+    @Modifying
+    @Query("""
+            INSERT INTO claims_sync_queue (firebase_uid)
+            SELECT DISTINCT unnest(CAST(:uids AS text[]))
+            ON CONFLICT (firebase_uid) DO UPDATE
+            SET revision = claims_sync_queue.revision + 1, status = 'PENDING', attempts = 0,
+                next_attempt_at = now(), last_error = NULL,
+                created_at = CASE WHEN claims_sync_queue.status = 'FAILED' THEN now() ELSE claims_sync_queue.created_at END
+            """)
+    Mono<Integer> enqueue(String[] uids);
+
+    // Reclama un lote vencido (SKIP LOCKED) con "lease", junto con el rol actual de cada usuario
+    @Query("""
+            WITH claimed AS (
+                UPDATE claims_sync_queue SET next_attempt_at = now() + make_interval(secs => :leaseSeconds)
+                WHERE firebase_uid IN (SELECT firebase_uid FROM claims_sync_queue
+                                       WHERE status = 'PENDING' AND next_attempt_at <= now()
+                                       ORDER BY next_attempt_at
+                                       LIMIT :limit
+                                       FOR UPDATE SKIP LOCKED)
+                RETURNING *)
+            SELECT claimed.*, u.role FROM claimed LEFT JOIN users u ON u.firebase_uid = claimed.firebase_uid
+            """)
+    Flux<ClaimsSync> claimBatch(int limit, long leaseSeconds);
+
+    // Quita los UIDs aplicados, salvo los que se volvieron a encolar mientras tanto (revisión distinta)
+    @Modifying
+    @Query("""
+            DELETE FROM claims_sync_queue q
+            USING unnest(CAST(:uids AS text[]), CAST(:revisions AS bigint[])) AS done(firebase_uid, revision)
+            WHERE q.firebase_uid = done.firebase_uid AND q.revision = done.revision
+            """)
+    Mono<Integer> removeDone(String[] uids, Long[] revisions);
+
+    // Reintento con backoff exponencial por fila (initial * 2^intentos, tope max); al agotar los intentos queda en FAILED
+    @Modifying
+    @Query("""
+            UPDATE claims_sync_queue q
+            SET attempts = q.attempts + 1,
+                status = CASE WHEN q.attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END,
+                next_attempt_at = now() + make_interval(secs => LEAST(:initialBackoffSeconds * power(2, q.attempts), :maxBackoffSeconds)),
+                last_error = failed.error
+            FROM unnest(CAST(:uids AS text[]), CAST(:revisions AS bigint[]), CAST(:errors AS text[]))
+                 AS failed(firebase_uid, revision, error)
+            WHERE q.firebase_uid = failed.firebase_uid AND q.revision = failed.revision
+            """)
+    Mono<Integer> markForRetry(String[] uids, Long[] revisions, String[] errors, long initialBackoffSeconds,
+                               long maxBackoffSeconds, int maxAttempts);
+
+    @Query("SELECT count(*) FROM claims_sync_queue WHERE status = 'PENDING'")
+    Mono<Long> countPending();
+
+    // Antigüedad (segundos) del cambio de rol pendiente más antiguo
+    @Query("SELECT COALESCE(EXTRACT(EPOCH FROM now() - min(created_at)), 0)::float8 FROM claims_sync_queue WHERE status = 'PENDING'")
+    Mono<Double> oldestPendingAgeSeconds();
+}
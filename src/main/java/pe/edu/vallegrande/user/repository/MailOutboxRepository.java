@@ -0,0 +1,59 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user.model.MailOutbox;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface MailOutboxRepository extends ReactiveCrudRepository<MailOutbox, Long> {
+
+    // Reclama un lote de correos vencidos (SKIP LOCKED: varias instancias no toman los mismos).
+    // Los reclamados quedan en SENDING con un "lease"; si la instancia cae, vuelven a estar disponibles.
+    @Query("""
+            UPDATE mail_outbox SET status = 'SENDING', next_attempt_at = now() + make_interval(secs => :leaseSeconds)
+            WHERE id IN (SELECT id FROM mail_outbox
+                         WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= now()
+                         ORDER BY next_attempt_at
+                         LIMIT :limit
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """)
+    Flux<MailOutbox> claimBatch(int limit, long leaseSeconds);
+
+    // Enviado: se vacía el cuerpo, que puede llevar un enlace de restablecimiento de contraseña aún válido
+    @Modifying
+    @Query("UPDATE mail_outbox SET status = 'SENT', sent_at = now(), body = '', last_error = NULL WHERE id IN (:ids)")
+    Mono<Integer> markSent(Collection<Long> ids);
+
+    // Reintento con backoff; al agotar los intentos queda en FAILED (y sin cuerpo, como los enviados)
+    @Modifying
+    @Query("""
+            UPDATE mail_outbox
+            SET attempts = attempts + 1,
+                status = CASE WHEN attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END,
+                body = CASE WHEN attempts + 1 >= :maxAttempts THEN '' ELSE body END,
+                next_attempt_at = now() + make_interval(secs => :delaySeconds),
+                last_error = :error
+            WHERE id = :id
+            """)
+    Mono<Integer> markForRetry(Long id, String error, long delaySeconds, int maxAttempts);
+
+    // Purga de correos terminados (ix_mail_outbox_finished)
+    @Modifying
+    @Query("""
+            DELETE FROM mail_outbox
+            WHERE status IN ('SENT', 'FAILED') AND created_at < now() - make_interval(secs => :retentionSeconds)
+            """)
+    Mono<Integer> purgeFinished(long retentionSeconds);
+
+    @Query("SELECT count(*) FROM mail_outbox WHERE status IN ('PENDING', 'SENDING')")
+    Mono<Long> countPending();
+
+    // Antigüedad (segundos) del correo pendiente más antiguo
+    @Query("SELECT COALESCE(EXTRACT(EPOCH FROM now() - min(created_at)), 0)::float8 FROM mail_outbox WHERE status IN ('PENDING', 'SENDING')")
+    Mono<Double> oldestPendingAgeSeconds();
+}
@@ -0,0 +1,59 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user.model.StorageDeletion;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface StorageDeletionRepository extends ReactiveCrudRepository<StorageDeletion, Long> {
+
+    // Encola varias rutas en una sola sentencia; las que ya están pendientes se ignoran
+    @Modifying
+    @Query("""
+            INSERT INTO storage_deletion_queue (object_path)
+            SELECT unnest(CAST(:paths AS text[]))
+            ON CONFLICT (object_path) WHERE status IN ('PENDING', 'DELETING') DO NOTHING
+            """)
+    Mono<Integer> enqueue(String[] paths);
+
+    // Reclama un lote vencido (SKIP LOCKED: varias instancias no toman las mismas filas), con "lease"
+    @Query("""
+            UPDATE storage_deletion_queue SET status = 'DELETING', next_attempt_at = now() + make_interval(secs => :leaseSeconds)
+            WHERE id IN (SELECT id FROM storage_deletion_queue
+                         WHERE status IN ('PENDING', 'DELETING') AND next_attempt_at <= now()
+                         ORDER BY next_attempt_at
+                         LIMIT :limit
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """)
+    Flux<StorageDeletion> claimBatch(int limit, long leaseSeconds);
+
+    // Los borrados completados salen de la cola (el histórico queda en las métricas)
+    @Modifying
+    @Query("DELETE FROM storage_deletion_queue WHERE id IN (:ids)")
+    Mono<Integer> removeDone(Collection<Long> ids);
+
+    // Reintento con backoff exponencial por fila (initial * 2^intentos, tope max); al agotar los intentos queda en FAILED
+    @Modifying
+    @Query("""
+            UPDATE storage_deletion_queue
+            SET attempts = attempts + 1,
+                status = CASE WHEN attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END,
+                next_attempt_at = now() + make_interval(secs => LEAST(:initialBackoffSeconds * power(2, attempts), :maxBackoffSeconds)),
+                last_error = :error
+            WHERE id IN (:ids)
+            """)
+    Mono<Integer> markForRetry(Collection<Long> ids, String error, long initialBackoffSeconds,
+                               long maxBackoffSeconds, int maxAttempts);
+
+    @Query("SELECT count(*) FROM storage_deletion_queue WHERE status IN ('PENDING', 'DELETING')")
+    Mono<Long> countPending();
+
+    // Antigüedad (segundos) del borrado pendiente más antiguo
+    @Query("SELECT COALESCE(EXTRACT(EPOCH FROM now() - min(created_at)), 0)::float8 FROM storage_deletion_queue WHERE status IN ('PENDING', 'DELETING')")
+    Mono<Double> oldestPendingAgeSeconds();
+}
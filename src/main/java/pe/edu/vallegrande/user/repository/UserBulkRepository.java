@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.user.repository;
+
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Escrituras masivas sobre users (importación de usuarios).
+ */
+public interface UserBulkRepository {
+
+    /**
+     * Inserta todas las filas con una sola sentencia {@code INSERT ... VALUES (...), (...)}.
+     * Las que chocan con un índice único (email o UID ya existentes) se omiten.
+     *
+     * @return las filas insertadas, con su id
+     */
+    Flux<User> insertAll(List<User> users);
+}
@@ -0,0 +1,53 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public class UserBulkRepositoryImpl implements UserBulkRepository {
+
+    private static final String[] COLUMNS = {"firebase_uid", "name", "last_name", "document_type",
+            "document_number", "cell_phone", "email", "password", "role", "profile_image"};
+    private static final int ROLE_COLUMN = 8; // text[]
+
+    private final R2dbcEntityTemplate template;
+
+    public UserBulkRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<User> insertAll(List<User> users) {
+        if (users.isEmpty()) return Flux.empty();
+
+        // Postgres admite hasta 65535 parámetros por sentencia: 1000 filas × 10 columnas caben de sobra
+        StringBuilder sql = new StringBuilder("INSERT INTO users (").append(String.join(", ", COLUMNS)).append(") VALUES ");
+        for (int row = 0; row < users.size(); row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (column > 0) sql.append(", ");
+                sql.append('$').append(row * COLUMNS.length + column + 1);
+            }
+            sql.append(')');
+        }
+        sql.append(" ON CONFLICT DO NOTHING RETURNING *");
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+        for (int row = 0; row < users.size(); row++) {
+            User user = users.get(row);
+            Object[] values = {user.getFirebaseUid(), user.getName(), user.getLastName(), user.getDocumentType(),
+                    user.getDocumentNumber(), user.getCellPhone(), user.getEmail(), user.getPassword(),
+                    user.getRole() == null ? null : user.getRole().toArray(String[]::new), user.getProfileImage()};
+            for (int column = 0; column < values.length; column++) {
+                int index = row * COLUMNS.length + column;
+                spec = values[column] == null
+                        ? spec.bindNull(index, column == ROLE_COLUMN ? String[].class : String.class)
+                        : spec.bind(index, values[column]);
+            }
+        }
+        return spec.map((row, metadata) -> template.getConverter().read(User.class, row, metadata)).all();
+    }
+}
@@ -0,0 +1,60 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface UserChangeEventRepository extends ReactiveCrudRepository<UserChangeEvent, Long> {
+
+    String CHANNEL = "user_change_events";
+
+    // Inserta los eventos (en el orden recibido) y avisa por NOTIFY, que Postgres entrega al hacer commit.
+    // El advisory lock se mantiene hasta el commit: ninguna otra transacción toma un offset mientras tanto,
+    // de modo que los offsets se hacen visibles en orden. Debe ser la última sentencia de la transacción.
+    @Query("""
+            WITH advisory AS (SELECT pg_advisory_xact_lock(hashtext('user_change_events'))),
+            inserted AS (
+                INSERT INTO user_change_events (user_id, firebase_uid, type, payload)
+                SELECT e.user_id, e.firebase_uid, :type, CAST(e.payload AS jsonb)
+                FROM advisory, unnest(CAST(:userIds AS int[]), CAST(:firebaseUids AS text[]), CAST(:payloads AS text[]))
+                     WITH ORDINALITY AS e(user_id, firebase_uid, payload, n)
+                ORDER BY e.n
+                RETURNING event_offset),
+            notified AS (SELECT pg_notify('user_change_events', max(event_offset)::text) FROM inserted)
+            SELECT max(event_offset) FROM inserted, notified
+            """)
+    Mono<Long> append(String type, Integer[] userIds, String[] firebaseUids, String[] payloads);
+
+    @Query("""
+            SELECT event_offset, user_id, firebase_uid, type, payload::text AS payload, created_at
+            FROM user_change_events
+            WHERE event_offset > :after
+            ORDER BY event_offset
+            LIMIT :limit
+            """)
+    Flux<UserChangeEvent> findAfter(long after, int limit);
+
+    @Query("SELECT COALESCE(max(event_offset), 0) FROM user_change_events")
+    Mono<Long> lastOffset();
+
+    // Primer offset que aún se sirve. Con la tabla vacía (todo borrado por antigüedad) es el siguiente que dará la
+    // secuencia, no 0: así quien se quedó atrás de lo borrado sigue detectándolo
+    @Query("""
+            SELECT COALESCE(min(event_offset), COALESCE(pg_sequence_last_value(
+                       CAST(pg_get_serial_sequence('user_change_events', 'event_offset') AS regclass)), 0) + 1)
+            FROM user_change_events
+            """)
+    Mono<Long> firstOffset();
+
+    // Borra siempre un prefijo de offsets (nunca deja huecos en medio del historial que aún se sirve)
+    @Modifying
+    @Query("""
+            DELETE FROM user_change_events
+            WHERE event_offset <= (SELECT max(event_offset) FROM user_change_events
+                                   WHERE created_at < now() - make_interval(secs => :retentionSeconds))
+            """)
+    Mono<Integer> deleteOlderThan(long retentionSeconds);
+}
@@ -0,0 +1,72 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user.model.UserCreationRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface UserCreationRequestRepository extends ReactiveCrudRepository<UserCreationRequest, String> {
+
+    // Reserva clave y email en una sola sentencia: 0 filas si la clave ya existe, si el email tiene otra alta
+    // en curso (ux_user_creation_email_started) o si ya es de un usuario
+    @Modifying
+    @Query("""
+            INSERT INTO user_creation_requests (idempotency_key, request_hash, email, firebase_uid)
+            SELECT :key, :requestHash, :email, :firebaseUid
+            WHERE NOT EXISTS (SELECT 1 FROM users WHERE email = :email)
+            ON CONFLICT DO NOTHING
+            """)
+    Mono<Integer> reserve(String key, String requestHash, String email, String firebaseUid);
+
+    @Modifying
+    @Query("UPDATE user_creation_requests SET step = :step, updated_at = now() WHERE idempotency_key = :key AND status = 'STARTED'")
+    Mono<Integer> markStep(String key, String step);
+
+    @Modifying
+    @Query("""
+            UPDATE user_creation_requests SET step = 'IMAGE_UPLOADED', profile_image = :profileImage, updated_at = now()
+            WHERE idempotency_key = :key AND status = 'STARTED'
+            """)
+    Mono<Integer> markImageUploaded(String key, String profileImage);
+
+    @Modifying
+    @Query("""
+            UPDATE user_creation_requests SET status = 'COMPLETED', step = 'COMPLETED', user_id = :userId, updated_at = now()
+            WHERE idempotency_key = :key AND status = 'STARTED'
+            """)
+    Mono<Integer> complete(String key, Integer userId);
+
+    @Modifying
+    @Query("""
+            UPDATE user_creation_requests SET status = 'FAILED', error = :error, updated_at = now()
+            WHERE idempotency_key = :key AND status = 'STARTED'
+            """)
+    Mono<Integer> fail(String key, String error);
+
+    // Un alta fallida (ya compensada) no bloquea su clave: el reintento empieza de cero
+    @Modifying
+    @Query("DELETE FROM user_creation_requests WHERE idempotency_key = :key AND status = 'FAILED'")
+    Mono<Integer> deleteFailed(String key);
+
+    // Altas en curso sin avance desde hace staleSeconds (la instancia cayó a mitad); el "lease" evita
+    // que dos instancias compensen la misma
+    @Query("""
+            UPDATE user_creation_requests SET updated_at = now()
+            WHERE idempotency_key IN (SELECT idempotency_key FROM user_creation_requests
+                                      WHERE status = 'STARTED' AND updated_at < now() - make_interval(secs => :staleSeconds)
+                                      ORDER BY updated_at
+                                      LIMIT :limit
+                                      FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """)
+    Flux<UserCreationRequest> claimStale(long staleSeconds, int limit);
+
+    @Modifying
+    @Query("""
+            DELETE FROM user_creation_requests
+            WHERE status <> 'STARTED' AND created_at < now() - make_interval(secs => :retentionSeconds)
+            """)
+    Mono<Integer> purgeFinished(long retentionSeconds);
+}
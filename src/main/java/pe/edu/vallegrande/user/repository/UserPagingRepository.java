@@ -0,0 +1,29 @@
+package pe.edu.vallegrande.user.repository;
+
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Flux;
+
+/**
+ * Consultas de listado sobre users que no se pueden derivar del nombre del método.
+ */
+public interface UserPagingRepository {
+
+    /**
+     * Página por keyset (cursor): filas posteriores a ({@code afterValue}, {@code afterId})
+     * según la columna de orden, sin OFFSET.
+     *
+     * @param sortColumn columna de orden (ya validada)
+     * @param descending orden descendente
+     * @param afterValue valor de la columna de orden de la última fila vista (null = primera página)
+     * @param afterId    id de la última fila vista (null = primera página)
+     * @param role       solo usuarios con este rol, ya normalizado (null = todos; índice GIN ix_users_role)
+     * @param limit      filas a devolver
+     */
+    Flux<User> findPage(String sortColumn, boolean descending, String afterValue, Integer afterId, String role, int limit);
+
+    /**
+     * Recorre toda la tabla por id con un cursor del driver ({@code fetchSize}),
+     * respetando la contrapresión del suscriptor.
+     */
+    Flux<User> streamAll(int fetchSize);
+}
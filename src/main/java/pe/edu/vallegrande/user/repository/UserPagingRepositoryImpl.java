@@ -0,0 +1,69 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserPagingRepositoryImpl implements UserPagingRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    public UserPagingRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<User> findPage(String sortColumn, boolean descending, String afterValue, Integer afterId, String role, int limit) {
+        String direction = descending ? "DESC" : "ASC";
+        String comparator = descending ? "<" : ">";
+        boolean byId = "id".equals(sortColumn);
+        // Los NULL se ordenan como cadena vacía para que el cursor sea estable. Cada columna tiene su índice
+        // sobre esta misma expresión (V013__users_sort_indexes.sql): una columna nueva necesita el suyo
+        String sortKey = byId ? "id" : "COALESCE(" + sortColumn + ", '')";
+
+        List<String> conditions = new ArrayList<>();
+        if (afterId != null) {
+            conditions.add(byId
+                    ? "id " + comparator + " :afterId"
+                    : "(" + sortKey + ", id) " + comparator + " (:afterValue, :afterId)");
+        }
+        if (role != null) {
+            conditions.add("role @> ARRAY[CAST(:role AS text)]");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM users");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(sortKey).append(' ').append(direction);
+        if (!byId) {
+            sql.append(", id ").append(direction);
+        }
+        sql.append(" LIMIT :limit");
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString())
+                .bind("limit", limit);
+        if (afterId != null) {
+            spec = spec.bind("afterId", afterId);
+            if (!byId) {
+                spec = spec.bind("afterValue", afterValue == null ? "" : afterValue);
+            }
+        }
+        if (role != null) {
+            spec = spec.bind("role", role);
+        }
+        return spec.map((row, metadata) -> template.getConverter().read(User.class, row, metadata)).all();
+    }
+
+    @Override
+    public Flux<User> streamAll(int fetchSize) {
+        return template.getDatabaseClient().sql("SELECT * FROM users ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                .all();
+    }
+}
@@ -0,0 +1,48 @@
+package pe.edu.vallegrande.user.repository;
+
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ediciones parciales de users en una sola sentencia
+ * {@code UPDATE ... SET <columnas> WHERE ... AND version = ? RETURNING *}, sin leer antes la fila
+ * (un único round trip también cuando no hay nada que cambiar o la versión no coincide).
+ * <ul>
+ *     <li>Solo se escriben las columnas indicadas y solo si alguna cambia: una edición sin cambios
+ *     no genera una nueva versión de la fila en Postgres</li>
+ *     <li>Cada edición aplicada incrementa {@code version}</li>
+ *     <li>Con {@code expectedVersion} la edición falla con
+ *     {@link org.springframework.dao.OptimisticLockingFailureException} si otro la cambió antes</li>
+ * </ul>
+ */
+public interface UserPatchRepository {
+
+    // Columnas editables (id, firebase_uid y version no se modifican por esta vía)
+    Set<String> PATCHABLE_COLUMNS = Set.of("name", "last_name", "document_type", "document_number",
+            "cell_phone", "email", "password", "role", "profile_image");
+
+    /**
+     * @param changes columna → nuevo valor ({@code role} como lista); el orden no importa
+     * @return el resultado, o vacío si no existe un usuario con ese id
+     */
+    Mono<PatchResult> patchById(Integer id, Long expectedVersion, Map<String, Object> changes);
+
+    /**
+     * Igual que {@link #patchById} buscando por UID de Firebase (índice único ux_users_firebase_uid).
+     */
+    Mono<PatchResult> patchByFirebaseUid(String firebaseUid, Long expectedVersion, Map<String, Object> changes);
+
+    /**
+     * Fila tras la edición y los valores anteriores que necesita quien edita (caché por email,
+     * borrado de la foto anterior, cambio de rol).
+     *
+     * @param changed false si ningún valor era distinto y no se escribió nada
+     */
+    record PatchResult(User user, boolean changed, String previousEmail, String previousProfileImage,
+                       List<String> previousRole) {
+    }
+}
@@ -0,0 +1,122 @@
+package pe.edu.vallegrande.user.repository;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.user.model.Emails;
+import pe.edu.vallegrande.user.model.Roles;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class UserPatchRepositoryImpl implements UserPatchRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    public UserPatchRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Mono<PatchResult> patchById(Integer id, Long expectedVersion, Map<String, Object> changes) {
+        return patch("id", id, expectedVersion, changes);
+    }
+
+    @Override
+    public Mono<PatchResult> patchByFirebaseUid(String firebaseUid, Long expectedVersion, Map<String, Object> changes) {
+        return patch("firebase_uid", firebaseUid, expectedVersion, changes);
+    }
+
+    private Mono<PatchResult> patch(String keyColumn, Object key, Long expectedVersion, Map<String, Object> changes) {
+        List<String> columns = new ArrayList<>(changes.keySet());
+        for (String column : columns) {
+            if (!PATCHABLE_COLUMNS.contains(column)) {
+                return Mono.error(new IllegalArgumentException("Columna no editable: " + column));
+            }
+        }
+        if (columns.isEmpty()) {
+            return template.selectOne(Query.query(Criteria.where(keyColumn).is(key)), User.class)
+                    .map(current -> new PatchResult(current, false, current.getEmail(), current.getProfileImage(),
+                            current.getRole()))
+                    .flatMap(result -> checkVersion(result, expectedVersion));
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient()
+                .sql(patchSql(keyColumn, columns, expectedVersion != null))
+                .bind("key", key);
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            spec = bindValue(spec, "v" + i, columns.get(i), changes.get(columns.get(i)));
+        }
+        return spec.map(this::readPatched)
+                .one()
+                .flatMap(result -> checkVersion(result, expectedVersion));
+    }
+
+    /**
+     * Una sola sentencia en todos los casos: {@code previous} bloquea la fila y conserva los valores
+     * anteriores; si el UPDATE no escribe nada (sin cambios u otra versión) se devuelve la fila tal cual
+     * con {@code changed = false}. También lo usa el benchmark de ediciones.
+     */
+    static String patchSql(String keyColumn, List<String> columns, boolean checkVersion) {
+        StringBuilder set = new StringBuilder();
+        StringBuilder distinct = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            String value = "role".equals(columns.get(i)) ? "CAST(:v" + i + " AS text[])" : ":v" + i;
+            set.append(columns.get(i)).append(" = ").append(value).append(", ");
+            if (i > 0) distinct.append(" OR ");
+            distinct.append("u.").append(columns.get(i)).append(" IS DISTINCT FROM ").append(value);
+        }
+        return "WITH previous AS (SELECT * FROM users WHERE " + keyColumn + " = :key FOR UPDATE),"
+                + " updated AS (UPDATE users u SET " + set + "version = u.version + 1 FROM previous"
+                + " WHERE u.id = previous.id" + (checkVersion ? " AND u.version = :version" : "")
+                + " AND (" + distinct + ") RETURNING u.*)"
+                + " SELECT updated.*, true AS changed, previous.email AS previous_email,"
+                + " previous.profile_image AS previous_profile_image, previous.role AS previous_role"
+                + " FROM updated JOIN previous ON previous.id = updated.id"
+                + " UNION ALL"
+                + " SELECT previous.*, false, previous.email, previous.profile_image, previous.role"
+                + " FROM previous WHERE NOT EXISTS (SELECT 1 FROM updated)";
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindValue(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                               String column, Object value) {
+        if ("role".equals(column)) {
+            @SuppressWarnings("unchecked")
+            List<String> roles = Roles.normalize((List<String>) value);
+            return roles == null ? spec.bindNull(name, String[].class) : spec.bind(name, roles.toArray(String[]::new));
+        }
+        if ("email".equals(column) && value != null) {
+            return spec.bind(name, Emails.normalize((String) value));
+        }
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private PatchResult readPatched(Row row, RowMetadata metadata) {
+        String[] previousRole = row.get("previous_role", String[].class);
+        return new PatchResult(template.getConverter().read(User.class, row, metadata),
+                Boolean.TRUE.equals(row.get("changed", Boolean.class)),
+                row.get("previous_email", String.class), row.get("previous_profile_image", String.class),
+                previousRole == null ? null : Arrays.asList(previousRole));
+    }
+
+    // Sin escribir y con otra versión: alguien editó la fila después de que el cliente la leyera
+    private static Mono<PatchResult> checkVersion(PatchResult result, Long expectedVersion) {
+        if (result.changed() || expectedVersion == null || expectedVersion.equals(result.user().getVersion())) {
+            return Mono.just(result);
+        }
+        return Mono.error(new OptimisticLockingFailureException("El usuario " + result.user().getId()
+                + " fue modificado por otra petición (versión " + result.user().getVersion()
+                + ", se esperaba " + expectedVersion + ")"));
+    }
+}
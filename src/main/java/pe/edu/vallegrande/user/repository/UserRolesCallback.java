@@ -0,0 +1,23 @@
+package pe.edu.vallegrande.user.repository;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user.model.Roles;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Mono;
+
+/**
+ * Normaliza los roles antes de cada {@code save} de un {@link User}, para que {@code users.role}
+ * siempre esté en la forma que esperan los filtros por rol ({@link Roles}).
+ */
+@Component
+public class UserRolesCallback implements BeforeConvertCallback<User> {
+
+    @Override
+    public Publisher<User> onBeforeConvert(User user, SqlIdentifier table) {
+        user.setRole(Roles.normalize(user.getRole()));
+        return Mono.just(user);
+    }
+}
@@ -0,0 +1,25 @@
+package pe.edu.vallegrande.user.repository;
+
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Búsqueda de usuarios por varios campos para el panel de administración.
+ */
+public interface UserSearchRepository {
+
+    /**
+     * Usuarios en los que cada término aparece en el nombre o el apellido, o es prefijo del documento
+     * o del celular (índices de trigramas de V005), ordenados por relevancia y después por id.
+     *
+     * @param terms  términos ya normalizados (sin vacíos)
+     * @param limit  filas a devolver
+     * @param offset filas a saltar
+     * @param budget tiempo máximo de la consulta en Postgres ({@code statement_timeout}); si se supera
+     *               termina con {@link java.util.concurrent.TimeoutException}
+     */
+    Flux<User> search(List<String> terms, int limit, int offset, Duration budget);
+}
@@ -0,0 +1,90 @@
+package pe.edu.vallegrande.user.repository;
+
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+public class UserSearchRepositoryImpl implements UserSearchRepository {
+
+    private static final String QUERY_CANCELED = "57014"; // statement_timeout superado
+
+    private final R2dbcEntityTemplate template;
+    private final TransactionalOperator transactionalOperator;
+
+    public UserSearchRepositoryImpl(R2dbcEntityTemplate template, TransactionalOperator transactionalOperator) {
+        this.template = template;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    @Override
+    public Flux<User> search(List<String> terms, int limit, int offset, Duration budget) {
+        DatabaseClient client = template.getDatabaseClient();
+        // SET LOCAL: el límite solo vale para esta transacción y no se queda en la conexión del pool
+        Flux<User> search = client.sql("SELECT set_config('statement_timeout', :timeout, true)")
+                .bind("timeout", Math.max(1, budget.toMillis()) + "ms")
+                .then()
+                .thenMany(bind(client.sql(searchSql(terms.size())), terms, limit, offset)
+                        .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                        .all());
+
+        return transactionalOperator.transactional(search)
+                .onErrorMap(UserSearchRepositoryImpl::isQueryCanceled,
+                        e -> new TimeoutException("La búsqueda superó " + budget.toMillis() + " ms"));
+    }
+
+    /**
+     * SQL de búsqueda para {@code termCount} términos (también lo usa el test de índices con EXPLAIN).
+     * Relevancia por término: similitud de palabra con nombre o apellido, 1 si coincide el documento
+     * o el celular completo y 0.5 si solo es prefijo.
+     */
+    static String searchSql(int termCount) {
+        StringBuilder rank = new StringBuilder();
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < termCount; i++) {
+            String term = ":t" + i, contains = ":c" + i, prefix = ":p" + i;
+            if (i > 0) {
+                rank.append(" + ");
+                where.append(" AND ");
+            }
+            rank.append("GREATEST(word_similarity(").append(term).append(", name), word_similarity(").append(term)
+                    .append(", last_name), CASE WHEN document_number = ").append(term).append(" OR cell_phone = ").append(term)
+                    .append(" THEN 1 WHEN document_number LIKE ").append(prefix).append(" OR cell_phone LIKE ").append(prefix)
+                    .append(" THEN 0.5 ELSE 0 END)");
+            where.append("(name ILIKE ").append(contains).append(" OR last_name ILIKE ").append(contains)
+                    .append(" OR document_number LIKE ").append(prefix).append(" OR cell_phone LIKE ").append(prefix).append(')');
+        }
+        return "SELECT * FROM (SELECT *, " + rank + " AS search_rank FROM users WHERE " + where + ") matches"
+                + " ORDER BY search_rank DESC, id LIMIT :limit OFFSET :offset";
+    }
+
+    static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, List<String> terms,
+                                                  int limit, int offset) {
+        spec = spec.bind("limit", limit).bind("offset", offset);
+        for (int i = 0; i < terms.size(); i++) {
+            String escaped = escapeLike(terms.get(i));
+            spec = spec.bind("t" + i, terms.get(i))
+                    .bind("c" + i, "%" + escaped + "%")
+                    .bind("p" + i, escaped + "%");
+        }
+        return spec;
+    }
+
+    // \ es el carácter de escape por defecto de LIKE en Postgres
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static boolean isQueryCanceled(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcException r2dbc && QUERY_CANCELED.equals(r2dbc.getSqlState())) return true;
+        }
+        return false;
+    }
+}
@@ -1,14 +1,39 @@
 package pe.edu.vallegrande.user.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user.dto.RoleCountDto;
 import pe.edu.vallegrande.user.model.User;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
 
-public interface UsersRepository extends ReactiveCrudRepository<User, Integer> {
+public interface UsersRepository extends ReactiveCrudRepository<User, Integer>, UserPagingRepository,
+        UserBulkRepository, UserSearchRepository, UserPatchRepository {
 
-    // Método para buscar un usuario por su correo electrónico
+    // Método para buscar un usuario por su correo electrónico (índice único ux_users_email)
     Mono<User> findByEmail(String email);
+
+    // Búsqueda por UID de Firebase (índice único ux_users_firebase_uid), usada en /api/users/me
     Mono<User> findByFirebaseUid(String firebaseUid);
 
+    // De las URLs dadas, las que siguen siendo foto de perfil de algún usuario (índice ix_users_profile_image)
+    @Query("SELECT DISTINCT profile_image FROM users WHERE profile_image = ANY(CAST(:urls AS text[]))")
+    Flux<String> findReferencedProfileImages(String[] urls);
+
+    // De los emails dados, los que ya están registrados (una sola consulta por lote de importación)
+    @Query("SELECT email FROM users WHERE email = ANY(CAST(:emails AS text[]))")
+    Flux<String> findExistingEmails(String[] emails);
+
+    // Usuarios de una página de cuentas de Firebase (índice único ux_users_firebase_uid), para comparar sus claims
+    @Query("SELECT * FROM users WHERE firebase_uid = ANY(CAST(:uids AS text[]))")
+    Flux<User> findAllByFirebaseUids(String[] uids);
+
+    // Usuarios con un rol (ya normalizado, p. ej. ADMIN); @> usa el índice GIN ix_users_role
+    @Query("SELECT count(*) FROM users WHERE role @> ARRAY[CAST(:role AS text)]")
+    Mono<Long> countByRole(String role);
+
+    // Usuarios por cada rol existente (recorre la tabla: para un solo rol usar countByRole)
+    @Query("SELECT r.role, count(*) AS total FROM users, unnest(users.role) AS r(role) GROUP BY r.role ORDER BY r.role")
+    Flux<RoleCountDto> countUsersByRole();
+
 }
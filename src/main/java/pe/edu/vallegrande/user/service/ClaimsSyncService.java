@@ -0,0 +1,45 @@
+package pe.edu.vallegrande.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.repository.ClaimsSyncRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encola UIDs cuyos custom claims de Firebase hay que alinear con {@code users.role} (claims_sync_queue).
+ * Varios cambios de rol del mismo usuario quedan en una sola fila; {@link ClaimsSyncWorker} aplica en
+ * segundo plano el rol vigente, con concurrencia y tasa limitadas.
+ */
+@Slf4j
+@Service
+public class ClaimsSyncService {
+
+    private final ClaimsSyncRepository claimsSyncRepository;
+
+    public ClaimsSyncService(ClaimsSyncRepository claimsSyncRepository) {
+        this.claimsSyncRepository = claimsSyncRepository;
+    }
+
+    /**
+     * 🔑 Encola el UID tras un cambio de rol. Un fallo al encolar no interrumpe la operación del usuario:
+     * la diferencia la detecta la reconciliación periódica.
+     */
+    public Mono<Void> syncLater(String firebaseUid) {
+        if (firebaseUid == null) return Mono.empty();
+        return enqueue(List.of(firebaseUid))
+                .onErrorResume(e -> {
+                    log.warn("⚠️ No se pudo encolar la sincronización de claims de {}: {}", firebaseUid, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Void> enqueue(Collection<String> firebaseUids) {
+        if (firebaseUids.isEmpty()) return Mono.empty();
+        return claimsSyncRepository.enqueue(firebaseUids.toArray(String[]::new))
+                .doOnNext(count -> log.info("🔑 {} usuario(s) encolados para sincronizar sus claims", count))
+                .then();
+    }
+}
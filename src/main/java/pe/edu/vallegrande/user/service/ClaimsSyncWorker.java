@@ -0,0 +1,238 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.model.ClaimsSync;
+import pe.edu.vallegrande.user.model.Roles;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.ClaimsSyncRepository;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Vacía en segundo plano la cola claims_sync_queue y detecta claims desalineados.
+ * <ul>
+ *     <li>Reclama lotes con {@code FOR UPDATE SKIP LOCKED} y aplica a cada UID el rol que tiene
+ *     <b>ahora</b> en users (los cambios intermedios ya están agrupados en la misma fila)</li>
+ *     <li>Como mucho {@code concurrency} llamadas a Firebase a la vez y {@code rate.capacity} por
+ *     {@code rate.period}, con el mismo {@link RateLimitStore} del rate limiting (con el backend
+ *     {@code postgres} el límite es global para todas las instancias)</li>
+ *     <li>Reintentos con backoff exponencial; tras {@code max-attempts} el UID queda en FAILED hasta que
+ *     otro cambio de rol o la reconciliación lo vuelvan a encolar</li>
+ *     <li>Reconciliación periódica: recorre {@code listUsers} por páginas, compara en bloque con users
+ *     y encola los UIDs cuyo claim {@code role} no coincide</li>
+ *     <li>Métricas: pendientes, antigüedad del más antiguo, claims aplicados, fallos y desalineados</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "firebase.claims-sync.worker.enabled", havingValue = "true", matchIfMissing = true)
+public class ClaimsSyncWorker {
+
+    static final String RATE_LIMIT_KEY = "firebase:set-custom-claims";
+
+    private final ClaimsSyncRepository claimsSyncRepository;
+    private final UsersRepository usersRepository;
+    private final FirebaseGateway firebaseGateway;
+    private final ClaimsSyncService claimsSyncService;
+    private final RateLimitStore rateLimitStore;
+    private final int batchSize;
+    private final int concurrency;
+    private final int rateCapacity;
+    private final Duration ratePeriod;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final int listPageSize;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter applied;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter drift;
+
+    public ClaimsSyncWorker(
+            ClaimsSyncRepository claimsSyncRepository,
+            UsersRepository usersRepository,
+            FirebaseGateway firebaseGateway,
+            ClaimsSyncService claimsSyncService,
+            RateLimitStore rateLimitStore,
+            MeterRegistry meterRegistry,
+            @Value("${firebase.claims-sync.batch-size:100}") int batchSize,
+            @Value("${firebase.claims-sync.concurrency:4}") int concurrency,
+            @Value("${firebase.claims-sync.rate.capacity:20}") int rateCapacity,
+            @Value("${firebase.claims-sync.rate.period:1s}") Duration ratePeriod,
+            @Value("${firebase.claims-sync.max-attempts:10}") int maxAttempts,
+            @Value("${firebase.claims-sync.initial-backoff:10s}") Duration initialBackoff,
+            @Value("${firebase.claims-sync.max-backoff:30m}") Duration maxBackoff,
+            @Value("${firebase.claims-sync.lease:2m}") Duration lease,
+            @Value("${firebase.claims-sync.reconcile.page-size:1000}") int listPageSize
+    ) {
+        this.claimsSyncRepository = claimsSyncRepository;
+        this.usersRepository = usersRepository;
+        this.firebaseGateway = firebaseGateway;
+        this.claimsSyncService = claimsSyncService;
+        this.rateLimitStore = rateLimitStore;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.rateCapacity = rateCapacity;
+        this.ratePeriod = ratePeriod;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.listPageSize = Math.min(listPageSize, FirebaseGateway.MAX_LIST_PAGE_SIZE);
+
+        Gauge.builder("claims.sync.pending", pending, AtomicLong::get)
+                .description("Usuarios con custom claims pendientes de sincronizar en Firebase")
+                .register(meterRegistry);
+        Gauge.builder("claims.sync.lag", lagSeconds, AtomicLong::get)
+                .description("Antigüedad del cambio de rol pendiente más antiguo")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.applied = Counter.builder("claims.sync.applied")
+                .description("Custom claims aplicados en Firebase")
+                .register(meterRegistry);
+        this.retried = Counter.builder("claims.sync.failed").tag("final", "false").register(meterRegistry);
+        this.failed = Counter.builder("claims.sync.failed").tag("final", "true").register(meterRegistry);
+        this.drift = Counter.builder("claims.sync.drift")
+                .description("Usuarios con claims desalineados encontrados por la reconciliación")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 🔁 Ciclo de sincronización: reclama un lote, aplica los claims y guarda el resultado en dos sentencias
+     */
+    @Scheduled(fixedDelayString = "${firebase.claims-sync.poll-interval-ms:2000}")
+    public Mono<Void> drain() {
+        return claimsSyncRepository.claimBatch(batchSize, lease.toSeconds())
+                .flatMap(this::apply, concurrency)
+                .collectList()
+                .flatMap(this::saveOutcomes)
+                .then(refreshQueueMetrics())
+                .onErrorResume(e -> {
+                    log.error("❌ Error en el ciclo de sincronización de claims", e);
+                    return Mono.empty();
+                });
+    }
+
+    // Resultado de un UID: error == null si quedó sincronizado
+    private record Outcome(ClaimsSync task, String error) {
+    }
+
+    Mono<Outcome> apply(ClaimsSync task) {
+        // El usuario ya no existe: no hay nada que sincronizar
+        if (task.getRole() == null) return Mono.just(new Outcome(task, null));
+        return acquirePermit()
+                .then(firebaseGateway.setCustomUserClaims(task.getFirebaseUid(), Roles.claims(task.getRole())))
+                .doOnSuccess(ignored -> applied.increment())
+                .thenReturn(new Outcome(task, null))
+                .onErrorResume(e -> Mono.just(new Outcome(task, String.valueOf(e.getMessage()))));
+    }
+
+    // Espera a que el bucket compartido de Firebase tenga un token
+    private Mono<Void> acquirePermit() {
+        return rateLimitStore.tryAcquire(RATE_LIMIT_KEY, rateCapacity, ratePeriod)
+                .flatMap(wait -> wait.isZero()
+                        ? Mono.<Void>empty()
+                        : Mono.delay(wait).then(Mono.defer(this::acquirePermit)));
+    }
+
+    private Mono<Void> saveOutcomes(List<Outcome> outcomes) {
+        List<ClaimsSync> done = outcomes.stream().filter(outcome -> outcome.error() == null).map(Outcome::task).toList();
+        List<Outcome> errors = outcomes.stream().filter(outcome -> outcome.error() != null).toList();
+
+        Mono<Integer> removal = done.isEmpty() ? Mono.empty() : claimsSyncRepository.removeDone(
+                done.stream().map(ClaimsSync::getFirebaseUid).toArray(String[]::new),
+                done.stream().map(ClaimsSync::getRevision).toArray(Long[]::new));
+        return removal.then(errors.isEmpty() ? Mono.empty() : scheduleRetry(errors));
+    }
+
+    private Mono<Void> scheduleRetry(List<Outcome> errors) {
+        long exhausted = errors.stream().filter(outcome -> outcome.task().getAttempts() + 1 >= maxAttempts).count();
+        failed.increment(exhausted);
+        retried.increment(errors.size() - exhausted);
+        log.warn("⚠️ Falló la sincronización de claims de {} usuario(s) ({} sin más reintentos): {}",
+                errors.size(), exhausted, errors.get(0).error());
+        return claimsSyncRepository.markForRetry(
+                        errors.stream().map(outcome -> outcome.task().getFirebaseUid()).toArray(String[]::new),
+                        errors.stream().map(outcome -> outcome.task().getRevision()).toArray(Long[]::new),
+                        errors.stream().map(Outcome::error).toArray(String[]::new),
+                        initialBackoff.toSeconds(), maxBackoff.toSeconds(), maxAttempts)
+                .then();
+    }
+
+    /**
+     * 🔍 Reconciliación: encola los usuarios cuyo claim {@code role} en Firebase no coincide con users
+     */
+    @Scheduled(initialDelayString = "${firebase.claims-sync.reconcile.initial-delay-ms:120000}",
+            fixedDelayString = "${firebase.claims-sync.reconcile.interval-ms:21600000}")
+    public Mono<Void> reconcile() {
+        AtomicInteger scanned = new AtomicInteger();
+        AtomicInteger found = new AtomicInteger();
+        return firebaseGateway.listUsers(null, listPageSize)
+                .expand(page -> page.nextPageToken() == null
+                        ? Mono.empty()
+                        : firebaseGateway.listUsers(page.nextPageToken(), listPageSize))
+                .concatMap(page -> {
+                    scanned.addAndGet(page.users().size());
+                    return findDrift(page);
+                })
+                .concatMap(uids -> {
+                    found.addAndGet(uids.size());
+                    drift.increment(uids.size());
+                    return claimsSyncService.enqueue(uids);
+                })
+                .then(Mono.fromRunnable(() -> log.info("🔍 Reconciliación de claims: {} cuenta(s) revisadas, {} desalineada(s)",
+                        scanned.get(), found.get())))
+                .onErrorResume(e -> {
+                    log.error("❌ Error en la reconciliación de claims", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // De una página de cuentas, los UIDs cuyo claim no es el que corresponde a su rol en users (una consulta)
+    private Mono<List<String>> findDrift(FirebaseGateway.UserClaimsPage page) {
+        if (page.users().isEmpty()) return Mono.just(List.of());
+        Map<String, Object> claimedRoleByUid = page.users().stream()
+                .collect(Collectors.toMap(FirebaseGateway.UserClaims::uid,
+                        account -> Objects.requireNonNullElse(account.claims(), Map.<String, Object>of())
+                                .getOrDefault("role", ""),
+                        (a, b) -> a));
+        // Las cuentas sin fila en users (p. ej. un alta a medias) las resuelve UserCreationRecoveryWorker
+        return usersRepository.findAllByFirebaseUids(claimedRoleByUid.keySet().toArray(String[]::new))
+                .filter(user -> !Objects.equals(expectedRole(user), claimedRoleByUid.get(user.getFirebaseUid())))
+                .map(User::getFirebaseUid)
+                .collectList();
+    }
+
+    private static Object expectedRole(User user) {
+        return Roles.claims(user.getRole()).get("role");
+    }
+
+    private Mono<Void> refreshQueueMetrics() {
+        return Mono.zip(claimsSyncRepository.countPending(), claimsSyncRepository.oldestPendingAgeSeconds())
+                .doOnNext(stats -> {
+                    pending.set(stats.getT1());
+                    lagSeconds.set(stats.getT2().longValue());
+                })
+                .then();
+    }
+}
@@ -1,30 +1,42 @@
 package pe.edu.vallegrande.user.service;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.model.MailOutbox;
+import pe.edu.vallegrande.user.repository.MailOutboxRepository;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+
+/**
+ * Encola correos en la bandeja de salida (mail_outbox).
+ * El envío SMTP real lo hace {@link MailOutboxDispatcher} en segundo plano.
+ */
+@Slf4j
 @Service
 public class EmailService {
 
-    @Autowired
-    private JavaMailSender mailSender;
-
-    public void sendResetLink(String to, String resetLink) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("🔒 Restablece tu contraseña");
-        message.setText("Hola,\n\nHaz clic en el siguiente enlace para restablecer tu contraseña:\n\n" + resetLink + "\n\nSi no solicitaste esto, ignora este mensaje.");
+    private final MailOutboxRepository outboxRepository;
 
-        String senderEmail = ((JavaMailSenderImpl) mailSender).getUsername();
+    public EmailService(MailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
 
-        System.out.println("📧 Enviando desde: " + senderEmail);
-        System.out.println("📨 Enviando a: " + to);
-        System.out.println("🔗 Link: " + resetLink);
+    /**
+     * ✉️ Encola el correo de restablecimiento de contraseña (no espera al SMTP)
+     */
+    public Mono<Void> sendResetLink(String to, String resetLink) {
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(to);
+        mail.setSubject("🔒 Restablece tu contraseña");
+        mail.setBody("Hola,\n\nHaz clic en el siguiente enlace para restablecer tu contraseña:\n\n" + resetLink + "\n\nSi no solicitaste esto, ignora este mensaje.");
+        mail.setStatus("PENDING");
+        mail.setAttempts(0);
+        mail.setCreatedAt(Instant.now());
+        mail.setNextAttemptAt(mail.getCreatedAt());
 
-        mailSender.send(message);
-        System.out.println("✅ Correo enviado correctamente.");
+        return outboxRepository.save(mail)
+                .doOnNext(saved -> log.info("📨 Correo #{} encolado para: {}", saved.getId(), to))
+                .then();
     }
 }
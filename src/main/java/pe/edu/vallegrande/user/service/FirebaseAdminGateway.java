@@ -0,0 +1,167 @@
+package pe.edu.vallegrande.user.service;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.EmailIdentifier;
+import com.google.firebase.auth.ErrorInfo;
+import com.google.firebase.auth.ExportedUserRecord;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.ImportUserRecord;
+import com.google.firebase.auth.ListUsersPage;
+import com.google.firebase.auth.UserImportOptions;
+import com.google.firebase.auth.UserIdentifier;
+import com.google.firebase.auth.UserImportResult;
+import com.google.firebase.auth.UserRecord;
+import com.google.firebase.auth.hash.Bcrypt;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación real de {@link FirebaseGateway} sobre el Firebase Admin SDK.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "firebase.gateway.mode", havingValue = "admin", matchIfMissing = true)
+public class FirebaseAdminGateway implements FirebaseGateway {
+
+    private final FirebaseExecutionLane lane;
+    private final ObjectProvider<FirebaseAuth> firebaseAuth;
+    private final ObjectProvider<GoogleCredentials> credentials;
+
+    public FirebaseAdminGateway(FirebaseExecutionLane lane, ObjectProvider<FirebaseAuth> firebaseAuth,
+                                ObjectProvider<GoogleCredentials> credentials) {
+        this.lane = lane;
+        this.firebaseAuth = firebaseAuth;
+        this.credentials = credentials;
+    }
+
+    // El SDK se inicializa en la primera llamada (siempre dentro del carril, fuera del event loop)
+    private FirebaseAuth auth() {
+        return firebaseAuth.getObject();
+    }
+
+    /**
+     * 🔥 Inicializa el SDK y obtiene el access token OAuth de la cuenta de servicio (el SDK lo reutiliza
+     * hasta que caduca), de modo que la primera llamada real no pague ninguno de los dos.
+     */
+    @Override
+    public Mono<Void> warmup() {
+        return lane.execute("warmup", () -> {
+            auth();
+            credentials.getObject().refreshIfExpired();
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<String> createUser(String uid, String email, String password) {
+        UserRecord.CreateRequest request = new UserRecord.CreateRequest()
+                .setUid(uid)
+                .setEmail(email)
+                .setPassword(password)
+                .setEmailVerified(false)
+                .setDisabled(false);
+        return lane.execute("createUser", () -> {
+            try {
+                return auth().createUser(request).getUid();
+            } catch (FirebaseAuthException e) {
+                if (e.getAuthErrorCode() == AuthErrorCode.EMAIL_ALREADY_EXISTS) {
+                    throw new DuplicateKeyException("El correo ya está en uso.", e);
+                }
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> setCustomUserClaims(String uid, Map<String, Object> claims) {
+        return lane.execute("setCustomUserClaims", () -> {
+            auth().setCustomUserClaims(uid, claims);
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> updateEmail(String uid, String newEmail) {
+        return lane.execute("updateUser", () -> auth()
+                .updateUser(new UserRecord.UpdateRequest(uid).setEmail(newEmail))).then();
+    }
+
+    @Override
+    public Mono<Void> updatePassword(String uid, String newPassword) {
+        return lane.execute("updateUser", () -> auth()
+                .updateUser(new UserRecord.UpdateRequest(uid).setPassword(newPassword))).then();
+    }
+
+    @Override
+    public Mono<String> getUidByEmail(String email) {
+        return lane.execute("getUserByEmail", () -> auth().getUserByEmail(email).getUid());
+    }
+
+    @Override
+    public Mono<String> generatePasswordResetLink(String email) {
+        return lane.execute("generatePasswordResetLink",
+                () -> auth().generatePasswordResetLink(email));
+    }
+
+    @Override
+    public Mono<Set<String>> findExistingEmails(Collection<String> emails) {
+        List<UserIdentifier> identifiers = emails.stream().<UserIdentifier>map(EmailIdentifier::new).toList();
+        return lane.execute("getUsers", () -> auth().getUsers(identifiers).getUsers().stream()
+                .map(user -> user.getEmail().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> importUsers(List<ImportedAccount> accounts) {
+        List<ImportUserRecord> records = accounts.stream()
+                .map(account -> ImportUserRecord.builder()
+                        .setUid(account.uid())
+                        .setEmail(account.email())
+                        .setPasswordHash(account.passwordHash().getBytes(StandardCharsets.UTF_8))
+                        .putAllCustomClaims(account.claims())
+                        .build())
+                .toList();
+        return lane.execute("importUsers", () -> {
+            UserImportResult result = auth()
+                    .importUsers(records, UserImportOptions.withHash(Bcrypt.getInstance()));
+            return result.getErrors().stream()
+                    .collect(Collectors.toMap(ErrorInfo::getIndex, ErrorInfo::getReason, (a, b) -> a));
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteUsers(List<String> uids) {
+        return lane.execute("deleteUsers", () -> {
+            auth().deleteUsers(uids).getErrors().forEach(error ->
+                    log.warn("⚠️ No se pudo borrar la cuenta {} de Firebase: {}", uids.get(error.getIndex()), error.getReason()));
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<UserClaimsPage> listUsers(String pageToken, int maxResults) {
+        return lane.execute("listUsers", () -> {
+            ListUsersPage page = auth().listUsers(pageToken, maxResults);
+            List<UserClaims> users = new ArrayList<>();
+            for (ExportedUserRecord user : page.getValues()) {
+                users.add(new UserClaims(user.getUid(), user.getCustomClaims()));
+            }
+            return new UserClaimsPage(users, page.hasNextPage() ? page.getNextPageToken() : null);
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carril de ejecución dedicado para las llamadas bloqueantes del Firebase Admin SDK.
+ * <ul>
+ *     <li>Scheduler bounded-elastic propio (no comparte hilos con el event loop ni con otros servicios)</li>
+ *     <li>Timeout por llamada</li>
+ *     <li>Bulkhead: máximo de llamadas pendientes (en cola + en ejecución)</li>
+ *     <li>Métricas de profundidad de cola, llamadas activas y latencia por operación</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class FirebaseExecutionLane {
+
+    private final Scheduler scheduler;
+    private final Duration timeout;
+    private final int maxPending;
+    private final MeterRegistry meterRegistry;
+
+    // Plazas del bulkhead ocupadas (en cola + en ejecución); se reservan con un único incrementAndGet
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public FirebaseExecutionLane(
+            MeterRegistry meterRegistry,
+            @Value("${firebase.gateway.threads:16}") int threads,
+            @Value("${firebase.gateway.max-pending:256}") int maxPending,
+            @Value("${firebase.gateway.timeout:5s}") Duration timeout
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+        this.maxPending = maxPending;
+        this.scheduler = Schedulers.newBoundedElastic(threads, maxPending, "firebase");
+
+        Gauge.builder("firebase.lane.queued", queued, AtomicInteger::get)
+                .description("Llamadas a Firebase esperando un hilo del carril")
+                .register(meterRegistry);
+        Gauge.builder("firebase.lane.active", active, AtomicInteger::get)
+                .description("Llamadas a Firebase en ejecución")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("firebase.lane.wait")
+                .description("Tiempo en cola antes de ejecutar la llamada")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("firebase.lane.rejected")
+                .description("Llamadas rechazadas por el bulkhead")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 🔹 Ejecuta una llamada bloqueante en el carril de Firebase
+     *
+     * @param operation nombre de la operación (tag de métricas)
+     * @param call      llamada bloqueante al SDK
+     */
+    public <T> Mono<T> execute(String operation, Callable<T> call) {
+        return Mono.defer(() -> {
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                rejected.increment();
+                return Mono.error(new RejectedExecutionException(
+                        "Carril de Firebase saturado (" + maxPending + " llamadas pendientes)"));
+            }
+
+            queued.incrementAndGet();
+            long enqueuedAt = System.nanoTime();
+            AtomicBoolean started = new AtomicBoolean();
+            Timer.Sample sample = Timer.start(meterRegistry);
+
+            return Mono.fromCallable(() -> {
+                        boolean claimed = started.compareAndSet(false, true);
+                        if (claimed) {
+                            queued.decrementAndGet();
+                        }
+                        queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                        active.incrementAndGet();
+                        try {
+                            return call.call();
+                        } finally {
+                            active.decrementAndGet();
+                            // La plaza se libera cuando termina de verdad, aunque el timeout ya haya respondido
+                            if (claimed) pending.decrementAndGet();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .timeout(timeout)
+                    .doFinally(signal -> {
+                        // Cancelado o expirado antes de arrancar: ya no está en cola
+                        if (started.compareAndSet(false, true)) {
+                            queued.decrementAndGet();
+                            pending.decrementAndGet();
+                        }
+                    })
+                    .doOnEach(signal -> {
+                        if (signal.isOnComplete() || signal.isOnError()) {
+                            sample.stop(callTimer(operation, outcome(signal.getThrowable())));
+                        }
+                    })
+                    .doOnError(TimeoutException.class, e ->
+                            log.warn("⏱️ Timeout en Firebase [{}] tras {}", operation, timeout));
+        });
+    }
+
+    private Timer callTimer(String operation, String outcome) {
+        return Timer.builder("firebase.call")
+                .description("Latencia de llamadas al Firebase Admin SDK")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String outcome(Throwable error) {
+        if (error == null) return "success";
+        if (error instanceof TimeoutException) return "timeout";
+        if (error instanceof RejectedExecutionException) return "rejected";
+        return "error";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,103 @@
+package pe.edu.vallegrande.user.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Punto único de acceso a Firebase Authentication.
+ * Todas las llamadas (bloqueantes en el Admin SDK) se ejecutan en su propio carril
+ * {@link FirebaseExecutionLane}, nunca en los hilos del event loop de Netty.
+ */
+public interface FirebaseGateway {
+
+    /**
+     * Deja lista la conexión con Firebase antes de la primera petición (lo llama {@code StartupWarmup}).
+     * Falla si Firebase no está disponible, para que se reintente.
+     */
+    default Mono<Void> warmup() {
+        return Mono.empty();
+    }
+
+    /**
+     * Crea la cuenta en Firebase con el UID dado (generado antes, para poder compensar) y lo devuelve.
+     * A diferencia de {@link #importUsers}, Firebase comprueba que el email no tenga ya una cuenta:
+     * en ese caso falla con {@link org.springframework.dao.DuplicateKeyException}.
+     */
+    Mono<String> createUser(String uid, String email, String password);
+
+    Mono<Void> setCustomUserClaims(String uid, Map<String, Object> claims);
+
+    Mono<Void> updateEmail(String uid, String newEmail);
+
+    Mono<Void> updatePassword(String uid, String newPassword);
+
+    /**
+     * Devuelve el UID de la cuenta con ese email (error si no existe).
+     */
+    Mono<String> getUidByEmail(String email);
+
+    Mono<String> generatePasswordResetLink(String email);
+
+    /**
+     * Máximo de emails por llamada a {@link #findExistingEmails} (límite de {@code getUsers} en Firebase).
+     */
+    int MAX_LOOKUP_BATCH_SIZE = 100;
+
+    /**
+     * Emails, de entre los dados (hasta {@value #MAX_LOOKUP_BATCH_SIZE}), que ya tienen una cuenta en Firebase,
+     * en minúsculas como los guarda Firebase. Una sola llamada {@code getUsers}.
+     */
+    Mono<Set<String>> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Máximo de cuentas por llamada a {@link #importUsers} y {@link #deleteUsers} (límite de Firebase).
+     */
+    int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Crea hasta {@value #MAX_BATCH_SIZE} cuentas en una sola llamada (importUsers): con UID propio,
+     * contraseña ya hasheada con BCrypt y claims incluidos. Firebase no comprueba aquí que los emails
+     * sean únicos: hay que descartar antes los existentes con {@link #findExistingEmails}.
+     *
+     * @return motivo del fallo por índice de {@code accounts} (vacío si se importaron todas)
+     */
+    Mono<Map<Integer, String>> importUsers(List<ImportedAccount> accounts);
+
+    /**
+     * Borra hasta {@value #MAX_BATCH_SIZE} cuentas en una sola llamada (compensación de importaciones).
+     */
+    Mono<Void> deleteUsers(List<String> uids);
+
+    /**
+     * Máximo de cuentas por página de {@link #listUsers} (límite de Firebase).
+     */
+    int MAX_LIST_PAGE_SIZE = 1000;
+
+    /**
+     * Una página de cuentas con sus custom claims, para la reconciliación de claims.
+     *
+     * @param pageToken {@code null} para la primera página; luego {@link UserClaimsPage#nextPageToken()}
+     */
+    Mono<UserClaimsPage> listUsers(String pageToken, int maxResults);
+
+    /**
+     * Cuenta a importar.
+     *
+     * @param passwordHash hash BCrypt ({@code $2a$...}) de la contraseña
+     */
+    record ImportedAccount(String uid, String email, String passwordHash, Map<String, Object> claims) {
+    }
+
+    record UserClaims(String uid, Map<String, Object> claims) {
+    }
+
+    /**
+     * @param nextPageToken {@code null} en la última página
+     */
+    record UserClaimsPage(List<UserClaims> users, String nextPageToken) {
+    }
+}
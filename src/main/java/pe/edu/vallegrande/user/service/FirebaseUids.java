@@ -0,0 +1,24 @@
+package pe.edu.vallegrande.user.service;
+
+import java.security.SecureRandom;
+
+/**
+ * UIDs de Firebase generados aquí (importUsers los necesita, y la creación los guarda antes de llamar a Firebase).
+ */
+final class FirebaseUids {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int LENGTH = 28; // como los UID que genera Firebase
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private FirebaseUids() {
+    }
+
+    static String newUid() {
+        StringBuilder uid = new StringBuilder(LENGTH);
+        for (int i = 0; i < LENGTH; i++) {
+            uid.append(ALPHABET.charAt(RANDOM.nextInt(ALPHABET.length())));
+        }
+        return uid.toString();
+    }
+}
@@ -0,0 +1,236 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza las fotos de perfil antes de subirlas:
+ * <ul>
+ *     <li>Reduce a los tamaños configurados ({@code supabase.images.sizes}, lado mayor en px) más el original</li>
+ *     <li>Re-codifica a JPEG (o PNG si la imagen tiene transparencia), lo que descarta los metadatos (EXIF, etc.)</li>
+ *     <li>Ruta única por subida: {@code <carpeta>/<id>.jpg} y {@code <carpeta>/<id>_<tamaño>.jpg}; dos subidas con los
+ *     mismos bytes no comparten objeto, así borrar la foto de un usuario nunca borra la de otro</li>
+ *     <li>Antes de decodificar se leen las dimensiones de la cabecera: por encima de {@code max-pixels} se
+ *     rechaza (413) sin reservar memoria para los píxeles (una imagen pequeña puede declarar un tamaño enorme)</li>
+ *     <li>Se ejecuta en un pool acotado propio, nunca en el event loop</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class ImageProcessingService {
+
+    public static final String ORIGINAL = "original";
+
+    // <id>.<ext> → imagen generada por este servicio (tiene variantes). El id es un UUID en hex sin guiones;
+    // las imágenes antiguas usaban el sha256 del contenido (64 hex)
+    private static final Pattern PROCESSED_NAME = Pattern.compile("^(.*/)([0-9a-f]{32}(?:[0-9a-f]{32})?)\\.(jpg|png)$");
+    // <id>_<tamaño>.<ext> → miniatura de una imagen procesada
+    private static final Pattern VARIANT_NAME = Pattern.compile("^(.*/)([0-9a-f]{32}(?:[0-9a-f]{32})?)_\\d+\\.(jpg|png)$");
+
+    private final boolean enabled;
+    private final List<Integer> sizes;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final Scheduler scheduler;
+    private final Timer processingTimer;
+
+    public ImageProcessingService(
+            MeterRegistry meterRegistry,
+            @Value("${supabase.images.processing-enabled:true}") boolean enabled,
+            @Value("${supabase.images.sizes:64,256}") List<Integer> sizes,
+            @Value("${supabase.images.jpeg-quality:0.85}") float jpegQuality,
+            @Value("${supabase.images.threads:0}") int threads,
+            @Value("${supabase.images.max-pending:32}") int maxPending,
+            @Value("${supabase.images.max-pixels:40000000}") long maxPixels
+    ) {
+        this.enabled = enabled;
+        this.sizes = List.copyOf(sizes);
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newBoundedElastic(poolSize, maxPending, "image-processing");
+        this.processingTimer = Timer.builder("image.processing.duration")
+                .description("Tiempo de decodificar, escalar y re-codificar una imagen")
+                .register(meterRegistry);
+        ImageIO.setUseCache(false); // sin archivos temporales en disco
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 🖼️ Genera las variantes de la imagen. Vacío si el formato no se puede decodificar
+     * en la JVM (p. ej. WEBP): en ese caso se guarda el archivo tal cual. Falla con 413 si
+     * la cabecera declara más de {@code max-pixels} píxeles.
+     *
+     * @param folder carpeta destino dentro del bucket
+     * @return variantes con una ruta nueva en cada llamada, ordenadas: tamaños configurados y luego el original
+     */
+    public Mono<List<ImageVariant>> process(String folder, byte[] original) {
+        return Mono.fromCallable(() -> processingTimer.recordCallable(() -> render(folder, original)))
+                .subscribeOn(scheduler)
+                .flatMap(variants -> variants.isEmpty() ? Mono.empty() : Mono.just(variants));
+    }
+
+    /**
+     * 🔗 URLs de las variantes de una foto de perfil (tamaño → URL), o null si la imagen
+     * no fue generada por este servicio (imágenes antiguas: solo existe el original).
+     */
+    public Map<String, String> variantUrls(String profileImageUrl) {
+        if (profileImageUrl == null) return null;
+        Matcher matcher = PROCESSED_NAME.matcher(profileImageUrl);
+        if (!matcher.matches()) return null;
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Integer size : sizes) {
+            urls.put(String.valueOf(size), matcher.group(1) + matcher.group(2) + "_" + size + "." + matcher.group(3));
+        }
+        urls.put(ORIGINAL, profileImageUrl);
+        return urls;
+    }
+
+    /**
+     * 🔗 URL de la imagen original a la que pertenece una miniatura (la propia URL si no es miniatura)
+     */
+    public String originalUrl(String url) {
+        Matcher matcher = VARIANT_NAME.matcher(url);
+        return matcher.matches() ? matcher.group(1) + matcher.group(2) + "." + matcher.group(3) : url;
+    }
+
+    private List<ImageVariant> render(String folder, byte[] original) throws IOException {
+        BufferedImage source = decode(original);
+        if (source == null) {
+            log.warn("⚠️ Formato de imagen no decodificable, se guarda sin procesar");
+            return List.of();
+        }
+
+        boolean alpha = source.getColorModel().hasAlpha();
+        String extension = alpha ? "png" : "jpg";
+        String baseName = folder + "/" + UUID.randomUUID().toString().replace("-", "");
+
+        List<ImageVariant> variants = new java.util.ArrayList<>();
+        for (Integer size : sizes) {
+            BufferedImage scaled = scale(source, size, alpha);
+            variants.add(new ImageVariant(String.valueOf(size), baseName + "_" + size + "." + extension,
+                    alpha ? "image/png" : "image/jpeg", encode(scaled, alpha)));
+        }
+        variants.add(new ImageVariant(ORIGINAL, baseName + "." + extension,
+                alpha ? "image/png" : "image/jpeg", encode(normalize(source, alpha), alpha)));
+        return variants;
+    }
+
+    // Como ImageIO.read (primer fotograma, null sin lector para el formato), pero comprueba antes el tamaño declarado
+    private BufferedImage decode(byte[] original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("⚠️ Imagen rechazada por sus dimensiones: {}x{}", width, height);
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "La imagen mide " + width + "x"
+                            + height + " px; el máximo es " + maxPixels + " píxeles");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Escala manteniendo proporción para que el lado mayor sea como máximo maxSide (nunca amplía)
+    private static BufferedImage scale(BufferedImage source, int maxSide, boolean alpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSide / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // JPEG no admite paletas ni canal alfa: se convierte a RGB antes de codificar
+    private static BufferedImage normalize(BufferedImage source, boolean alpha) {
+        int expectedType = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        return source.getType() == expectedType ? source : scale(source, Math.max(source.getWidth(), source.getHeight()), alpha);
+    }
+
+    private byte[] encode(BufferedImage image, boolean alpha) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(jpegQuality);
+            params.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    /**
+     * Variante lista para subir.
+     *
+     * @param name        tamaño ("64", "256") u {@value #ORIGINAL}
+     * @param path        ruta dentro del bucket
+     * @param contentType tipo MIME de {@code content}
+     */
+    public record ImageVariant(String name, String path, String contentType, byte[] content) {
+    }
+}
@@ -0,0 +1,55 @@
+package pe.edu.vallegrande.user.service;
+
+import java.util.Optional;
+
+/**
+ * Formatos de imagen aceptados, detectados por sus bytes mágicos (no por lo que declara el cliente).
+ */
+public enum ImageType {
+
+    PNG(".png", "image/png"),
+    JPEG(".jpg", "image/jpeg"),
+    GIF(".gif", "image/gif"),
+    WEBP(".webp", "image/webp");
+
+    // Bytes necesarios para reconocer cualquiera de los formatos (RIFF....WEBP)
+    public static final int HEADER_BYTES = 12;
+
+    private final String extension;
+    private final String contentType;
+
+    ImageType(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * 🔍 Detecta el formato a partir de los primeros bytes del archivo
+     */
+    public static Optional<ImageType> sniff(byte[] header) {
+        if (startsWith(header, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return Optional.of(PNG);
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) return Optional.of(JPEG);
+        if (startsWith(header, 'G', 'I', 'F', '8')) return Optional.of(GIF);
+        if (startsWith(header, 'R', 'I', 'F', 'F') && header.length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return Optional.of(WEBP);
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) return false;
+        }
+        return true;
+    }
+}
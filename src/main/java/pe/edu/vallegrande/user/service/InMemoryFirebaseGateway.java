@@ -0,0 +1,215 @@
+package pe.edu.vallegrande.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación en memoria de {@link FirebaseGateway} para pruebas de carga sin red
+ * ({@code firebase.gateway.mode=in-memory}).
+ * Pasa por el mismo {@link FirebaseExecutionLane} que la real y puede simular la latencia
+ * bloqueante del SDK con {@code firebase.gateway.fake-latency}, de modo que las pruebas
+ * midan si el event loop queda libre.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "firebase.gateway.mode", havingValue = "in-memory")
+public class InMemoryFirebaseGateway implements FirebaseGateway {
+
+    private final FirebaseExecutionLane lane;
+    private final Duration latency;
+
+    private final Map<String, Account> accountsByUid = new ConcurrentHashMap<>();
+    private final Map<String, String> uidByEmail = new ConcurrentHashMap<>();
+
+    public InMemoryFirebaseGateway(FirebaseExecutionLane lane,
+                                   @Value("${firebase.gateway.fake-latency:0ms}") Duration latency) {
+        this.lane = lane;
+        this.latency = latency;
+        log.warn("⚠️ Firebase en modo in-memory: no se contacta con Firebase Authentication");
+    }
+
+    @Override
+    public Mono<String> createUser(String uid, String email, String password) {
+        return lane.execute("createUser", () -> {
+            simulateLatency();
+            if (uidByEmail.putIfAbsent(normalize(email), uid) != null) {
+                throw new DuplicateKeyException("El correo ya está en uso.");
+            }
+            accountsByUid.put(uid, new Account(normalize(email), password, Map.of()));
+            return uid;
+        });
+    }
+
+    @Override
+    public Mono<Void> setCustomUserClaims(String uid, Map<String, Object> claims) {
+        return lane.execute("setCustomUserClaims", () -> {
+            simulateLatency();
+            accountsByUid.compute(uid, (key, account) -> require(key, account).withClaims(claims));
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> updateEmail(String uid, String newEmail) {
+        return lane.execute("updateUser", () -> {
+            simulateLatency();
+            accountsByUid.compute(uid, (key, account) -> {
+                Account current = require(key, account);
+                uidByEmail.remove(current.email(), key);
+                uidByEmail.put(normalize(newEmail), key);
+                return new Account(normalize(newEmail), current.password(), current.claims());
+            });
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> updatePassword(String uid, String newPassword) {
+        return lane.execute("updateUser", () -> {
+            simulateLatency();
+            accountsByUid.compute(uid, (key, account) -> {
+                Account current = require(key, account);
+                return new Account(current.email(), newPassword, current.claims());
+            });
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<String> getUidByEmail(String email) {
+        return lane.execute("getUserByEmail", () -> {
+            simulateLatency();
+            String uid = uidByEmail.get(normalize(email));
+            if (uid == null) {
+                throw new IllegalArgumentException("USER_NOT_FOUND: " + email);
+            }
+            return uid;
+        });
+    }
+
+    @Override
+    public Mono<String> generatePasswordResetLink(String email) {
+        return lane.execute("generatePasswordResetLink", () -> {
+            simulateLatency();
+            if (!uidByEmail.containsKey(normalize(email))) {
+                throw new IllegalArgumentException("USER_NOT_FOUND: " + email);
+            }
+            return "http://localhost/reset-password?oobCode=" + UUID.randomUUID();
+        });
+    }
+
+    @Override
+    public Mono<Set<String>> findExistingEmails(Collection<String> emails) {
+        return lane.execute("getUsers", () -> {
+            simulateLatency();
+            return emails.stream()
+                    .map(InMemoryFirebaseGateway::normalize)
+                    .filter(uidByEmail::containsKey)
+                    .collect(Collectors.toSet());
+        });
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> importUsers(List<ImportedAccount> accounts) {
+        return lane.execute("importUsers", () -> {
+            simulateLatency();
+            Map<Integer, String> errors = new HashMap<>();
+            for (int i = 0; i < accounts.size(); i++) {
+                ImportedAccount account = accounts.get(i);
+                // Como Firebase: solo el UID tiene que ser único, un email repetido crea otra cuenta
+                if (accountsByUid.containsKey(account.uid())) {
+                    errors.put(i, "UID_EXISTS: " + account.uid());
+                } else {
+                    uidByEmail.putIfAbsent(normalize(account.email()), account.uid());
+                    accountsByUid.put(account.uid(),
+                            new Account(normalize(account.email()), account.passwordHash(), Map.copyOf(account.claims())));
+                }
+            }
+            return errors;
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteUsers(List<String> uids) {
+        return lane.execute("deleteUsers", () -> {
+            simulateLatency();
+            for (String uid : uids) {
+                Account account = accountsByUid.remove(uid);
+                if (account != null) uidByEmail.remove(account.email(), uid);
+            }
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<UserClaimsPage> listUsers(String pageToken, int maxResults) {
+        return lane.execute("listUsers", () -> {
+            simulateLatency();
+            // Orden por UID, como Firebase; el token es el último UID devuelto
+            List<String> uids = accountsByUid.keySet().stream()
+                    .filter(uid -> pageToken == null || uid.compareTo(pageToken) > 0)
+                    .sorted()
+                    .limit(maxResults + 1L)
+                    .toList();
+            List<UserClaims> users = uids.stream()
+                    .limit(maxResults)
+                    .map(uid -> new UserClaims(uid, claimsOf(uid)))
+                    .toList();
+            return new UserClaimsPage(users, uids.size() > maxResults ? uids.get(maxResults - 1) : null);
+        });
+    }
+
+    /**
+     * Claims actuales de una cuenta (para verificaciones en pruebas).
+     */
+    public Map<String, Object> claimsOf(String uid) {
+        Account account = accountsByUid.get(uid);
+        return account == null ? Map.of() : account.claims();
+    }
+
+    /**
+     * Número de cuentas creadas (para verificaciones en pruebas).
+     */
+    public int accountCount() {
+        return accountsByUid.size();
+    }
+
+    private void simulateLatency() throws InterruptedException {
+        if (!latency.isZero()) {
+            Thread.sleep(latency.toMillis());
+        }
+    }
+
+    // Firebase guarda los emails en minúsculas
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static Account require(String uid, Account account) {
+        if (account == null) {
+            throw new IllegalArgumentException("USER_NOT_FOUND: " + uid);
+        }
+        return account;
+    }
+
+    private record Account(String email, String password, Map<String, Object> claims) {
+        Account withClaims(Map<String, Object> newClaims) {
+            return new Account(email, password, Map.copyOf(newClaims));
+        }
+    }
+}
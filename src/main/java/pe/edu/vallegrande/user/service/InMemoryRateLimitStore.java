@@ -0,0 +1,104 @@
+package pe.edu.vallegrande.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Buckets en memoria del nodo ({@code security.rate-limit.backend=in-memory}).
+ * <ul>
+ *     <li>Sin bloqueos: cada bucket es un {@link AtomicLong} que se actualiza con CAS</li>
+ *     <li>Los buckets viven en Caffeine (tabla hash segmentada por cubetas, sin lock global), como mucho
+ *     {@code max-keys}; cada uno caduca cuando ya estaría lleno otra vez (un {@code period} sin uso)</li>
+ * </ul>
+ * Métricas: {@code cache.size}, {@code cache.evictions}… con {@code cache=rate-limit}.
+ */
+@Component
+@ConditionalOnProperty(name = "security.rate-limit.backend", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, Bucket> buckets;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public InMemoryRateLimitStore(MeterRegistry meterRegistry,
+                                  @Value("${security.rate-limit.max-keys:100000}") long maxKeys) {
+        this(meterRegistry, maxKeys, System::nanoTime);
+    }
+
+    InMemoryRateLimitStore(MeterRegistry meterRegistry, long maxKeys, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new UntilRefilled())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate-limit");
+    }
+
+    @Override
+    public Mono<Duration> tryAcquire(String key, int capacity, Duration period) {
+        return Mono.fromSupplier(() -> Duration.ofNanos(acquire(key, capacity, period)));
+    }
+
+    /**
+     * GCRA: cada petición adelanta el instante teórico {@code tat} en {@code period / capacity}; se admite
+     * mientras {@code tat} no vaya más de {@code period - intervalo} por delante de ahora.
+     *
+     * @return 0 si se admite; si no, nanosegundos hasta el siguiente token
+     */
+    long acquire(String key, int capacity, Duration period) {
+        long periodNanos = period.toNanos();
+        long interval = periodNanos / capacity;
+        long tolerance = periodNanos - interval;
+        Bucket bucket = buckets.get(key, k -> new Bucket(periodNanos));
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long tat = bucket.tat.get();
+            long base = Math.max(tat, now);
+            long wait = base - now - tolerance;
+            if (wait > 0) return wait;
+            if (bucket.tat.compareAndSet(tat, base + interval)) return 0;
+        }
+    }
+
+    private static final class Bucket {
+        // Long.MIN_VALUE = bucket lleno (nanoTime puede ser negativo)
+        final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+        final long periodNanos;
+
+        Bucket(long periodNanos) {
+            this.periodNanos = periodNanos;
+        }
+    }
+
+    // Un bucket sin uso durante un period vuelve a estar lleno: olvidarlo no cambia nada
+    private static final class UntilRefilled implements Expiry<String, Bucket> {
+
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return bucket.periodNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.periodNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.periodNanos;
+        }
+    }
+}
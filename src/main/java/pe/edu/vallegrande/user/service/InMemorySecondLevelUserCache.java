@@ -0,0 +1,49 @@
+package pe.edu.vallegrande.user.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sustituto local del segundo nivel compartido ({@code user.cache.second-tier=in-memory}).
+ * Mismo contrato que tendría un almacén remoto (TTL por entrada, invalidación por clave).
+ */
+@Component
+@ConditionalOnProperty(name = "user.cache.second-tier", havingValue = "in-memory")
+public class InMemorySecondLevelUserCache implements SecondLevelUserCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<UserDto> get(String key) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAt().isBefore(Instant.now())) {
+                entries.remove(key, entry);
+                return null;
+            }
+            return entry.value();
+        });
+    }
+
+    @Override
+    public Mono<Void> put(String key, UserDto value, Duration ttl) {
+        return Mono.fromRunnable(() -> entries.put(key, new Entry(value, Instant.now().plus(ttl))));
+    }
+
+    @Override
+    public Mono<Void> evict(Collection<String> keys) {
+        return Mono.fromRunnable(() -> keys.forEach(entries::remove));
+    }
+
+    private record Entry(UserDto value, Instant expiresAt) {
+    }
+}
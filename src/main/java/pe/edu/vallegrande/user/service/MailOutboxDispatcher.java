@@ -0,0 +1,232 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.model.MailOutbox;
+import pe.edu.vallegrande.user.repository.MailOutboxRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envía en segundo plano los correos de mail_outbox.
+ * <ul>
+ *     <li>Reclama lotes con {@code FOR UPDATE SKIP LOCKED} (seguro con varias instancias)</li>
+ *     <li>Cada lote se envía por una única conexión SMTP ({@link JavaMailSender#send(MimeMessage...)}
+ *     reutiliza el mismo Transport para todo el lote y la misma Session entre lotes)</li>
+ *     <li>Reintentos con backoff exponencial; tras {@code max-attempts} el correo queda en FAILED</li>
+ *     <li>Los correos terminados (SENT o FAILED) se guardan sin cuerpo (puede llevar un enlace de
+ *     restablecimiento de contraseña) y se borran tras {@code retention}</li>
+ *     <li>Métricas: enviados, fallidos, pendientes y antigüedad del más antiguo (lag de la cola)</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "mail.outbox.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class MailOutboxDispatcher {
+
+    private final MailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Duration retention;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final MeterRegistry meterRegistry;
+
+    public MailOutboxDispatcher(
+            MailOutboxRepository outboxRepository,
+            JavaMailSender mailSender,
+            MeterRegistry meterRegistry,
+            @Value("${mail.outbox.batch-size:50}") int batchSize,
+            @Value("${mail.outbox.max-attempts:5}") int maxAttempts,
+            @Value("${mail.outbox.initial-backoff:10s}") Duration initialBackoff,
+            @Value("${mail.outbox.max-backoff:30m}") Duration maxBackoff,
+            @Value("${mail.outbox.lease:2m}") Duration lease,
+            @Value("${mail.outbox.retention:7d}") Duration retention
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.retention = retention;
+
+        Gauge.builder("mail.outbox.pending", pending, AtomicLong::get)
+                .description("Correos pendientes de envío")
+                .register(meterRegistry);
+        Gauge.builder("mail.outbox.lag", lagSeconds, AtomicLong::get)
+                .description("Antigüedad del correo pendiente más antiguo")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.sent = Counter.builder("mail.outbox.sent").register(meterRegistry);
+        this.retried = Counter.builder("mail.outbox.failed").tag("final", "false").register(meterRegistry);
+        this.failed = Counter.builder("mail.outbox.failed").tag("final", "true").register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 🔁 Ciclo de envío: reclama un lote, lo envía y actualiza las métricas de la cola
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:2000}")
+    public Mono<Void> dispatch() {
+        return outboxRepository.claimBatch(batchSize, lease.toSeconds())
+                .collectList()
+                .filter(batch -> !batch.isEmpty())
+                .flatMap(this::sendBatch)
+                .then(refreshQueueMetrics())
+                .onErrorResume(e -> {
+                    log.error("❌ Error en el ciclo de envío de correos", e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 🧹 Borra los correos terminados más antiguos que {@code retention}
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.cleanup-interval-ms:3600000}")
+    public Mono<Void> purge() {
+        return outboxRepository.purgeFinished(retention.toSeconds())
+                .doOnNext(purged -> {
+                    if (purged > 0) log.info("🧹 {} correo(s) terminados borrados de mail_outbox", purged);
+                })
+                .onErrorResume(e -> {
+                    log.error("❌ Error al purgar mail_outbox", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    Mono<Void> sendBatch(List<MailOutbox> batch) {
+        return Mono.fromCallable(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    Map<MailOutbox, Exception> failures = deliver(batch);
+                    sample.stop(batchTimer(failures.isEmpty() ? "success"
+                            : failures.size() < batch.size() ? "partial" : "error"));
+                    return failures;
+                })
+                .subscribeOn(Schedulers.boundedElastic()) // SMTP es bloqueante
+                .flatMap(failures -> {
+                    List<Long> delivered = new ArrayList<>();
+                    List<Mono<Integer>> retries = new ArrayList<>();
+                    for (MailOutbox mail : batch) {
+                        Exception error = failures.get(mail);
+                        if (error == null) {
+                            delivered.add(mail.getId());
+                        } else {
+                            retries.add(scheduleRetry(mail, error));
+                        }
+                    }
+                    sent.increment(delivered.size());
+                    Mono<Integer> markSent = delivered.isEmpty() ? Mono.empty() : outboxRepository.markSent(delivered);
+                    return markSent.thenMany(Flux.merge(retries)).then();
+                });
+    }
+
+    private Timer batchTimer(String outcome) {
+        return Timer.builder("mail.outbox.batch")
+                .description("Duración del envío SMTP de un lote")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Envía el lote por una única conexión SMTP y devuelve los correos que fallaron.
+     */
+    private Map<MailOutbox, Exception> deliver(List<MailOutbox> batch) {
+        Map<MailOutbox, Exception> failures = new IdentityHashMap<>();
+        Map<MimeMessage, MailOutbox> byMessage = new IdentityHashMap<>();
+        for (MailOutbox mail : batch) {
+            try {
+                byMessage.put(toMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                failures.put(mail, e);
+            }
+        }
+        if (byMessage.isEmpty()) return failures;
+
+        try {
+            mailSender.send(byMessage.keySet().toArray(MimeMessage[]::new));
+            log.info("✅ Lote de {} correos enviado", byMessage.size());
+        } catch (MailSendException e) {
+            // Fallos parciales: solo se reintentan los mensajes que fallaron
+            if (e.getFailedMessages().isEmpty()) {
+                byMessage.values().forEach(mail -> failures.put(mail, e));
+            }
+            e.getFailedMessages().forEach((message, error) -> {
+                MailOutbox mail = byMessage.get(message);
+                if (mail != null) failures.put(mail, error);
+            });
+        } catch (MailException e) {
+            // Conexión/autenticación: falla el lote completo
+            byMessage.values().forEach(mail -> failures.put(mail, e));
+        }
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(MailOutbox mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setTo(mail.getRecipient());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getBody());
+        return message;
+    }
+
+    private Mono<Integer> scheduleRetry(MailOutbox mail, Exception error) {
+        int attempt = mail.getAttempts() + 1;
+        if (attempt >= maxAttempts) {
+            failed.increment();
+            log.error("❌ Correo #{} a {} descartado tras {} intentos: {}", mail.getId(), mail.getRecipient(), attempt, error.getMessage());
+        } else {
+            retried.increment();
+            log.warn("⚠️ Correo #{} a {} falló (intento {}): {}", mail.getId(), mail.getRecipient(), attempt, error.getMessage());
+        }
+        return outboxRepository.markForRetry(mail.getId(), String.valueOf(error.getMessage()),
+                backoff(attempt).toSeconds(), maxAttempts);
+    }
+
+    Duration backoff(int attempt) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private Mono<Void> refreshQueueMetrics() {
+        return Mono.zip(outboxRepository.countPending(), outboxRepository.oldestPendingAgeSeconds())
+                .doOnNext(stats -> {
+                    pending.set(stats.getT1());
+                    lagSeconds.set(stats.getT2().longValue());
+                })
+                .then();
+    }
+}
@@ -0,0 +1,32 @@
+package pe.edu.vallegrande.user.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Sin segundo nivel: solo se usa la caché local de cada nodo.
+ */
+@Component
+@ConditionalOnProperty(name = "user.cache.second-tier", havingValue = "none", matchIfMissing = true)
+public class NoOpSecondLevelUserCache implements SecondLevelUserCache {
+
+    @Override
+    public Mono<UserDto> get(String key) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> put(String key, UserDto value, Duration ttl) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> evict(Collection<String> keys) {
+        return Mono.empty();
+    }
+}
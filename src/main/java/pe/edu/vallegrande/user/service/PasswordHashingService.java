@@ -0,0 +1,124 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashing BCrypt reactivo.
+ * <ul>
+ *     <li>Se ejecuta en un scheduler paralelo dimensionado a los núcleos (CPU-bound), nunca en el event loop</li>
+ *     <li>Control de admisión: las ráfagas se encolan hasta {@code max-pending}; por encima se rechazan</li>
+ *     <li>Coste configurable ({@code strength}) o auto-calibrado a una duración objetivo ({@code strength=auto})</li>
+ * </ul>
+ * Solo genera hashes: las contraseñas las verifica Firebase Authentication al iniciar sesión.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private static final int MIN_CALIBRATED_STRENGTH = 10;
+    private static final int MAX_CALIBRATED_STRENGTH = 14;
+
+    private final BCryptPasswordEncoder encoder;
+    private final int strength;
+    private final Scheduler scheduler;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer hashTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(
+            MeterRegistry meterRegistry,
+            @Value("${security.password.bcrypt.strength:10}") String strength,
+            @Value("${security.password.bcrypt.target-duration:100ms}") Duration targetDuration,
+            @Value("${security.password.hashing.threads:0}") int threads,
+            @Value("${security.password.hashing.max-pending:64}") int maxPending
+    ) {
+        this.strength = "auto".equalsIgnoreCase(strength)
+                ? calibrate(targetDuration)
+                : Integer.parseInt(strength.trim());
+        this.encoder = new BCryptPasswordEncoder(this.strength);
+        this.maxPending = maxPending;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newParallel("bcrypt", poolSize);
+
+        Gauge.builder("password.hashing.pending", pending, AtomicInteger::get)
+                .description("Operaciones BCrypt en cola o en ejecución")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("password.hashing.duration")
+                .description("Duración de cada operación BCrypt")
+                .tag("strength", String.valueOf(this.strength))
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("Operaciones rechazadas por control de admisión")
+                .register(meterRegistry);
+
+        log.info("🔐 BCrypt con coste {} en {} hilos (máx. {} pendientes)", this.strength, poolSize, maxPending);
+    }
+
+    /**
+     * 🔹 Genera el hash BCrypt de la contraseña
+     */
+    public Mono<String> encode(CharSequence rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    public int strength() {
+        return strength;
+    }
+
+    public BCryptPasswordEncoder encoder() {
+        return encoder;
+    }
+
+    private <T> Mono<T> submit(Callable<T> hashing) {
+        return Mono.defer(() -> {
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                rejected.increment();
+                return Mono.error(new RejectedExecutionException("Demasiadas operaciones de contraseña en curso"));
+            }
+            return Mono.fromCallable(() -> hashTimer.recordCallable(hashing))
+                    .subscribeOn(scheduler)
+                    .doFinally(signal -> pending.decrementAndGet());
+        });
+    }
+
+    /**
+     * Busca el menor coste cuyo hash tarda al menos {@code target} en esta máquina.
+     */
+    static int calibrate(Duration target) {
+        String sample = "calibration-password";
+        for (int cost = MIN_CALIBRATED_STRENGTH; cost < MAX_CALIBRATED_STRENGTH; cost++) {
+            BCryptPasswordEncoder candidate = new BCryptPasswordEncoder(cost);
+            candidate.encode(sample); // calentamiento
+            long start = System.nanoTime();
+            candidate.encode(sample);
+            if (Duration.ofNanos(System.nanoTime() - start).compareTo(target) >= 0) {
+                return cost;
+            }
+        }
+        return MAX_CALIBRATED_STRENGTH;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
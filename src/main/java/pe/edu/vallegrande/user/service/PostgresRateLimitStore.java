@@ -0,0 +1,80 @@
+package pe.edu.vallegrande.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Buckets compartidos por todos los nodos en la tabla {@code rate_limit_buckets}
+ * ({@code security.rate-limit.backend=postgres}).
+ * <ul>
+ *     <li>Una sola sentencia por petición: UPSERT cuyo {@code DO UPDATE ... WHERE} solo avanza el bucket
+ *     si quedan tokens; el bloqueo de fila del {@code ON CONFLICT} serializa a los nodos sobre la misma clave</li>
+ *     <li>Se usa el reloj de la BD, no el de cada nodo</li>
+ *     <li>Los buckets que ya estarían llenos se borran cada {@code postgres.cleanup-interval-ms}</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "security.rate-limit.backend", havingValue = "postgres")
+public class PostgresRateLimitStore implements RateLimitStore {
+
+    // acquired: fila insertada o actualizada → se admite; si no, se calcula la espera con la fila actual
+    static final String ACQUIRE_SQL = """
+            WITH clock AS (SELECT (extract(epoch FROM clock_timestamp()) * 1000)::bigint AS now_ms),
+            acquired AS (
+                INSERT INTO rate_limit_buckets AS b (bucket_key, tat_ms)
+                SELECT :key, clock.now_ms + :interval FROM clock
+                ON CONFLICT (bucket_key) DO UPDATE
+                    SET tat_ms = GREATEST(b.tat_ms, (SELECT now_ms FROM clock)) + :interval
+                    WHERE GREATEST(b.tat_ms, (SELECT now_ms FROM clock)) - (SELECT now_ms FROM clock) <= :tolerance
+                RETURNING 0::bigint AS wait_ms
+            )
+            SELECT wait_ms FROM acquired
+            UNION ALL
+            SELECT GREATEST(b.tat_ms - clock.now_ms - :tolerance, 1) FROM rate_limit_buckets b, clock
+            WHERE b.bucket_key = :key AND NOT EXISTS (SELECT 1 FROM acquired)
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public PostgresRateLimitStore(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Duration> tryAcquire(String key, int capacity, Duration period) {
+        long periodMs = Math.max(period.toMillis(), capacity);
+        long interval = periodMs / capacity;
+        return databaseClient.sql(ACQUIRE_SQL)
+                .bind("key", key)
+                .bind("interval", interval)
+                .bind("tolerance", periodMs - interval)
+                .map(row -> row.get("wait_ms", Long.class))
+                .one()
+                // Sin fila: otra transacción la borró (limpieza) justo entre medias → se admite
+                .map(Duration::ofMillis)
+                .defaultIfEmpty(Duration.ZERO);
+    }
+
+    // 🔹 Borra los buckets sin uso (su tat ya pasó: estarían llenos)
+    @Scheduled(fixedDelayString = "${security.rate-limit.postgres.cleanup-interval-ms:60000}")
+    public Mono<Void> purgeExpired() {
+        return databaseClient.sql("DELETE FROM rate_limit_buckets WHERE tat_ms < (extract(epoch FROM clock_timestamp()) * 1000)::bigint")
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(deleted -> {
+                    if (deleted > 0) log.debug("🧹 {} buckets de rate limiting caducados borrados", deleted);
+                })
+                .onErrorResume(e -> {
+                    log.warn("⚠️ No se pudieron borrar los buckets de rate limiting caducados: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
@@ -0,0 +1,22 @@
+package pe.edu.vallegrande.user.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Estado de los token buckets de {@code RateLimitWebFilter}, con GCRA (equivalente a un token bucket que
+ * guarda un único instante por clave, el "theoretical arrival time", en lugar de tokens + última recarga).
+ * Se elige con {@code security.rate-limit.backend}: {@code in-memory} (por nodo, por defecto)
+ * o {@code postgres} (compartido entre nodos).
+ */
+public interface RateLimitStore {
+
+    /**
+     * Consume un token del bucket {@code key}: caben {@code capacity} peticiones seguidas y el bucket
+     * se rellena entero en {@code period}.
+     *
+     * @return {@link Duration#ZERO} si se admite; si no, lo que falta para el siguiente token
+     */
+    Mono<Duration> tryAcquire(String key, int capacity, Duration period);
+}
@@ -0,0 +1,21 @@
+package pe.edu.vallegrande.user.service;
+
+import pe.edu.vallegrande.user.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Segundo nivel (compartido entre nodos) de {@link UserProfileCache}.
+ * Se selecciona con {@code user.cache.second-tier}: {@code none} (por defecto) o
+ * {@code in-memory} (sustituto local para pruebas de una implementación compartida, p. ej. Redis).
+ */
+public interface SecondLevelUserCache {
+
+    Mono<UserDto> get(String key);
+
+    Mono<Void> put(String key, UserDto value, Duration ttl);
+
+    Mono<Void> evict(Collection<String> keys);
+}
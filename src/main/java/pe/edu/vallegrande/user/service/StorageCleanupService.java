@@ -0,0 +1,46 @@
+package pe.edu.vallegrande.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.repository.StorageDeletionRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encola objetos de Supabase Storage para borrarlos (storage_deletion_queue).
+ * El borrado real lo hace {@link StorageCleanupWorker} en segundo plano, en lotes y con reintentos.
+ */
+@Slf4j
+@Service
+public class StorageCleanupService {
+
+    private final StorageDeletionRepository deletionRepository;
+    private final SupabaseStorageService storageService;
+
+    public StorageCleanupService(StorageDeletionRepository deletionRepository, SupabaseStorageService storageService) {
+        this.deletionRepository = deletionRepository;
+        this.storageService = storageService;
+    }
+
+    /**
+     * 🗑️ Encola la imagen y todas sus variantes. Un fallo al encolar no interrumpe la operación
+     * del usuario: el objeto queda huérfano y lo recoge la reconciliación periódica.
+     */
+    public Mono<Void> deleteImageLater(String publicUrl) {
+        List<String> paths = storageService.objectPaths(publicUrl);
+        return enqueue(paths)
+                .onErrorResume(e -> {
+                    log.warn("⚠️ No se pudo encolar el borrado de {}: {}", publicUrl, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Void> enqueue(Collection<String> objectPaths) {
+        if (objectPaths.isEmpty()) return Mono.empty();
+        return deletionRepository.enqueue(objectPaths.toArray(String[]::new))
+                .doOnNext(count -> log.info("🗑️ {} objeto(s) encolados para borrar", count))
+                .then();
+    }
+}
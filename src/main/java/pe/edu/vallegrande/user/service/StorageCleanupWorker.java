@@ -0,0 +1,236 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.model.StorageDeletion;
+import pe.edu.vallegrande.user.repository.StorageDeletionRepository;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Vacía en segundo plano la cola storage_deletion_queue y busca objetos huérfanos.
+ * <ul>
+ *     <li>Reclama lotes con {@code FOR UPDATE SKIP LOCKED} y los borra con peticiones masivas
+ *     de {@code request-size} rutas, como mucho {@code concurrency} a la vez</li>
+ *     <li>Antes de borrar se descartan las rutas cuya imagen original sigue en {@code users.profile_image}:
+ *     un borrado encolado nunca se lleva la foto actual de un usuario</li>
+ *     <li>Reintentos con backoff exponencial; tras {@code max-attempts} el borrado queda en FAILED</li>
+ *     <li>Reconciliación periódica: lista la carpeta del bucket y encola los objetos (más antiguos que
+ *     {@code orphan-grace}) cuya imagen original ya no aparece en {@code users.profile_image}</li>
+ *     <li>Métricas: pendientes, antigüedad del más antiguo, objetos borrados, fallos y huérfanos</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "storage.cleanup.worker.enabled", havingValue = "true", matchIfMissing = true)
+public class StorageCleanupWorker {
+
+    private final StorageDeletionRepository deletionRepository;
+    private final UsersRepository usersRepository;
+    private final SupabaseStorageService storageService;
+    private final ImageProcessingService imageProcessing;
+    private final StorageCleanupService cleanupService;
+    private final int batchSize;
+    private final int requestSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final String folder;
+    private final int listPageSize;
+    private final Duration orphanGrace;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter deleted;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter orphans;
+    private final Counter skipped;
+
+    public StorageCleanupWorker(
+            StorageDeletionRepository deletionRepository,
+            UsersRepository usersRepository,
+            SupabaseStorageService storageService,
+            ImageProcessingService imageProcessing,
+            StorageCleanupService cleanupService,
+            MeterRegistry meterRegistry,
+            @Value("${storage.cleanup.batch-size:200}") int batchSize,
+            @Value("${storage.cleanup.request-size:100}") int requestSize,
+            @Value("${storage.cleanup.concurrency:2}") int concurrency,
+            @Value("${storage.cleanup.max-attempts:8}") int maxAttempts,
+            @Value("${storage.cleanup.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${storage.cleanup.max-backoff:1h}") Duration maxBackoff,
+            @Value("${storage.cleanup.lease:2m}") Duration lease,
+            @Value("${storage.cleanup.reconcile.folder:users}") String folder,
+            @Value("${storage.cleanup.reconcile.page-size:1000}") int listPageSize,
+            @Value("${storage.cleanup.reconcile.orphan-grace:1h}") Duration orphanGrace
+    ) {
+        this.deletionRepository = deletionRepository;
+        this.usersRepository = usersRepository;
+        this.storageService = storageService;
+        this.imageProcessing = imageProcessing;
+        this.cleanupService = cleanupService;
+        this.batchSize = batchSize;
+        this.requestSize = requestSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.folder = folder;
+        this.listPageSize = listPageSize;
+        this.orphanGrace = orphanGrace;
+
+        Gauge.builder("storage.cleanup.pending", pending, AtomicLong::get)
+                .description("Objetos pendientes de borrar en Supabase Storage")
+                .register(meterRegistry);
+        Gauge.builder("storage.cleanup.lag", lagSeconds, AtomicLong::get)
+                .description("Antigüedad del borrado pendiente más antiguo")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.deleted = Counter.builder("storage.cleanup.deleted")
+                .description("Objetos borrados (tasa de recuperación de espacio)")
+                .register(meterRegistry);
+        this.retried = Counter.builder("storage.cleanup.failed").tag("final", "false").register(meterRegistry);
+        this.failed = Counter.builder("storage.cleanup.failed").tag("final", "true").register(meterRegistry);
+        this.orphans = Counter.builder("storage.cleanup.orphans")
+                .description("Objetos huérfanos encontrados por la reconciliación")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("storage.cleanup.skipped")
+                .description("Borrados descartados porque la imagen sigue referenciada por un usuario")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 🔁 Ciclo de borrado: reclama un lote, lo borra en peticiones masivas y actualiza las métricas
+     */
+    @Scheduled(fixedDelayString = "${storage.cleanup.poll-interval-ms:5000}")
+    public Mono<Void> drain() {
+        return deletionRepository.claimBatch(batchSize, lease.toSeconds())
+                .buffer(requestSize)
+                .flatMap(this::deleteChunk, concurrency)
+                .then(refreshQueueMetrics())
+                .onErrorResume(e -> {
+                    log.error("❌ Error en el ciclo de borrado de Storage", e);
+                    return Mono.empty();
+                });
+    }
+
+    Mono<Void> deleteChunk(List<StorageDeletion> chunk) {
+        List<Long> ids = chunk.stream().map(StorageDeletion::getId).toList();
+        // Las referenciadas también salen de la cola: si dejan de usarse, la reconciliación las vuelve a encolar
+        return unreferencedPaths(chunk)
+                .flatMap(paths -> (paths.isEmpty() ? Mono.empty() : storageService.deleteObjects(paths))
+                        .then(Mono.defer(() -> {
+                            deleted.increment(paths.size());
+                            return deletionRepository.removeDone(ids);
+                        })))
+                .then()
+                .onErrorResume(e -> scheduleRetry(chunk, ids, e));
+    }
+
+    // Rutas del lote cuya imagen original no aparece en users.profile_image
+    private Mono<List<String>> unreferencedPaths(List<StorageDeletion> chunk) {
+        Map<String, String> originalByPath = chunk.stream()
+                .map(StorageDeletion::getObjectPath)
+                .distinct()
+                .collect(Collectors.toMap(Function.identity(),
+                        path -> imageProcessing.originalUrl(storageService.publicUrl(path))));
+        String[] candidates = new HashSet<>(originalByPath.values()).toArray(String[]::new);
+        return usersRepository.findReferencedProfileImages(candidates)
+                .collect(Collectors.toSet())
+                .map(referenced -> {
+                    List<String> paths = originalByPath.entrySet().stream()
+                            .filter(entry -> !referenced.contains(entry.getValue()))
+                            .map(Map.Entry::getKey)
+                            .toList();
+                    if (paths.size() < originalByPath.size()) {
+                        skipped.increment(originalByPath.size() - paths.size());
+                        log.warn("⚠️ {} objeto(s) encolados para borrar siguen en uso por un usuario: no se borran",
+                                originalByPath.size() - paths.size());
+                    }
+                    return paths;
+                });
+    }
+
+    private Mono<Void> scheduleRetry(List<StorageDeletion> chunk, List<Long> ids, Throwable error) {
+        long exhausted = chunk.stream().filter(deletion -> deletion.getAttempts() + 1 >= maxAttempts).count();
+        failed.increment(exhausted);
+        retried.increment(chunk.size() - exhausted);
+        log.warn("⚠️ Falló el borrado de {} objeto(s) ({} sin más reintentos): {}", chunk.size(), exhausted, error.getMessage());
+        return deletionRepository.markForRetry(ids, String.valueOf(error.getMessage()),
+                        initialBackoff.toSeconds(), maxBackoff.toSeconds(), maxAttempts)
+                .then();
+    }
+
+    /**
+     * 🔍 Reconciliación: encola los objetos del bucket que ya no referencia ningún usuario
+     */
+    @Scheduled(initialDelayString = "${storage.cleanup.reconcile.initial-delay-ms:60000}",
+            fixedDelayString = "${storage.cleanup.reconcile.interval-ms:21600000}")
+    public Mono<Void> reconcileOrphans() {
+        AtomicInteger found = new AtomicInteger();
+        Instant cutoff = Instant.now().minus(orphanGrace);
+        return Flux.range(0, Integer.MAX_VALUE)
+                .concatMap(page -> storageService.listObjects(folder, listPageSize, page * listPageSize).collectList())
+                .takeUntil(objects -> objects.size() < listPageSize)
+                .concatMap(objects -> findOrphans(objects, cutoff))
+                .concatMap(orphanPaths -> {
+                    found.addAndGet(orphanPaths.size());
+                    orphans.increment(orphanPaths.size());
+                    return cleanupService.enqueue(orphanPaths);
+                })
+                .then(Mono.fromRunnable(() -> log.info("🔍 Reconciliación de Storage: {} huérfano(s) encolados", found.get())))
+                .onErrorResume(e -> {
+                    log.error("❌ Error en la reconciliación de Storage", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // De una página del listado, las rutas cuya imagen original no está en users.profile_image
+    private Mono<List<String>> findOrphans(List<SupabaseStorageService.StoredObject> objects, Instant cutoff) {
+        // Los objetos recientes pueden pertenecer a una subida cuyo usuario aún no se ha guardado
+        Map<String, String> originalByPath = objects.stream()
+                .filter(object -> object.createdAt() == null || object.createdAt().isBefore(cutoff))
+                .collect(Collectors.toMap(SupabaseStorageService.StoredObject::path,
+                        object -> imageProcessing.originalUrl(storageService.publicUrl(object.path()))));
+        if (originalByPath.isEmpty()) return Mono.just(List.of());
+
+        String[] candidates = new HashSet<>(originalByPath.values()).toArray(String[]::new);
+        return usersRepository.findReferencedProfileImages(candidates)
+                .collect(Collectors.toSet())
+                .map(referenced -> originalByPath.entrySet().stream()
+                        .filter(entry -> !referenced.contains(entry.getValue()))
+                        .map(Map.Entry::getKey)
+                        .toList());
+    }
+
+    private Mono<Void> refreshQueueMetrics() {
+        return Mono.zip(deletionRepository.countPending(), deletionRepository.oldestPendingAgeSeconds())
+                .doOnNext(stats -> {
+                    pending.set(stats.getT1());
+                    lagSeconds.set(stats.getT2().longValue());
+                })
+                .then();
+    }
+}
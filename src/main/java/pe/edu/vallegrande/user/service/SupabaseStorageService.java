@@ -1,34 +1,88 @@
 package pe.edu.vallegrande.user.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.config.OutboundHttpClient;
+import pe.edu.vallegrande.user.config.OutboundHttpClients;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
 public class SupabaseStorageService {
 
+    public static final String HTTP_CLIENT = "supabase-storage";
+
+    private final OutboundHttpClient http;
     private final WebClient webClient;
     private final String bucket;
     private final String projectUrl;
+    private final long maxUploadBytes;
+    private final ImageProcessingService imageProcessing;
+    private final DistributionSummary uploadBytes;
+    private final DistributionSummary uploadChunks;
+    private final DistributionSummary uploadLargestChunk;
 
+    /**
+     * @param httpClients cliente {@value #HTTP_CLIENT} ({@code http.clients.supabase-storage.*}): pool, timeouts,
+     *                    reintentos y circuit breaker propios; cada llamada queda medida en {@code http.client.requests}
+     *                    ({@code client.name} = host de Supabase, {@code uri} = plantilla de la ruta)
+     */
     public SupabaseStorageService(
+            OutboundHttpClients httpClients,
             @Value("${supabase.project-url}") String projectUrl,
             @Value("${supabase.api-key}") String apiKey,
-            @Value("${supabase.bucket}") String bucket
+            @Value("${supabase.bucket}") String bucket,
+            @Value("${supabase.upload.max-size:5MB}") DataSize maxUploadSize,
+            ImageProcessingService imageProcessing,
+            MeterRegistry meterRegistry
     ) {
         this.projectUrl = projectUrl;
         this.bucket = bucket;
-        this.webClient = WebClient.builder()
+        this.maxUploadBytes = maxUploadSize.toBytes();
+        this.imageProcessing = imageProcessing;
+        this.uploadBytes = DistributionSummary.builder("storage.upload.bytes")
+                .description("Tamaño de las imágenes subidas en streaming")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadChunks = DistributionSummary.builder("storage.upload.chunks")
+                .description("DataBuffers recibidos por subida")
+                .register(meterRegistry);
+        this.uploadLargestChunk = DistributionSummary.builder("storage.upload.chunk.max")
+                .description("Mayor DataBuffer retenido a la vez durante una subida")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.http = httpClients.client(HTTP_CLIENT);
+        this.webClient = http.webClient().mutate()
                 .baseUrl(projectUrl + "/storage/v1")
                 .defaultHeader("apikey", apiKey)
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
@@ -42,41 +96,10 @@ public class SupabaseStorageService {
         }
 
         try {
-            // 🧠 Separamos encabezado y contenido
-            String[] parts = base64.split(",", 2);
-            String metadata = parts[0];  // "data:image/png;base64"
-            String content = parts[1];   // contenido base64 real
-
-            // 📦 Determinar extensión según encabezado
-            String extension = metadata.contains("image/png") ? ".png" :
-                    metadata.contains("image/jpeg") ? ".jpg" :
-                            metadata.contains("image/jpg") ? ".jpg" :
-                                    metadata.contains("image/gif") ? ".gif" :
-                                            metadata.contains("image/webp") ? ".webp" : "";
-
-            if (extension.isEmpty()) {
-                log.warn("❌ Formato de imagen no soportado: {}", metadata);
-                return Mono.empty();
-            }
-
-            // 🎯 Generamos nombre y ruta de archivo
-            String fileName = UUID.randomUUID() + extension;
-            String path = folder + "/" + fileName;
-
-            // 🔁 Decodificamos el base64
-            byte[] imageBytes = Base64.getDecoder().decode(content);
-
-            // 🚀 Enviamos PUT a Supabase
-            return webClient.put()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/object/{bucket}/{path}")
-                            .build(bucket, path))
-                    .header("x-upsert", "true")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(BodyInserters.fromValue(imageBytes))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .map(response -> projectUrl + "/storage/v1/object/public/" + bucket + "/" + path);
+            // 🚀 Generamos variantes y las subimos a Supabase
+            return decodeDataUri(base64)
+                    .map(image -> storeImage(folder, image.content(), image.type()))
+                    .orElseGet(Mono::empty);
 
         } catch (Exception e) {
             log.error("❌ Error al subir imagen a Supabase:", e);
@@ -84,18 +107,253 @@ public class SupabaseStorageService {
         }
     }
 
-    public Mono<Void> deleteImage(String publicUrl) {
-        if (!StringUtils.hasText(publicUrl)) return Mono.empty();
+    /**
+     * 🔁 Decodifica un data URI ({@code data:image/png;base64,...}) y comprueba por sus bytes que sea
+     * una imagen soportada. Vacío si el encabezado o el contenido no son de un formato soportado.
+     *
+     * @throws IllegalArgumentException si el contenido no es base64 válido
+     */
+    public static Optional<DecodedImage> decodeDataUri(String base64) {
+        // 🧠 Separamos encabezado y contenido
+        String[] parts = base64.split(",", 2);
+        String metadata = parts[0];  // "data:image/png;base64"
+        String content = parts[1];   // contenido base64 real
 
-        String[] parts = publicUrl.split("/object/public/");
-        if (parts.length < 2) return Mono.empty();
+        // 📦 El encabezado declarado debe ser de un formato soportado
+        boolean declaredSupported = metadata.contains("image/png") || metadata.contains("image/jpeg")
+                || metadata.contains("image/jpg") || metadata.contains("image/gif") || metadata.contains("image/webp");
 
-        String objectPath = parts[1]; // ruta relativa después de `/object/public/`
+        if (!declaredSupported) {
+            log.warn("❌ Formato de imagen no soportado: {}", metadata);
+            return Optional.empty();
+        }
 
-        return webClient.delete()
-                .uri(uriBuilder -> uriBuilder.path("/object/{bucket}/{path}")
-                        .build(bucket, objectPath))
+        // 🔁 Decodificamos el base64
+        byte[] imageBytes = Base64.getDecoder().decode(content);
+
+        // 🔍 El contenido real debe ser una imagen soportada (no basta con el encabezado declarado)
+        ImageType type = ImageType.sniff(imageBytes).orElse(null);
+        if (type == null) {
+            log.warn("❌ El contenido no corresponde a una imagen soportada: {}", metadata);
+            return Optional.empty();
+        }
+        return Optional.of(new DecodedImage(type, imageBytes));
+    }
+
+    /**
+     * 🚀 Sube una imagen en streaming.
+     * <ul>
+     *     <li>El formato se detecta por los bytes mágicos ({@link ImageType}) → 415 si no es soportado</li>
+     *     <li>El límite de tamaño se comprueba al vuelo → 413 en cuanto se supera</li>
+     *     <li>Con el procesado activo ({@link ImageProcessingService}) el archivo validado se reúne en memoria
+     *     (como mucho {@code supabase.upload.max-size}) para generar las variantes; si no, los DataBuffers
+     *     van directo al PUT de Supabase sin copiarse</li>
+     * </ul>
+     *
+     * @return URL pública del objeto subido
+     */
+    public Mono<String> uploadImageStream(String folder, Flux<DataBuffer> content) {
+        return Flux.defer(() -> {
+                    AtomicLong received = new AtomicLong();
+                    AtomicInteger chunks = new AtomicInteger();
+                    AtomicInteger largestChunk = new AtomicInteger();
+                    AtomicLong headerBytes = new AtomicLong();
+
+                    return content
+                            .handle((DataBuffer buffer, SynchronousSink<DataBuffer> sink) -> {
+                                int size = buffer.readableByteCount();
+                                chunks.incrementAndGet();
+                                largestChunk.accumulateAndGet(size, Math::max);
+                                if (received.addAndGet(size) > maxUploadBytes) {
+                                    DataBufferUtils.release(buffer);
+                                    sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                            "La imagen supera el máximo de " + maxUploadBytes + " bytes"));
+                                } else {
+                                    sink.next(buffer);
+                                }
+                            })
+                            // Se retienen solo los primeros buffers hasta tener la cabecera; luego pasan uno a uno
+                            .bufferUntil(buffer -> headerBytes.addAndGet(buffer.readableByteCount()) >= ImageType.HEADER_BYTES)
+                            .switchOnFirst((first, all) -> {
+                                if (!first.hasValue()) {
+                                    return all.thenMany(Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Imagen vacía")));
+                                }
+                                ImageType type = ImageType.sniff(header(first.get())).orElse(null);
+                                if (type == null) {
+                                    return Flux.error(new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                                            "Formato de imagen no soportado (PNG, JPEG, GIF o WEBP)"));
+                                }
+                                Flux<DataBuffer> body = all.concatMapIterable(buffers -> buffers);
+                                if (imageProcessing.isEnabled()) {
+                                    return DataBufferUtils.join(body, (int) maxUploadBytes)
+                                            .map(SupabaseStorageService::drain)
+                                            .flatMap(bytes -> storeImage(folder, bytes, type))
+                                            .flux();
+                                }
+                                String path = folder + "/" + UUID.randomUUID() + type.extension();
+                                // El cuerpo llega del cliente y no se puede repetir: sin reintentos
+                                return http.once(put(path, type.contentType(), BodyInserters.fromDataBuffers(body))).flux();
+                            })
+                            .doOnComplete(() -> {
+                                uploadBytes.record(received.get());
+                                uploadChunks.record(chunks.get());
+                                uploadLargestChunk.record(largestChunk.get());
+                                log.info("📦 Imagen subida en streaming: {} bytes en {} buffers (mayor: {} bytes)",
+                                        received.get(), chunks.get(), largestChunk.get());
+                            });
+                })
+                .next()
+                // Los errores de validación ocurren al escribir el cuerpo del PUT: se devuelven sin envolver
+                .onErrorMap(WebClientRequestException.class,
+                        e -> e.getCause() instanceof ResponseStatusException status ? status : e)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .doOnDiscard(List.class, SupabaseStorageService::releaseAll);
+    }
+
+    // Listas de bufferUntil descartadas (cancelación o error) con los buffers de la cabecera aún retenidos
+    private static void releaseAll(List<?> buffers) {
+        for (Object buffer : buffers) {
+            if (buffer instanceof DataBuffer dataBuffer) DataBufferUtils.release(dataBuffer);
+        }
+    }
+
+    /**
+     * 🖼️ Sube las variantes normalizadas de la imagen y devuelve la URL del original.
+     * Si el formato no se puede procesar (p. ej. WEBP) se sube el archivo tal cual.
+     */
+    private Mono<String> storeImage(String folder, byte[] imageBytes, ImageType type) {
+        Mono<String> unprocessed = Mono.defer(() -> putObject(folder + "/" + UUID.randomUUID() + type.extension(),
+                type.contentType(), imageBytes));
+        if (!imageProcessing.isEnabled()) return unprocessed;
+
+        return imageProcessing.process(folder, imageBytes)
+                .flatMap(variants -> Flux.fromIterable(variants)
+                        .flatMap(variant -> putObject(variant.path(), variant.contentType(), variant.content())
+                                .map(url -> Map.entry(variant.name(), url)))
+                        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                        .map(urls -> urls.get(ImageProcessingService.ORIGINAL)))
+                .switchIfEmpty(unprocessed);
+    }
+
+    // PUT con x-upsert: idempotente y con el cuerpo en memoria → se puede reintentar
+    private Mono<String> putObject(String path, String contentType, byte[] content) {
+        return http.idempotent(put(path, contentType, BodyInserters.fromValue(content)));
+    }
+
+    private Mono<String> put(String path, String contentType, BodyInserter<?, ? super ClientHttpRequest> body) {
+        return webClient.put()
+                .uri("/object/{bucket}/{path}", bucket, path)
+                .httpRequest(http.responseTimeout("upload"))
+                .header("x-upsert", "true")
+                .contentType(MediaType.parseMediaType(contentType))
+                .body(body)
                 .retrieve()
-                .bodyToMono(Void.class);
+                .bodyToMono(String.class)
+                .map(response -> projectUrl + "/storage/v1/object/public/" + bucket + "/" + path);
+    }
+
+    private static byte[] drain(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    // Primeros HEADER_BYTES bytes de los buffers retenidos (sin consumirlos)
+    private static byte[] header(List<DataBuffer> buffers) {
+        byte[] header = new byte[ImageType.HEADER_BYTES];
+        int filled = 0;
+        for (DataBuffer buffer : buffers) {
+            int readPosition = buffer.readPosition();
+            for (int i = 0; i < buffer.readableByteCount() && filled < header.length; i++) {
+                header[filled++] = buffer.getByte(readPosition + i);
+            }
+        }
+        return filled == header.length ? header : Arrays.copyOf(header, filled);
+    }
+
+    /**
+     * 🔗 URLs de las miniaturas de una imagen subida por {@link #storeImage}
+     */
+    public Map<String, String> variantUrls(String publicUrl) {
+        return imageProcessing.variantUrls(publicUrl);
+    }
+
+    /**
+     * 📂 Rutas dentro del bucket de una imagen pública y, si fue procesada, de todas sus variantes
+     */
+    public List<String> objectPaths(String publicUrl) {
+        if (!StringUtils.hasText(publicUrl)) return List.of();
+
+        Map<String, String> variants = variantUrls(publicUrl);
+        return (variants != null ? variants.values() : List.of(publicUrl)).stream()
+                .map(this::objectPath)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public String publicUrl(String objectPath) {
+        return projectUrl + "/storage/v1/object/public/" + bucket + "/" + objectPath;
+    }
+
+    // Ruta relativa dentro del bucket (después de `/object/public/<bucket>/`), o null si la URL no es de este bucket
+    private String objectPath(String publicUrl) {
+        String prefix = "/object/public/" + bucket + "/";
+        int start = publicUrl.indexOf(prefix);
+        return start < 0 ? null : publicUrl.substring(start + prefix.length());
+    }
+
+    /**
+     * 🗑️ Borrado masivo: una sola petición {@code DELETE /object/{bucket}} con todas las rutas.
+     * Los objetos que ya no existen se ignoran (idempotente).
+     */
+    public Mono<Void> deleteObjects(List<String> objectPaths) {
+        if (objectPaths.isEmpty()) return Mono.empty();
+
+        return http.idempotent(webClient.method(HttpMethod.DELETE)
+                .uri("/object/{bucket}", bucket)
+                .httpRequest(http.responseTimeout("delete"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("prefixes", objectPaths))
+                .retrieve()
+                .bodyToMono(Void.class));
+    }
+
+    /**
+     * 📃 Lista una página de objetos de una carpeta (solo archivos, ordenados por nombre)
+     */
+    public Flux<StoredObject> listObjects(String folder, int limit, int offset) {
+        return http.once(webClient.post()
+                .uri("/object/list/{bucket}", bucket)
+                .httpRequest(http.responseTimeout("list"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of(
+                        "prefix", folder,
+                        "limit", limit,
+                        "offset", offset,
+                        "sortBy", Map.of("column", "name", "order", "asc")))
+                .retrieve()
+                .bodyToFlux(ListedObject.class))
+                .filter(listed -> listed.id() != null) // las subcarpetas no tienen id
+                .map(listed -> new StoredObject(folder + "/" + listed.name(), listed.created_at()));
+    }
+
+    /**
+     * Imagen recibida en base64 ya decodificada, con su formato real.
+     */
+    public record DecodedImage(ImageType type, byte[] content) {
+    }
+
+    /**
+     * Objeto del bucket: ruta relativa y fecha de creación.
+     */
+    public record StoredObject(String path, Instant createdAt) {
+    }
+
+    // Elemento de la respuesta de /object/list de Supabase
+    private record ListedObject(String id, String name, Instant created_at) {
     }
 }
@@ -0,0 +1,256 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.config.MeteredConnectionFactory;
+import pe.edu.vallegrande.user.dto.UserChangeEventDto;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.repository.UserChangeEventRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reparte los eventos de user_change_events entre todos los suscriptores de /api/admin/users/events.
+ * <ul>
+ *     <li>Un único lector por instancia: espera a {@code LISTEN user_change_events} (una conexión propia,
+ *     fuera del pool) o, como red de seguridad, a {@code poll-interval}; entonces lee de una vez todo lo
+ *     nuevo y lo emite a todos los suscriptores. El número de suscriptores no añade consultas</li>
+ *     <li>Cada suscriptor se pone al día desde su offset con consultas paginadas y después sigue con los
+ *     eventos en vivo, sin huecos ni repetidos</li>
+ *     <li>Un suscriptor que no consume acumula como mucho {@code subscriber-buffer} eventos; después se le
+ *     corta la conexión y reanuda desde su último offset</li>
+ *     <li>Los eventos más antiguos que {@code retention} se borran; reanudar desde antes responde 410</li>
+ * </ul>
+ * Métricas: {@code user.events.published}, {@code user.events.subscribers} y {@code user.events.overflow}.
+ */
+@Slf4j
+@Service
+public class UserChangeEventStream implements SmartLifecycle {
+
+    private final UserChangeEventRepository eventRepository;
+    private final Supplier<Flux<Long>> notifications;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final int subscriberBuffer;
+    private final Duration retention;
+
+    private final Sinks.Many<UserChangeEventDto> live = Sinks.many().multicast().directBestEffort();
+    // Último offset emitido en vivo (-1 hasta la primera lectura)
+    private final AtomicLong position = new AtomicLong(-1);
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter published;
+    private final Counter overflow;
+    private volatile Disposable tailing;
+
+    @Autowired
+    public UserChangeEventStream(
+            UserChangeEventRepository eventRepository,
+            MeteredConnectionFactory connectionFactory,
+            MeterRegistry meterRegistry,
+            @Value("${user.events.listen:true}") boolean listen,
+            @Value("${user.events.poll-interval:5s}") Duration pollInterval,
+            @Value("${user.events.batch-size:500}") int batchSize,
+            @Value("${user.events.subscriber-buffer:1024}") int subscriberBuffer,
+            @Value("${user.events.retention:7d}") Duration retention
+    ) {
+        // Sin LISTEN (p. ej. detrás de PgBouncer en modo transacción) solo queda el sondeo
+        this(eventRepository, listen ? () -> listen(connectionFactory.unwrap().unwrap()) : Flux::never,
+                meterRegistry, pollInterval, batchSize, subscriberBuffer, retention);
+    }
+
+    UserChangeEventStream(UserChangeEventRepository eventRepository, Supplier<Flux<Long>> notifications,
+                          MeterRegistry meterRegistry, Duration pollInterval, int batchSize, int subscriberBuffer,
+                          Duration retention) {
+        this.eventRepository = eventRepository;
+        this.notifications = notifications;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.subscriberBuffer = subscriberBuffer;
+        this.retention = retention;
+
+        this.published = Counter.builder("user.events.published")
+                .description("Eventos de cambios de usuarios emitidos a los suscriptores de esta instancia")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("user.events.overflow")
+                .description("Suscriptores desconectados por no consumir los eventos a tiempo")
+                .register(meterRegistry);
+        Gauge.builder("user.events.subscribers", subscribers, AtomicInteger::get)
+                .description("Suscriptores conectados a /api/admin/users/events")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 📡 Eventos con offset mayor que {@code after} y, a continuación, los nuevos en vivo (no termina).
+     *
+     * @param after último offset recibido; {@code null} = solo los cambios a partir de ahora
+     */
+    public Flux<UserChangeEventDto> events(Long after) {
+        return Flux.defer(() -> {
+            // Primero se engancha al directo: lo que se emita mientras se lee el historial queda en el buffer
+            Sinks.Many<UserChangeEventDto> pending = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<UserChangeEventDto>get(subscriberBuffer).get());
+            Disposable subscription = live.asFlux().subscribe(event -> {
+                if (pending.tryEmitNext(event) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    overflow.increment();
+                    pending.tryEmitError(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Suscriptor demasiado lento: reconecta desde el último offset recibido"));
+                }
+            });
+
+            AtomicLong delivered = new AtomicLong();
+            Mono<Long> start = after == null ? eventRepository.lastOffset() : checkRetention(after);
+            return start
+                    .doOnNext(delivered::set)
+                    .flatMapMany(offset -> Flux.concat(history(offset), pending.asFlux()))
+                    // Lo que ya llegó en el historial puede repetirse en el directo
+                    .filter(event -> event.getOffset() > delivered.get())
+                    .doOnNext(event -> delivered.set(event.getOffset()))
+                    .doOnSubscribe(s -> subscribers.incrementAndGet())
+                    .doFinally(signal -> {
+                        subscription.dispose();
+                        subscribers.decrementAndGet();
+                    });
+        });
+    }
+
+    /**
+     * Solo los eventos en vivo que lee esta instancia, sin historial (p. ej. para invalidar cachés locales).
+     * El suscriptor debe ser rápido: si no hay demanda, el evento se pierde para él.
+     */
+    public Flux<UserChangeEventDto> live() {
+        return live.asFlux();
+    }
+
+    // 410 si el offset ya se borró por antigüedad: el consumidor tiene que volver a sincronizar completo
+    private Mono<Long> checkRetention(long after) {
+        return eventRepository.firstOffset()
+                .flatMap(first -> after < first - 1
+                        ? Mono.error(new ResponseStatusException(HttpStatus.GONE, "El offset " + after
+                        + " ya no está disponible (se conservan " + retention.toDays() + " días): vuelve a"
+                        + " sincronizar con GET /api/admin/users"))
+                        : Mono.just(after));
+    }
+
+    // Páginas de batch-size desde el offset dado hasta el último evento guardado
+    private Flux<UserChangeEventDto> history(long after) {
+        return eventRepository.findAfter(after, batchSize).collectList()
+                .expand(page -> page.size() < batchSize
+                        ? Mono.empty()
+                        : eventRepository.findAfter(page.get(page.size() - 1).getOffset(), batchSize).collectList())
+                .flatMapIterable(Function.identity())
+                .map(UserChangeEventStream::toDto);
+    }
+
+    @Override
+    public void start() {
+        tailing = tail()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("⚠️ Lectura de user_change_events interrumpida, se reintenta: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    // Cada aviso (NOTIFY con el último offset insertado) o cada poll-interval lee todo lo nuevo; los avisos
+    // que llegan mientras se lee se agrupan en una sola lectura
+    private Mono<Void> tail() {
+        Mono<Long> initial = Mono.defer(() -> position.get() >= 0
+                ? Mono.just(position.get())
+                : eventRepository.lastOffset().doOnNext(position::set));
+        return initial.thenMany(Flux.merge(notifications.get(), Flux.interval(pollInterval).map(tick -> Long.MAX_VALUE))
+                        .onBackpressureLatest()
+                        .concatMap(notified -> notified > position.get() ? publishNew() : Mono.empty(), 1))
+                .then();
+    }
+
+    Mono<Void> publishNew() {
+        return history(position.get())
+                .doOnNext(event -> {
+                    position.set(event.getOffset());
+                    published.increment();
+                    live.tryEmitNext(event); // sin suscriptores no hay a quién enviarlo
+                })
+                .then();
+    }
+
+    /**
+     * 🧹 Borra los eventos más antiguos que {@code retention}
+     */
+    @Scheduled(fixedDelayString = "${user.events.cleanup-interval-ms:3600000}")
+    public Mono<Void> purge() {
+        return eventRepository.deleteOlderThan(retention.toSeconds())
+                .doOnNext(deleted -> {
+                    if (deleted > 0) log.info("🧹 {} evento(s) de cambios de usuarios borrados por antigüedad", deleted);
+                })
+                .onErrorResume(e -> {
+                    log.error("❌ Error al borrar eventos antiguos de user_change_events", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = tailing;
+        if (current != null) current.dispose();
+        tailing = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return tailing != null;
+    }
+
+    // Conexión dedicada del driver (no del pool: LISTEN la ocupa mientras haya aplicación)
+    private static Flux<Long> listen(ConnectionFactory driver) {
+        return Flux.usingWhen(Mono.from(driver.create()),
+                connection -> {
+                    PostgresqlConnection postgres = postgres(connection);
+                    return postgres.createStatement("LISTEN " + UserChangeEventRepository.CHANNEL).execute()
+                            .flatMap(PostgresqlResult::getRowsUpdated)
+                            .thenMany(postgres.getNotifications())
+                            .map(notification -> notification.getParameter() == null
+                                    ? Long.MAX_VALUE : Long.parseLong(notification.getParameter()));
+                },
+                Connection::close);
+    }
+
+    // La conexión puede venir envuelta (p. ej. por la observación de consultas de r2dbc-proxy)
+    private static PostgresqlConnection postgres(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection postgres) return postgres;
+        throw new IllegalStateException("LISTEN requiere una conexión de r2dbc-postgresql: " + connection.getClass());
+    }
+
+    static UserChangeEventDto toDto(UserChangeEvent event) {
+        return new UserChangeEventDto(event.getOffset(), event.getType(), event.getUserId(), event.getFirebaseUid(),
+                event.getCreatedAt(), event.getPayload());
+    }
+}
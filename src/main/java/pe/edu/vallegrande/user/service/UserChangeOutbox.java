@@ -0,0 +1,50 @@
+package pe.edu.vallegrande.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.repository.UserChangeEventRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Outbox transaccional de cambios de usuarios (user_change_events). Se llama dentro de la misma transacción
+ * que el cambio y como último paso antes del commit: si la transacción se deshace, el evento tampoco existe.
+ * {@link UserChangeEventStream} los reparte a los suscriptores de /api/admin/users/events.
+ */
+@Service
+public class UserChangeOutbox {
+
+    private final UserChangeEventRepository eventRepository;
+    private final ObjectMapper objectMapper;
+
+    public UserChangeOutbox(UserChangeEventRepository eventRepository, ObjectMapper objectMapper) {
+        this.eventRepository = eventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public Mono<Void> append(UserChangeEvent.Type type, UserDto user) {
+        return appendAll(type, List.of(user));
+    }
+
+    /**
+     * 📣 Varios eventos del mismo tipo en una sola sentencia (p. ej. un lote de importación)
+     */
+    public Mono<Void> appendAll(UserChangeEvent.Type type, List<UserDto> users) {
+        if (users.isEmpty()) return Mono.empty();
+        return Mono.fromCallable(() -> {
+                    String[] payloads = new String[users.size()];
+                    for (int i = 0; i < payloads.length; i++) {
+                        payloads[i] = objectMapper.writeValueAsString(users.get(i));
+                    }
+                    return payloads;
+                })
+                .flatMap(payloads -> eventRepository.append(type.name(),
+                        users.stream().map(UserDto::getId).toArray(Integer[]::new),
+                        users.stream().map(UserDto::getFirebaseUid).toArray(String[]::new),
+                        payloads))
+                .then();
+    }
+}
@@ -0,0 +1,59 @@
+package pe.edu.vallegrande.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.repository.UserCreationRequestRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Compensa las altas de {@link UserCreationService} que quedaron en curso más de {@code stale-after}
+ * (la instancia cayó a mitad de la saga) y purga los registros terminados tras {@code retention}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "user.creation.recovery.enabled", havingValue = "true", matchIfMissing = true)
+public class UserCreationRecoveryWorker {
+
+    private final UserCreationRequestRepository requests;
+    private final UserCreationService creationService;
+    private final Duration staleAfter;
+    private final Duration retention;
+    private final int batchSize;
+
+    public UserCreationRecoveryWorker(
+            UserCreationRequestRepository requests,
+            UserCreationService creationService,
+            @Value("${user.creation.recovery.stale-after:5m}") Duration staleAfter,
+            @Value("${user.creation.retention:24h}") Duration retention,
+            @Value("${user.creation.recovery.batch-size:50}") int batchSize
+    ) {
+        this.requests = requests;
+        this.creationService = creationService;
+        this.staleAfter = staleAfter;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * ↩️ Reclama las altas abandonadas y deshace sus pasos (Firebase e imagen)
+     */
+    @Scheduled(fixedDelayString = "${user.creation.recovery.poll-interval-ms:60000}")
+    public Mono<Void> recover() {
+        return requests.claimStale(staleAfter.toSeconds(), batchSize)
+                .concatMap(creationService::compensate)
+                .then(requests.purgeFinished(retention.toSeconds()))
+                .doOnNext(purged -> {
+                    if (purged > 0) log.debug("🧹 {} registros de altas terminadas purgados", purged);
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.error("❌ Error en la recuperación de altas de usuario", e);
+                    return Mono.empty();
+                });
+    }
+}
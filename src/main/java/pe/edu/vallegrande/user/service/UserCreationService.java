@@ -0,0 +1,263 @@
+package pe.edu.vallegrande.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.dto.UserCreateDto;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.Emails;
+import pe.edu.vallegrande.user.model.Roles;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.model.UserCreationRequest;
+import pe.edu.vallegrande.user.repository.UserCreationRequestRepository;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Alta de usuarios como saga idempotente, con su registro de pasos en {@code user_creation_requests}:
+ * <ol>
+ *     <li>Reserva: un solo INSERT guarda la {@code Idempotency-Key}, el email (único entre las altas en curso
+ *     y los usuarios existentes) y el UID de Firebase, generado aquí antes de llamar a Firebase</li>
+ *     <li>Firebase: {@code createUser} con ese UID (Firebase rechaza un email que ya tenga cuenta, aunque no
+ *     esté en {@code users}) y después {@code setCustomUserClaims} con el claim {@code role}</li>
+ *     <li>Imagen: subida a Supabase (opcional)</li>
+ *     <li>BD: INSERT del usuario y cierre del registro en la misma transacción</li>
+ * </ol>
+ * Si un paso falla se compensan los anteriores (se borra la cuenta de Firebase y se encola el borrado de la
+ * imagen) y el registro queda FAILED. Si la instancia cae a mitad, {@link UserCreationRecoveryWorker}
+ * compensa las altas que quedaron en curso. Un reintento con la misma clave:
+ * <ul>
+ *     <li>COMPLETED → responde con el usuario creado, sin repetir ninguna llamada externa</li>
+ *     <li>STARTED → 409 (sigue en curso; la saga no se cancela si el cliente corta la conexión)</li>
+ *     <li>FAILED → vuelve a empezar</li>
+ *     <li>Otro cuerpo con la misma clave → 422 (la contraseña no cuenta: no se guarda ni siquiera en la huella)</li>
+ * </ul>
+ * Métricas: {@code user.creation{outcome=created|replayed|in_progress|conflict|compensated}}.
+ */
+@Slf4j
+@Service
+public class UserCreationService {
+
+    public static final int MAX_KEY_LENGTH = 100;
+    private static final int MIN_PASSWORD_LENGTH = 6; // mínimo de Firebase Authentication
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final UserCreationRequestRepository requests;
+    private final UsersRepository usersRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final FirebaseGateway firebaseGateway;
+    private final SupabaseStorageService storageService;
+    private final StorageCleanupService storageCleanupService;
+    private final UserService userService;
+    private final TransactionalOperator transactionalOperator;
+    private final UserChangeOutbox userChangeOutbox;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public UserCreationService(UserCreationRequestRepository requests, UsersRepository usersRepository,
+                               PasswordHashingService passwordHashingService, FirebaseGateway firebaseGateway,
+                               SupabaseStorageService storageService, StorageCleanupService storageCleanupService,
+                               UserService userService, TransactionalOperator transactionalOperator,
+                               UserChangeOutbox userChangeOutbox, ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry) {
+        this.requests = requests;
+        this.usersRepository = usersRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.firebaseGateway = firebaseGateway;
+        this.storageService = storageService;
+        this.storageCleanupService = storageCleanupService;
+        this.userService = userService;
+        this.transactionalOperator = transactionalOperator;
+        this.userChangeOutbox = userChangeOutbox;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 🔹 Crea el usuario en Firebase, Supabase y la BD
+     *
+     * @param idempotencyKey cabecera {@code Idempotency-Key}; sin ella cada llamada es un alta nueva
+     */
+    public Mono<UserDto> create(UserCreateDto dto, String idempotencyKey) {
+        return Mono.defer(() -> {
+            validate(dto, idempotencyKey);
+            String key = StringUtils.hasText(idempotencyKey) ? idempotencyKey.trim() : UUID.randomUUID().toString();
+            String email = Emails.normalize(dto.getEmail());
+            String requestHash = requestHash(dto);
+            String uid = FirebaseUids.newUid();
+
+            return requests.reserve(key, requestHash, email, uid)
+                    .flatMap(reserved -> reserved > 0
+                            // La saga sigue aunque el cliente corte: el reintento la encontrará terminada
+                            ? Mono.fromFuture(() -> run(key, uid, email, dto).toFuture(), true)
+                            : replay(key, requestHash, dto, idempotencyKey));
+        });
+    }
+
+    // Reserva fallida: la clave ya existe o el email está ocupado
+    private Mono<UserDto> replay(String key, String requestHash, UserCreateDto dto, String idempotencyKey) {
+        return requests.findById(key)
+                .switchIfEmpty(Mono.defer(() -> {
+                    count("conflict");
+                    return Mono.error(new DuplicateKeyException("El correo ya está en uso."));
+                }))
+                .flatMap(previous -> {
+                    if (!previous.getRequestHash().equals(requestHash)) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                                "La Idempotency-Key ya se usó con otra petición"));
+                    }
+                    return switch (previous.getStatus()) {
+                        case UserCreationRequest.COMPLETED -> usersRepository.findById(previous.getUserId())
+                                .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
+                                .map(userService::toDto)
+                                .doOnSuccess(user -> count("replayed"));
+                        case UserCreationRequest.FAILED -> requests.deleteFailed(key)
+                                .then(create(dto, idempotencyKey));
+                        default -> {
+                            count("in_progress");
+                            yield Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                                    "El alta con esta Idempotency-Key sigue en curso; reinténtalo en unos segundos"));
+                        }
+                    };
+                });
+    }
+
+    private Mono<UserDto> run(String key, String uid, String email, UserCreateDto dto) {
+        List<String> roles = roles(dto);
+        Saga saga = new Saga(key, uid);
+
+        return passwordHashingService.encode(dto.getPassword())
+                // 🔐 Firebase: cuenta con el UID ya registrado y luego su claim
+                .flatMap(hash -> {
+                    saga.firebaseCreated = true; // ante un error de red no se sabe si llegó a crearla
+                    return firebaseGateway.createUser(uid, email, dto.getPassword())
+                            .doOnError(DuplicateKeyException.class, e -> saga.firebaseCreated = false) // no es nuestra
+                            .then(firebaseGateway.setCustomUserClaims(uid, Roles.claims(roles)))
+                            .thenReturn(hash);
+                })
+                .delayUntil(hash -> requests.markStep(key, "FIREBASE_CREATED"))
+                // 🖼️ Supabase (opcional)
+                .flatMap(hash -> storageService.uploadBase64Image("users", dto.getProfileImage())
+                        .flatMap(imageUrl -> {
+                            saga.imageUrl = imageUrl;
+                            return requests.markImageUploaded(key, imageUrl).thenReturn(imageUrl);
+                        })
+                        .map(imageUrl -> toEntity(dto, uid, email, hash, roles, imageUrl))
+                        .defaultIfEmpty(toEntity(dto, uid, email, hash, roles, null)))
+                // 💾 Usuario, cierre del registro y evento CREATED, juntos o ninguno
+                .flatMap(user -> transactionalOperator.transactional(usersRepository.save(user)
+                        .delayUntil(saved -> requests.complete(key, saved.getId()))
+                        .delayUntil(saved -> userChangeOutbox.append(UserChangeEvent.Type.CREATED, userService.toDto(saved)))))
+                .map(userService::toDto)
+                .doOnSuccess(user -> count("created"))
+                .onErrorResume(e -> compensate(saga, e).then(Mono.error(translate(e))));
+    }
+
+    /**
+     * ↩️ Deshace los pasos hechos y cierra el registro como FAILED. Si la compensación falla, el registro
+     * sigue en curso y lo reintenta {@link UserCreationRecoveryWorker}.
+     */
+    Mono<Void> compensate(UserCreationRequest request) {
+        // Tras una caída no se sabe si Firebase llegó a crear la cuenta: borrar un UID inexistente no hace nada
+        Saga saga = new Saga(request.getIdempotencyKey(), request.getFirebaseUid());
+        saga.firebaseCreated = true;
+        saga.imageUrl = request.getProfileImage();
+        return compensate(saga, new IllegalStateException("Alta abandonada en el paso " + request.getStep()));
+    }
+
+    private Mono<Void> compensate(Saga saga, Throwable cause) {
+        Mono<Void> firebase = saga.firebaseCreated ? firebaseGateway.deleteUsers(List.of(saga.uid)) : Mono.empty();
+        Mono<Void> image = saga.imageUrl != null ? storageCleanupService.deleteImageLater(saga.imageUrl) : Mono.empty();
+        String error = String.valueOf(cause.getMessage());
+        return firebase
+                .then(image)
+                .then(requests.fail(saga.key, error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error))
+                .doOnSuccess(done -> {
+                    count("compensated");
+                    log.warn("↩️ Alta {} compensada (firebase={}, imagen={}): {}", saga.key, saga.firebaseCreated,
+                            saga.imageUrl != null, error);
+                })
+                .onErrorResume(e -> {
+                    log.error("❌ No se pudo compensar el alta {}; la reintentará el worker de recuperación", saga.key, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static Throwable translate(Throwable e) {
+        // Otro proceso (importación, cambio de email) guardó el mismo email entre la reserva y el INSERT
+        if (e instanceof DataIntegrityViolationException) {
+            return new DuplicateKeyException("El correo ya está en uso.", e);
+        }
+        return e;
+    }
+
+    private static void validate(UserCreateDto dto, String idempotencyKey) {
+        if (idempotencyKey != null && idempotencyKey.trim().length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("La Idempotency-Key no puede superar " + MAX_KEY_LENGTH + " caracteres");
+        }
+        if (dto == null || dto.getEmail() == null || !dto.getEmail().contains("@")) {
+            throw new IllegalArgumentException("Email inválido");
+        }
+        if (dto.getPassword() == null || dto.getPassword().length() < MIN_PASSWORD_LENGTH) {
+            throw new IllegalArgumentException("La contraseña debe tener al menos " + MIN_PASSWORD_LENGTH + " caracteres");
+        }
+    }
+
+    private static User toEntity(UserCreateDto dto, String uid, String email, String passwordHash,
+                                 List<String> roles, String imageUrl) {
+        return new User(null, uid, dto.getName(), dto.getLastName(), dto.getDocumentType(), dto.getDocumentNumber(),
+                dto.getCellPhone(), email, passwordHash, roles, imageUrl, null);
+    }
+
+    private static List<String> roles(UserCreateDto dto) {
+        List<String> roles = Roles.normalize(dto.getRole());
+        return roles == null || roles.isEmpty() ? List.of(Roles.USER) : roles;
+    }
+
+    // Huella del cuerpo para detectar una clave reutilizada con otra petición. Sin la contraseña: el hash se
+    // guarda junto al resto de campos y, con ella dentro, bastaría leer la tabla para probarla por fuerza bruta
+    private String requestHash(UserCreateDto dto) {
+        try {
+            ObjectNode body = objectMapper.valueToTree(dto);
+            body.remove("password");
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("user.creation", "outcome", outcome).increment();
+    }
+
+    // Pasos ya hechos de una saga en curso (lo que habría que compensar)
+    private static final class Saga {
+        final String key;
+        final String uid;
+        volatile boolean firebaseCreated;
+        volatile String imageUrl;
+
+        Saga(String key, String uid) {
+            this.key = key;
+            this.uid = uid;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package pe.edu.vallegrande.user.service;
+
+import pe.edu.vallegrande.user.dto.UserCreateDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * CSV de importación de usuarios, línea a línea (sin cargar el archivo en memoria).
+ * <ul>
+ *     <li>Primera línea: cabecera con los nombres de los campos de {@link UserCreateDto}
+ *     ({@code name,lastName,documentType,documentNumber,cellPhone,email,password,role}), en cualquier orden;
+ *     también se acepta snake_case ({@code last_name})</li>
+ *     <li>Separador {@code ,}; campos entre comillas dobles con {@code ""} como comilla escapada
+ *     (sin saltos de línea dentro de un campo)</li>
+ *     <li>{@code role}: varios roles separados por {@code |}</li>
+ * </ul>
+ * Una fila mal formada no corta la importación: se devuelve con su error.
+ */
+final class UserCsvParser {
+
+    private static final List<String> FIELDS = List.of(
+            "name", "lastname", "documenttype", "documentnumber", "cellphone", "email", "password", "role");
+
+    private UserCsvParser() {
+    }
+
+    static Flux<UserImportService.ImportRow> parse(Flux<String> lines) {
+        return Flux.defer(() -> {
+            AtomicReference<Map<String, Integer>> header = new AtomicReference<>();
+            AtomicInteger rowNumber = new AtomicInteger();
+            return lines
+                    .filter(line -> !line.isBlank())
+                    .handle((String line, SynchronousSink<UserImportService.ImportRow> sink) -> {
+                        if (header.get() == null) {
+                            try {
+                                header.set(header(line));
+                            } catch (IllegalArgumentException e) {
+                                sink.error(e);
+                            }
+                            return;
+                        }
+                        int row = rowNumber.incrementAndGet();
+                        try {
+                            sink.next(new UserImportService.ImportRow(row, toUser(header.get(), split(line)), null));
+                        } catch (IllegalArgumentException e) {
+                            sink.next(new UserImportService.ImportRow(row, null, e.getMessage()));
+                        }
+                    });
+        });
+    }
+
+    private static Map<String, Integer> header(String line) {
+        List<String> columns = split(line.replace("\uFEFF", "")); // BOM de Excel
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String field = columns.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            if (FIELDS.contains(field)) positions.putIfAbsent(field, i);
+        }
+        if (!positions.containsKey("email") || !positions.containsKey("password")) {
+            throw new IllegalArgumentException("La cabecera del CSV debe incluir al menos las columnas email y password");
+        }
+        return positions;
+    }
+
+    private static UserCreateDto toUser(Map<String, Integer> header, List<String> values) {
+        UserCreateDto user = new UserCreateDto();
+        user.setName(value(header, values, "name"));
+        user.setLastName(value(header, values, "lastname"));
+        user.setDocumentType(value(header, values, "documenttype"));
+        user.setDocumentNumber(value(header, values, "documentnumber"));
+        user.setCellPhone(value(header, values, "cellphone"));
+        user.setEmail(value(header, values, "email"));
+        user.setPassword(value(header, values, "password"));
+        String roles = value(header, values, "role");
+        user.setRole(roles == null ? null : Arrays.stream(roles.split("\\|"))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .toList());
+        return user;
+    }
+
+    private static String value(Map<String, Integer> header, List<String> values, String field) {
+        Integer position = header.get(field);
+        if (position == null || position >= values.size()) return null;
+        String value = values.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Divide una línea respetando los campos entre comillas
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar en la fila");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,286 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.user.dto.UserCreateDto;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.dto.UserImportResultDto;
+import pe.edu.vallegrande.user.dto.UserImportResultDto.Status;
+import pe.edu.vallegrande.user.model.Emails;
+import pe.edu.vallegrande.user.model.Roles;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Importación masiva de usuarios (CSV o NDJSON) por lotes de {@code user.import.chunk-size} filas:
+ * <ol>
+ *     <li>Validación y duplicados dentro del archivo</li>
+ *     <li>Una sola consulta por lote para descartar los emails ya registrados en la BD, y {@code getUsers} de
+ *     Firebase (de {@value FirebaseGateway#MAX_LOOKUP_BATCH_SIZE} en {@value FirebaseGateway#MAX_LOOKUP_BATCH_SIZE})
+ *     para los que solo tienen cuenta allí: {@code importUsers} no comprueba emails repetidos</li>
+ *     <li>BCrypt en paralelo acotado ({@code user.import.hash-concurrency}); el mismo hash va a Firebase y a la BD</li>
+ *     <li>Una llamada {@code importUsers} de Firebase por lote, con el claim {@code role} incluido</li>
+ *     <li>Un único {@code INSERT} multi-fila por lote; si falla, las cuentas de Firebase del lote se borran</li>
+ * </ol>
+ * El resultado de cada fila se emite en cuanto termina su lote. La foto de perfil no se importa
+ * (cada usuario puede subirla después).
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final int MIN_PASSWORD_LENGTH = 6; // mínimo de Firebase Authentication
+
+    private final UsersRepository usersRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final FirebaseGateway firebaseGateway;
+    private final UserChangeOutbox userChangeOutbox;
+    private final TransactionalOperator transactionalOperator;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int hashConcurrency;
+    private final Timer chunkTimer;
+
+    public UserImportService(
+            UsersRepository usersRepository,
+            PasswordHashingService passwordHashingService,
+            FirebaseGateway firebaseGateway,
+            UserChangeOutbox userChangeOutbox,
+            TransactionalOperator transactionalOperator,
+            MeterRegistry meterRegistry,
+            @Value("${user.import.chunk-size:1000}") int chunkSize,
+            @Value("${user.import.hash-concurrency:8}") int hashConcurrency
+    ) {
+        this.usersRepository = usersRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.firebaseGateway = firebaseGateway;
+        this.userChangeOutbox = userChangeOutbox;
+        this.transactionalOperator = transactionalOperator;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, FirebaseGateway.MAX_BATCH_SIZE));
+        this.hashConcurrency = Math.max(1, hashConcurrency);
+        this.chunkTimer = Timer.builder("user.import.chunk")
+                .description("Duración de importar un lote de usuarios")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 📥 Importa un CSV con cabecera (ver {@link UserCsvParser}), leído línea a línea
+     */
+    public Flux<UserImportResultDto> importCsv(Flux<String> lines) {
+        return importRows(UserCsvParser.parse(lines));
+    }
+
+    /**
+     * 📥 Importa usuarios recibidos como NDJSON (un {@link UserCreateDto} por línea)
+     */
+    public Flux<UserImportResultDto> importUsers(Flux<UserCreateDto> users) {
+        return importRows(users.index((index, user) -> new ImportRow(index.intValue() + 1, user, null)));
+    }
+
+    private Flux<UserImportResultDto> importRows(Flux<ImportRow> rows) {
+        return Flux.defer(() -> {
+            Set<String> seenEmails = new HashSet<>(); // duplicados entre lotes del mismo archivo
+            return rows.buffer(chunkSize)
+                    .concatMap(chunk -> importChunk(chunk, seenEmails));
+        });
+    }
+
+    private Flux<UserImportResultDto> importChunk(List<ImportRow> rows, Set<String> seenEmails) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<UserImportResultDto> results = new ArrayList<>();
+        Map<String, ImportRow> candidates = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            String error = row.error() != null ? row.error() : validate(row.user());
+            if (error != null) {
+                results.add(result(row, Status.INVALID, null, error));
+                continue;
+            }
+            String email = Emails.normalize(row.user().getEmail());
+            if (!seenEmails.add(email)) {
+                results.add(result(row, Status.DUPLICATE, null, "Email repetido en el archivo"));
+            } else {
+                candidates.put(email, row);
+            }
+        }
+
+        Mono<List<UserImportResultDto>> created = candidates.isEmpty() ? Mono.just(List.of())
+                : usersRepository.findExistingEmails(candidates.keySet().toArray(String[]::new))
+                .collectList()
+                .flatMap(existing -> {
+                    for (String email : existing) {
+                        ImportRow row = candidates.remove(email);
+                        if (row != null) results.add(result(row, Status.DUPLICATE, null, "El correo ya está en uso."));
+                    }
+                    return candidates.isEmpty() ? Mono.just(List.of()) : excludeFirebaseAccounts(candidates, results);
+                });
+
+        return created
+                .map(createdResults -> {
+                    results.addAll(createdResults);
+                    results.sort(Comparator.comparingInt(UserImportResultDto::getRow));
+                    results.forEach(result -> meterRegistry.counter("user.import.rows",
+                            "status", result.getStatus().name()).increment());
+                    return results;
+                })
+                .doFinally(signal -> sample.stop(chunkTimer))
+                .flatMapIterable(Function.identity());
+    }
+
+    // Las filas cuyo email ya tiene cuenta en Firebase (sin fila en users) son duplicados: importUsers crearía otra
+    private Mono<List<UserImportResultDto>> excludeFirebaseAccounts(Map<String, ImportRow> candidates,
+                                                                    List<UserImportResultDto> results) {
+        return Flux.fromIterable(List.copyOf(candidates.keySet()))
+                .buffer(FirebaseGateway.MAX_LOOKUP_BATCH_SIZE)
+                .concatMap(firebaseGateway::findExistingEmails)
+                .flatMapIterable(Function.identity())
+                .collectList()
+                .doOnNext(existing -> {
+                    for (String email : existing) {
+                        ImportRow row = candidates.remove(email);
+                        if (row != null) results.add(result(row, Status.DUPLICATE, null, "El correo ya está en uso."));
+                    }
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.error("❌ Error al buscar en Firebase los emails de un lote de {} filas", candidates.size(), e);
+                    candidates.values().forEach(row -> results.add(
+                            result(row, Status.FAILED, null, "Firebase: " + e.getMessage())));
+                    candidates.clear();
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> candidates.isEmpty() ? Mono.just(List.of()) : createAccounts(candidates)));
+    }
+
+    // Firebase + BD para las filas válidas y nuevas del lote (clave = email normalizado)
+    private Mono<List<UserImportResultDto>> createAccounts(Map<String, ImportRow> candidates) {
+        return Flux.fromIterable(candidates.entrySet())
+                .flatMapSequential(entry -> passwordHashingService.encode(entry.getValue().user().getPassword())
+                        .map(hash -> new Pending(entry.getValue(), entry.getKey(), FirebaseUids.newUid(), hash)), hashConcurrency)
+                .collectList()
+                .flatMap(pending -> firebaseGateway.importUsers(pending.stream().map(Pending::account).toList())
+                        .flatMap(firebaseErrors -> {
+                            List<UserImportResultDto> results = new ArrayList<>();
+                            List<Pending> imported = new ArrayList<>();
+                            for (int i = 0; i < pending.size(); i++) {
+                                String error = firebaseErrors.get(i);
+                                if (error == null) {
+                                    imported.add(pending.get(i));
+                                } else {
+                                    results.add(result(pending.get(i).row(), Status.FAILED, null, "Firebase: " + error));
+                                }
+                            }
+                            return insert(imported).map(inserted -> {
+                                results.addAll(inserted);
+                                return results;
+                            });
+                        })
+                        .onErrorResume(e -> {
+                            log.error("❌ Error al importar un lote de {} cuentas en Firebase", pending.size(), e);
+                            return Mono.just(pending.stream()
+                                    .map(p -> result(p.row(), Status.FAILED, null, "Firebase: " + e.getMessage()))
+                                    .toList());
+                        }));
+    }
+
+    // INSERT multi-fila y sus eventos CREATED en la misma transacción; las cuentas de Firebase que no llegan
+    // a la BD se borran para poder reintentar
+    private Mono<List<UserImportResultDto>> insert(List<Pending> imported) {
+        if (imported.isEmpty()) return Mono.just(List.of());
+
+        return transactionalOperator.transactional(usersRepository.insertAll(imported.stream().map(Pending::toEntity).toList())
+                        .collectList()
+                        .delayUntil(inserted -> userChangeOutbox.appendAll(UserChangeEvent.Type.CREATED,
+                                inserted.stream().map(UserDto::fromEntity).toList())))
+                .flatMapIterable(Function.identity())
+                .collectMap(User::getEmail, User::getId)
+                .flatMap(ids -> {
+                    List<UserImportResultDto> results = new ArrayList<>();
+                    List<String> orphanUids = new ArrayList<>();
+                    for (Pending p : imported) {
+                        Integer id = ids.get(p.email());
+                        if (id != null) {
+                            results.add(result(p.row(), Status.CREATED, id, null));
+                        } else {
+                            // Otra petición registró el mismo email entre la consulta y el INSERT
+                            orphanUids.add(p.uid());
+                            results.add(result(p.row(), Status.DUPLICATE, null, "El correo ya está en uso."));
+                        }
+                    }
+                    return compensate(orphanUids).thenReturn(results);
+                })
+                .onErrorResume(e -> {
+                    log.error("❌ Error al insertar un lote de {} usuarios importados", imported.size(), e);
+                    List<UserImportResultDto> failed = imported.stream()
+                            .map(p -> result(p.row(), Status.FAILED, null, "Error al guardar en la BD"))
+                            .toList();
+                    return compensate(imported.stream().map(Pending::uid).toList()).thenReturn(failed);
+                });
+    }
+
+    private Mono<Void> compensate(List<String> uids) {
+        if (uids.isEmpty()) return Mono.empty();
+        return firebaseGateway.deleteUsers(uids)
+                .onErrorResume(e -> {
+                    log.error("❌ No se pudieron borrar {} cuentas huérfanas de Firebase: {}", uids.size(), uids, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static String validate(UserCreateDto user) {
+        if (user == null) return "Fila vacía";
+        String email = user.getEmail();
+        if (email == null || email.isBlank() || !email.contains("@")) return "Email inválido";
+        if (user.getPassword() == null || user.getPassword().length() < MIN_PASSWORD_LENGTH) {
+            return "La contraseña debe tener al menos " + MIN_PASSWORD_LENGTH + " caracteres";
+        }
+        return null;
+    }
+
+    private static UserImportResultDto result(ImportRow row, Status status, Integer id, String error) {
+        String email = row.user() == null ? null : row.user().getEmail();
+        return new UserImportResultDto(row.number(), email, status, id, error);
+    }
+
+    /**
+     * Fila leída del archivo: el usuario o, si no se pudo interpretar, el motivo.
+     */
+    record ImportRow(int number, UserCreateDto user, String error) {
+    }
+
+    // Fila válida con su UID y hash ya generados
+    private record Pending(ImportRow row, String email, String uid, String passwordHash) {
+
+        List<String> roles() {
+            List<String> roles = Roles.normalize(row.user().getRole());
+            return roles == null || roles.isEmpty() ? List.of(Roles.USER) : roles;
+        }
+
+        FirebaseGateway.ImportedAccount account() {
+            return new FirebaseGateway.ImportedAccount(uid, email, passwordHash,
+                    Roles.claims(roles()));
+        }
+
+        User toEntity() {
+            UserCreateDto dto = row.user();
+            return new User(null, uid, dto.getName(), dto.getLastName(), dto.getDocumentType(),
+                    dto.getDocumentNumber(), dto.getCellPhone(), email, passwordHash, roles(), null, null);
+        }
+    }
+}
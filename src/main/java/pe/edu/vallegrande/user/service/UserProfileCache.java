@@ -0,0 +1,138 @@
+package pe.edu.vallegrande.user.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Caché read-through de perfiles delante de {@code UsersRepository}.
+ * <ul>
+ *     <li>Claves: {@code uid:<firebaseUid>}, {@code id:<id>}, {@code email:<email>}; al cargar por
+ *     una clave se rellenan las otras dos</li>
+ *     <li>Nivel 1 local (Caffeine) con tamaño máximo y TTL; nivel 2 opcional {@link SecondLevelUserCache}</li>
+ *     <li>Cargas concurrentes de la misma clave comparten una sola consulta</li>
+ *     <li>{@code UserService} invalida en cada escritura; las demás instancias invalidan su nivel 1 al recibir
+ *     el evento del cambio ({@link UserProfileCacheInvalidator})</li>
+ * </ul>
+ * Métricas: {@code cache.gets{result=hit|miss}}, {@code cache.evictions}, {@code cache.size} con {@code cache=users}.
+ */
+@Service
+public class UserProfileCache {
+
+    private final AsyncCache<String, UserDto> local;
+    private final SecondLevelUserCache secondTier;
+    private final Duration ttl;
+
+    public UserProfileCache(
+            SecondLevelUserCache secondTier,
+            MeterRegistry meterRegistry,
+            @Value("${user.cache.max-size:10000}") long maxSize,
+            @Value("${user.cache.ttl:5m}") Duration ttl
+    ) {
+        this.secondTier = secondTier;
+        this.ttl = ttl;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "users");
+    }
+
+    public Mono<UserDto> getByFirebaseUid(String firebaseUid, Supplier<Mono<UserDto>> loader) {
+        return get(uidKey(firebaseUid), loader);
+    }
+
+    public Mono<UserDto> getById(Integer id, Supplier<Mono<UserDto>> loader) {
+        return get(idKey(id), loader);
+    }
+
+    public Mono<UserDto> getByEmail(String email, Supplier<Mono<UserDto>> loader) {
+        return get(emailKey(email), loader);
+    }
+
+    /**
+     * 🧹 Invalida todas las claves del usuario (más emails anteriores, p. ej. tras cambiar el correo)
+     */
+    public Mono<Void> evict(User user, String... previousEmails) {
+        List<String> keys = new ArrayList<>();
+        if (user.getFirebaseUid() != null) keys.add(uidKey(user.getFirebaseUid()));
+        if (user.getId() != null) keys.add(idKey(user.getId()));
+        if (user.getEmail() != null) keys.add(emailKey(user.getEmail()));
+        for (String email : previousEmails) {
+            if (email != null) keys.add(emailKey(email));
+        }
+        keys.forEach(key -> local.synchronous().invalidate(key));
+        return secondTier.evict(keys);
+    }
+
+    /**
+     * 🧹 Invalida solo el nivel 1 de esta instancia por un cambio hecho en otra (quien escribió ya invalidó
+     * el nivel 2). Incluye el email que tenía en caché, por si el cambio fue de correo.
+     */
+    public void evictLocal(Integer id, String firebaseUid, String email) {
+        List<String> keys = new ArrayList<>();
+        if (firebaseUid != null) keys.add(uidKey(firebaseUid));
+        if (id != null) keys.add(idKey(id));
+        if (email != null) keys.add(emailKey(email));
+        for (String key : List.copyOf(keys)) {
+            UserDto cached = local.synchronous().getIfPresent(key);
+            if (cached != null && cached.getEmail() != null) keys.add(emailKey(cached.getEmail()));
+        }
+        local.synchronous().invalidateAll(keys);
+    }
+
+    private Mono<UserDto> get(String key, Supplier<Mono<UserDto>> loader) {
+        return Mono.defer(() -> {
+            AtomicBoolean loaded = new AtomicBoolean();
+            CompletableFuture<UserDto> entry = local.get(key, (k, executor) -> {
+                loaded.set(true);
+                return secondTier.get(k)
+                        .switchIfEmpty(Mono.defer(loader)
+                                .flatMap(dto -> secondTier.put(k, dto, ttl).thenReturn(dto)))
+                        .toFuture();
+            });
+            return Mono.fromFuture(entry, true)
+                    .doOnNext(dto -> {
+                        if (loaded.get()) populateSiblings(key, entry, dto);
+                    });
+        });
+    }
+
+    // Un perfil cargado por uid también responde por id y email (y viceversa). Si la clave se invalidó
+    // mientras se cargaba, el perfil puede ser anterior a la escritura y no se propaga; tampoco se pisa
+    // una entrada que ya exista (puede ser más nueva)
+    private void populateSiblings(String loadedKey, CompletableFuture<UserDto> entry, UserDto dto) {
+        if (local.getIfPresent(loadedKey) != entry) return;
+        for (String key : List.of(uidKey(dto.getFirebaseUid()), idKey(dto.getId()), emailKey(dto.getEmail()))) {
+            if (!key.equals(loadedKey) && !key.endsWith(":null")) {
+                local.asMap().putIfAbsent(key, CompletableFuture.completedFuture(dto));
+            }
+        }
+    }
+
+    private static String uidKey(String firebaseUid) {
+        return "uid:" + firebaseUid;
+    }
+
+    private static String idKey(Integer id) {
+        return "id:" + id;
+    }
+
+    private static String emailKey(String email) {
+        return "email:" + email;
+    }
+}
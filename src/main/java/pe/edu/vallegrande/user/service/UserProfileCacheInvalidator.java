@@ -0,0 +1,58 @@
+package pe.edu.vallegrande.user.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user.dto.UserChangeEventDto;
+import reactor.core.Disposable;
+
+/**
+ * Invalida el nivel 1 de {@link UserProfileCache} con los cambios hechos en otras instancias: escucha los
+ * eventos de user_change_events que ya lee {@link UserChangeEventStream} (LISTEN/NOTIFY, o cada
+ * {@code user.events.poll-interval} sin LISTEN). Así ninguna instancia sigue sirviendo un perfil y una
+ * {@code version} antiguos hasta el TTL.
+ */
+@Slf4j
+@Component
+public class UserProfileCacheInvalidator {
+
+    private final UserChangeEventStream eventStream;
+    private final UserProfileCache cache;
+    private final ObjectMapper objectMapper;
+    private Disposable subscription;
+
+    public UserProfileCacheInvalidator(UserChangeEventStream eventStream, UserProfileCache cache,
+                                       ObjectMapper objectMapper) {
+        this.eventStream = eventStream;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = eventStream.live().subscribe(this::evict);
+    }
+
+    void evict(UserChangeEventDto event) {
+        cache.evictLocal(event.getUserId(), event.getFirebaseUid(), email(event));
+    }
+
+    private String email(UserChangeEventDto event) {
+        if (event.getUser() == null) return null;
+        try {
+            JsonNode email = objectMapper.readTree(event.getUser()).get("email");
+            return email == null || email.isNull() ? null : email.asText();
+        } catch (Exception e) {
+            log.warn("⚠️ Evento {} con payload ilegible: se invalida sin el email", event.getOffset());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) subscription.dispose();
+    }
+}
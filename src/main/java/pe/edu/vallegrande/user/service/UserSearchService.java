@@ -0,0 +1,118 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user.dto.UserSearchPageDto;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Búsqueda de usuarios del panel de administración por nombre, apellido, documento o celular.
+ * <ul>
+ *     <li>El texto se divide en términos (máx. {@value #MAX_TERMS}); todos deben coincidir en algún campo</li>
+ *     <li>Al menos un término de {@value #MIN_INDEXED_TERM_LENGTH} caracteres, para que Postgres pueda usar
+ *     los índices de trigramas</li>
+ *     <li>Paginación por página/tamaño hasta {@code user.search.max-results}: más allá la relevancia ya no
+ *     aporta y conviene afinar la búsqueda</li>
+ *     <li>Cada consulta tiene un presupuesto de {@code user.search.budget}; si se agota se responde con
+ *     {@link TimeoutException} en lugar de seguir ocupando una conexión</li>
+ * </ul>
+ */
+@Service
+public class UserSearchService {
+
+    static final int MAX_TERMS = 5;
+    static final int MIN_INDEXED_TERM_LENGTH = 3;
+    private static final int MAX_QUERY_LENGTH = 100;
+    // Margen sobre el statement_timeout para esperar conexión del pool y leer las filas
+    private static final Duration CLIENT_GRACE = Duration.ofMillis(250);
+
+    private final UsersRepository usersRepository;
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+    private final Duration budget;
+    private final int maxResults;
+
+    public UserSearchService(
+            UsersRepository usersRepository,
+            UserService userService,
+            MeterRegistry meterRegistry,
+            @Value("${user.search.budget:800ms}") Duration budget,
+            @Value("${user.search.max-results:1000}") int maxResults
+    ) {
+        this.usersRepository = usersRepository;
+        this.userService = userService;
+        this.meterRegistry = meterRegistry;
+        this.budget = budget;
+        this.maxResults = Math.max(1, maxResults);
+    }
+
+    /**
+     * 🔍 Página {@code page} (desde 0) de los usuarios que coinciden con {@code query}
+     */
+    public Mono<UserSearchPageDto> search(String query, Integer page, Integer size) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Indica un texto de búsqueda"));
+        }
+        if (terms.stream().noneMatch(term -> term.length() >= MIN_INDEXED_TERM_LENGTH)) {
+            return Mono.error(new IllegalArgumentException(
+                    "La búsqueda necesita al menos un término de " + MIN_INDEXED_TERM_LENGTH + " caracteres"));
+        }
+        int pageSize = size == null ? UserService.DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, UserService.MAX_PAGE_SIZE));
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+        long offset = (long) pageNumber * pageSize;
+        if (offset >= maxResults) {
+            return Mono.error(new IllegalArgumentException(
+                    "Solo se pueden recorrer los primeros " + maxResults + " resultados; afina la búsqueda"));
+        }
+        int limit = (int) Math.min(pageSize, maxResults - offset);
+
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            // Se pide una fila extra para saber si hay página siguiente
+            return usersRepository.search(terms, limit + 1, (int) offset, budget)
+                    .collectList()
+                    .timeout(budget.plus(CLIENT_GRACE), Mono.error(() ->
+                            new TimeoutException("La búsqueda superó " + budget.toMillis() + " ms")))
+                    .map(rows -> {
+                        boolean hasMore = rows.size() > limit && offset + limit < maxResults;
+                        List<User> items = rows.size() > limit ? rows.subList(0, limit) : rows;
+                        return new UserSearchPageDto(items.stream().map(userService::toDto).toList(),
+                                pageNumber, pageSize, hasMore);
+                    })
+                    .doOnSuccess(result -> sample.stop(searchTimer("success", terms.size())))
+                    .doOnError(TimeoutException.class, e -> sample.stop(searchTimer("timeout", terms.size())))
+                    .doOnError(e -> !(e instanceof TimeoutException), e -> sample.stop(searchTimer("error", terms.size())));
+        });
+    }
+
+    // Términos en minúsculas, sin repetir, en el orden escrito
+    static List<String> terms(String query) {
+        if (query == null) return List.of();
+        String trimmed = query.trim();
+        if (trimmed.length() > MAX_QUERY_LENGTH) trimmed = trimmed.substring(0, MAX_QUERY_LENGTH);
+        return Arrays.stream(trimmed.toLowerCase(Locale.ROOT).split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .limit(MAX_TERMS)
+                .toList();
+    }
+
+    private Timer searchTimer(String outcome, int terms) {
+        return Timer.builder("user.search")
+                .description("Duración de la búsqueda de usuarios del panel de administración")
+                .tag("outcome", outcome)
+                .tag("terms", String.valueOf(terms))
+                .register(meterRegistry);
+    }
+}
@@ -1,138 +1,129 @@
 package pe.edu.vallegrande.user.service;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.UserRecord.CreateRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import lombok.extern.slf4j.Slf4j;
 
-import pe.edu.vallegrande.user.dto.UserCreateDto;
+import pe.edu.vallegrande.user.dto.RoleCountDto;
 import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.dto.UserPageDto;
+import pe.edu.vallegrande.user.model.Emails;
+import pe.edu.vallegrande.user.model.Roles;
 import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.repository.UserPatchRepository;
 import pe.edu.vallegrande.user.repository.UsersRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 
 
 @Slf4j
 @Service
 public class UserService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    // Claves de orden permitidas en el listado paginado → columna
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "lastName", "last_name",
+            "email", "email",
+            "documentNumber", "document_number"
+    );
+
     private final UsersRepository usersRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final EmailService emailService;
     private final SupabaseStorageService storageService;
+    private final FirebaseGateway firebaseGateway;
+    private final UserProfileCache userProfileCache;
+    private final StorageCleanupService storageCleanupService;
+    private final ClaimsSyncService claimsSyncService;
+    private final UserChangeOutbox userChangeOutbox;
+    private final TransactionalOperator transactionalOperator;
+    private final MeterRegistry meterRegistry;
 
 
     @Autowired
-    public UserService(UsersRepository usersRepository, PasswordEncoder passwordEncoder,
-                       EmailService emailService, SupabaseStorageService storageService) {
+    public UserService(UsersRepository usersRepository, PasswordHashingService passwordHashingService,
+                       EmailService emailService, SupabaseStorageService storageService,
+                       FirebaseGateway firebaseGateway, UserProfileCache userProfileCache,
+                       StorageCleanupService storageCleanupService, ClaimsSyncService claimsSyncService,
+                       UserChangeOutbox userChangeOutbox, TransactionalOperator transactionalOperator,
+                       MeterRegistry meterRegistry) {
         this.usersRepository = usersRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.emailService = emailService;
         this.storageService = storageService;
+        this.firebaseGateway = firebaseGateway;
+        this.userProfileCache = userProfileCache;
+        this.storageCleanupService = storageCleanupService;
+        this.claimsSyncService = claimsSyncService;
+        this.userChangeOutbox = userChangeOutbox;
+        this.transactionalOperator = transactionalOperator;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
-     * 🔹 Guardar nuevo usuario en firebase como en la bd
-     */
-    public Mono<UserDto> createUser(UserCreateDto dto) {
-        return usersRepository.findByEmail(dto.getEmail())
-                .flatMap(existing -> Mono.error(new IllegalArgumentException("El correo ya está en uso.")))
-                .switchIfEmpty(Mono.defer(() -> {
-                    // 🔐 Crear usuario en Firebase
-                    CreateRequest request = new CreateRequest()
-                            .setEmail(dto.getEmail())
-                            .setPassword(dto.getPassword())
-                            .setEmailVerified(false)
-                            .setDisabled(false);
-
-                    return Mono.fromCallable(() -> FirebaseAuth.getInstance().createUser(request))
-                            .flatMap(firebaseUser -> {
-                                String uid = firebaseUser.getUid();
-
-                                // Asignar claim
-                                String primaryRole = dto.getRole().isEmpty() ? "USER" : dto.getRole().get(0);
-                                return Mono.fromCallable(() -> {
-                                    FirebaseAuth.getInstance().setCustomUserClaims(uid, Map.of("role", primaryRole.toUpperCase()));
-                                    return uid;
-                                }).cast(String.class);
-                            })
-                            .flatMap(uid -> {
-                                // Subir imagen a Supabase
-                                return storageService.uploadBase64Image("users", dto.getProfileImage())
-                                        .flatMap(imageUrl -> {
-                                            // Guardar en BD
-                                            User user = new User();
-                                            user.setFirebaseUid(uid);
-                                            user.setName(dto.getName());
-                                            user.setLastName(dto.getLastName());
-                                            user.setDocumentType(dto.getDocumentType());
-                                            user.setDocumentNumber(dto.getDocumentNumber());
-                                            user.setCellPhone(dto.getCellPhone());
-                                            user.setEmail(dto.getEmail());
-                                            user.setPassword(passwordEncoder.encode(dto.getPassword()));
-                                            user.setRole(dto.getRole());
-                                            user.setProfileImage(imageUrl); // Guardar URL de la imagen
-
-                                            return usersRepository.save(user)
-                                                    .map(this::toDto)
-                                                    .cast(UserDto.class);
-                                        });
-                            });
-                })).cast(UserDto.class);
-    }
-
-    /**
-     * 🔹 Actualizar usuario
+     * 🔹 Actualizar usuario (una sola sentencia UPDATE; con {@code dto.version} falla si otro lo cambió antes)
      */
     public Mono<UserDto> updateUser(Integer id, UserDto dto) {
-        return usersRepository.findById(id)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException("Usuario no encontrado")))
-                .flatMap(existing -> {
-                    boolean roleChanged = !existing.getRole().equals(dto.getRole());
-
-                    // Actualizar campos editables
-                    existing.setName(dto.getName());
-                    existing.setLastName(dto.getLastName());
-                    existing.setDocumentType(dto.getDocumentType());
-                    existing.setDocumentNumber(dto.getDocumentNumber());
-                    existing.setCellPhone(dto.getCellPhone());
-                    existing.setRole(dto.getRole());
-
-                    // Si hay una nueva imagen de perfil
-                    if (!dto.getProfileImage().isEmpty()) {
-                        // Eliminar imagen anterior
-                        if (existing.getProfileImage() != null) {
-                            storageService.deleteImage(existing.getProfileImage()).subscribe();
-                        }
-                        // Subir nueva imagen
-                        return storageService.uploadBase64Image("users", dto.getProfileImage())
-                                .flatMap(imageUrl -> {
-                                    existing.setProfileImage(imageUrl); // Actualizar URL de la imagen
-                                    return usersRepository.save(existing)
-                                            .map(this::toDto);
-                                });
-                    } else {
-                        // Si no hay nueva imagen, solo guardamos
-                        return usersRepository.save(existing)
-                                .map(this::toDto);
-                    }
-                });
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", dto.getName());
+        changes.put("last_name", dto.getLastName());
+        changes.put("document_type", dto.getDocumentType());
+        changes.put("document_number", dto.getDocumentNumber());
+        changes.put("cell_phone", dto.getCellPhone());
+        changes.put("role", dto.getRole());
+
+        // Si hay una nueva imagen de perfil se sube antes; la anterior se encola para borrar solo tras guardar
+        boolean newImage = dto.getProfileImage() != null && !dto.getProfileImage().isEmpty();
+        Mono<String> upload = newImage ? storageService.uploadBase64Image("users", dto.getProfileImage()) : Mono.empty();
+
+        return upload
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(imageUrl -> {
+                    imageUrl.ifPresent(url -> changes.put("profile_image", url));
+                    return patchAndEvict(usersRepository.patchById(id, dto.getVersion(), changes))
+                            .switchIfEmpty(Mono.error(new IllegalArgumentException("Usuario no encontrado")))
+                            .flatMap(result -> deletePreviousImage(result.previousProfileImage(),
+                                    result.user().getProfileImage())
+                                    .then(syncClaimsIfRoleChanged(result))
+                                    .thenReturn(result.user()))
+                            // La imagen subida no llegó a guardarse
+                            .onErrorResume(e -> imageUrl.map(url -> deletePreviousImage(url, null))
+                                    .orElse(Mono.empty())
+                                    .then(Mono.error(e)));
+                })
+                .map(this::toDto)
+                .transform(timed("updateUser"));
     }
 
     /**
      * 🔹 Obtener mis datos
      */
     public Mono<UserDto> findMyProfile(String firebaseUid) {
-        return usersRepository.findAll()
-                .filter(user -> firebaseUid.equals(user.getFirebaseUid()))
-                .next()
-                .map(this::toDto)
-                .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")));
+        return userProfileCache.getByFirebaseUid(firebaseUid, () -> usersRepository.findByFirebaseUid(firebaseUid)
+                        .map(this::toDto))
+                .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
+                .transform(timed("findMyProfile"));
     }
 
     /**
@@ -140,23 +131,98 @@ public class UserService {
      */
     public Flux<UserDto> findAllUsers() {
         return usersRepository.findAll()
-                .map(this::toDto);
+                .map(this::toDto)
+                .transform(timedMany("findAllUsers"));
+    }
+
+    /**
+     * 🔹 Página de usuarios por cursor (keyset), ordenada por {@code sort} y desempatada por id
+     */
+    public Mono<UserPageDto> findUsersPage(String cursor, Integer limit, String sort, String direction) {
+        return findUsersPage(cursor, limit, sort, direction, null);
+    }
+
+    /**
+     * 🔹 Igual que {@link #findUsersPage(String, Integer, String, String)} pero solo con los usuarios
+     * que tienen {@code role} (null = todos); el filtro se resuelve en Postgres
+     */
+    public Mono<UserPageDto> findUsersPage(String cursor, Integer limit, String sort, String direction, String role) {
+        return usersPage(cursor, limit, sort, direction, Roles.normalize(role)).transform(timed("findUsersPage"));
+    }
+
+    private Mono<UserPageDto> usersPage(String cursor, Integer limit, String sort, String direction, String role) {
+        String sortKey = sort == null ? "id" : sort;
+        String column = SORT_COLUMNS.get(sortKey);
+        if (column == null) {
+            return Mono.error(new IllegalArgumentException("Orden no soportado: " + sort + ". Usa " + SORT_COLUMNS.keySet()));
+        }
+        boolean descending = "desc".equalsIgnoreCase(direction);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        String[] position;
+        try {
+            position = decodeCursor(cursor, sortKey, descending);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        Integer afterId = position == null ? null : Integer.valueOf(position[0]);
+        String afterValue = position == null ? null : position[1];
+
+        // Se pide una fila extra para saber si hay página siguiente
+        return usersRepository.findPage(column, descending, afterValue, afterId, role, pageSize + 1)
+                .collectList()
+                .map(rows -> {
+                    boolean hasMore = rows.size() > pageSize;
+                    List<User> page = hasMore ? rows.subList(0, pageSize) : rows;
+                    String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1), sortKey, descending) : null;
+                    return new UserPageDto(page.stream().map(this::toDto).toList(), nextCursor);
+                });
+    }
+
+    /**
+     * 🔹 Número de usuarios con un rol
+     */
+    public Mono<RoleCountDto> countByRole(String role) {
+        String normalized = Roles.normalize(role);
+        return usersRepository.countByRole(normalized)
+                .map(total -> new RoleCountDto(normalized, total))
+                .transform(timed("countByRole"));
+    }
+
+    /**
+     * 🔹 Número de usuarios de cada rol
+     */
+    public Flux<RoleCountDto> countUsersByRole() {
+        return usersRepository.countUsersByRole()
+                .transform(timedMany("countUsersByRole"));
+    }
+
+    /**
+     * 🔹 Exportar todos los usuarios fila a fila (NDJSON), con contrapresión desde R2DBC
+     */
+    public Flux<UserDto> streamAllUsers() {
+        return usersRepository.streamAll(EXPORT_FETCH_SIZE)
+                .map(this::toDto)
+                .transform(timedMany("streamAllUsers"));
     }
 
     /**
      * 🔹 Buscar por ID
      */
     public Mono<UserDto> findById(Integer id) {
-        return usersRepository.findById(id)
-                .map(this::toDto);
+        return userProfileCache.getById(id, () -> usersRepository.findById(id)
+                        .map(this::toDto))
+                .transform(timed("findById"));
     }
 
     /**
      * 🔹 Buscar por email
      */
     public Mono<UserDto> findByEmail(String email) {
-        return usersRepository.findByEmail(email)
-                .map(this::toDto);
+        String normalized = Emails.normalize(email);
+        return userProfileCache.getByEmail(normalized, () -> usersRepository.findByEmail(normalized)
+                        .map(this::toDto))
+                .transform(timed("findByEmail"));
     }
 
     /**
@@ -165,86 +231,56 @@ public class UserService {
     public Mono<Void> deleteUser(Integer id) {
         return usersRepository.findById(id)
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
-                .flatMap(user -> {
-                    // Eliminar imagen de Supabase
-                    if (user.getProfileImage() != null) {
-                        return storageService.deleteImage(user.getProfileImage())
-                                .then(usersRepository.deleteById(user.getId()));
-                    } else {
-                        return usersRepository.deleteById(user.getId());
-                    }
-                });
+                // Borrado y evento DELETED en la misma transacción
+                .flatMap(user -> transactionalOperator.transactional(usersRepository.deleteById(user.getId())
+                                .then(userChangeOutbox.append(UserChangeEvent.Type.DELETED, toDto(user))))
+                        .then(userProfileCache.evict(user))
+                        // La imagen de Supabase se borra en segundo plano
+                        .then(deletePreviousImage(user.getProfileImage(), null)))
+                .transform(timed("deleteUser"));
     }
 
     /**
      * 🔹 Cambiar Email
      */
-    public Mono<UserDto> changeEmail(String firebaseUid, String newEmail) {
-        return usersRepository.findAll()
-                .filter(user -> firebaseUid.equals(user.getFirebaseUid()))
-                .next()
+    public Mono<UserDto> changeEmail(String firebaseUid, String requestedEmail) {
+        String newEmail = Emails.normalize(requestedEmail);
+        return usersRepository.findByEmail(newEmail)
+                .flatMap(conflict -> Mono.<User>error(new RuntimeException("El correo ya está en uso")))
+                // 🔐 Cambiar en Firebase (falla si el UID no existe)
+                .then(firebaseGateway.updateEmail(firebaseUid, newEmail))
+                .then(patchAndEvict(usersRepository.patchByFirebaseUid(firebaseUid, null, Map.of("email", newEmail))))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
-                .flatMap(user -> usersRepository.findByEmail(newEmail)
-                        .flatMap(conflict -> Mono.error(new RuntimeException("El correo ya está en uso")))
-                        .switchIfEmpty(Mono.defer(() ->
-                                // 🔐 Cambiar en Firebase
-                                Mono.fromCallable(() -> {
-                                    FirebaseAuth.getInstance().updateUser(
-                                            new com.google.firebase.auth.UserRecord.UpdateRequest(firebaseUid)
-                                                    .setEmail(newEmail)
-                                    );
-                                    return user;
-                                })
-                        ))
-                )
-                .flatMap(obj -> {
-                    User user = (User) obj;
-                    user.setEmail(newEmail);
-                    return usersRepository.save(user).map(this::toDto);
-                });
-
+                .map(result -> toDto(result.user()))
+                .transform(timed("changeEmail"));
     }
 
-
-
     /**
      * 🔹 Cambiar Contraseña
      */
     public Mono<UserDto> changePassword(String firebaseUid, String newPassword) {
-        return usersRepository.findAll()
-                .filter(user -> firebaseUid.equals(user.getFirebaseUid()))
-                .next()
+        // 🔐 Cambiar en Firebase (falla si el UID no existe)
+        return firebaseGateway.updatePassword(firebaseUid, newPassword)
+                // 🔄 Cambiar en BD (el hash se genera siempre con el coste vigente)
+                .then(passwordHashingService.encode(newPassword))
+                .flatMap(hash -> patchAndEvict(usersRepository.patchByFirebaseUid(firebaseUid, null, Map.of("password", hash))))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
-                .flatMap(user -> {
-                    // 🔐 Cambiar en Firebase
-                    return Mono.fromCallable(() -> {
-                        FirebaseAuth.getInstance().updateUser(
-                                new com.google.firebase.auth.UserRecord.UpdateRequest(firebaseUid)
-                                        .setPassword(newPassword)
-                        );
-                        return user;
-                    });
-                })
-                .flatMap(user -> {
-                    // 🔄 Cambiar en BD
-                    user.setPassword(passwordEncoder.encode(newPassword));
-                    return usersRepository.save(user).map(this::toDto);
-                });
+                .map(result -> toDto(result.user()))
+                .transform(timed("changePassword"));
     }
 
     /**
      * 🔹 Reestablecer Contraseña si te olvidaste
      */
-    public Mono<String> sendPasswordResetEmail(String email) {
-        return Mono.fromCallable(() -> FirebaseAuth.getInstance().getUserByEmail(email))
-                .flatMap(userRecord ->
+    public Mono<String> sendPasswordResetEmail(String requestedEmail) {
+        String email = Emails.normalize(requestedEmail);
+        return firebaseGateway.getUidByEmail(email)
+                .flatMap(uid ->
                         usersRepository.findByEmail(email) // ✅ valida también en tu BD
                                 .switchIfEmpty(Mono.error(new RuntimeException("❌ El email no está registrado en el sistema.")))
-                                .flatMap(user -> Mono.fromCallable(() -> {
-                                    String link = FirebaseAuth.getInstance().generatePasswordResetLink(email);
-                                    emailService.sendResetLink(email, link); // ✉️ Envía el correo
-                                    return "✅ Enlace enviado correctamente a: " + email;
-                                }))
+                                .flatMap(user -> firebaseGateway.generatePasswordResetLink(email))
+                                .flatMap(link -> emailService.sendResetLink(email, link)) // ✉️ Encola el correo
+                                .thenReturn("✅ Enlace enviado correctamente a: " + email)
                 )
                 .onErrorResume(e -> {
                     log.error("❌ Error real desde Firebase: ", e); // <-- importante
@@ -252,31 +288,132 @@ public class UserService {
                             ? "❌ El correo no existe en Firebase"
                             : "⚠️ Error: " + e.getMessage();
                     return Mono.error(new RuntimeException(msg));
-                });
+                })
+                .transform(timed("sendPasswordResetEmail"));
     }
 
     /**
      * 🔄 Editar mis propios datos (sin cambiar email, password ni rol)
      */
     public Mono<UserDto> updateMyProfile(String uid, UserDto updatedData) {
-        return usersRepository.findByFirebaseUid(uid)
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", updatedData.getName());
+        changes.put("last_name", updatedData.getLastName());
+        changes.put("document_type", updatedData.getDocumentType());
+        changes.put("document_number", updatedData.getDocumentNumber());
+        changes.put("cell_phone", updatedData.getCellPhone());
+        changes.put("profile_image", updatedData.getProfileImage());
+        return patchAndEvict(usersRepository.patchByFirebaseUid(uid, updatedData.getVersion(), changes))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
-                .flatMap(existing -> {
-                    existing.setName(updatedData.getName());
-                    existing.setLastName(updatedData.getLastName());
-                    existing.setDocumentType(updatedData.getDocumentType());
-                    existing.setDocumentNumber(updatedData.getDocumentNumber());
-                    existing.setCellPhone(updatedData.getCellPhone());
-                    existing.setProfileImage(updatedData.getProfileImage());
-                    return usersRepository.save(existing);
-                })
-                .map(UserDto::fromEntity); // o usar tu mapper si tienes uno
+                .flatMap(result -> deletePreviousImage(result.previousProfileImage(), result.user().getProfileImage())
+                        .thenReturn(result.user()))
+                .map(this::toDto)
+                .transform(timed("updateMyProfile"));
+    }
+
+    // Edición parcial en una sola sentencia; si cambió algo, en la misma transacción se guarda el evento UPDATED
+    // y, tras el commit, se invalida la caché (también el email anterior)
+    private Mono<UserPatchRepository.PatchResult> patchAndEvict(Mono<UserPatchRepository.PatchResult> patch) {
+        return transactionalOperator.transactional(patch.delayUntil(result -> result.changed()
+                        ? userChangeOutbox.append(UserChangeEvent.Type.UPDATED, toDto(result.user()))
+                        : Mono.empty()))
+                .flatMap(result -> result.changed()
+                        ? userProfileCache.evict(result.user(), result.previousEmail()).thenReturn(result)
+                        : Mono.just(result));
+    }
+
+    // Los custom claims de Firebase se sincronizan en segundo plano (ClaimsSyncWorker)
+    private Mono<Void> syncClaimsIfRoleChanged(UserPatchRepository.PatchResult result) {
+        if (!result.changed() || Objects.equals(result.previousRole(), result.user().getRole())) return Mono.empty();
+        return claimsSyncService.syncLater(result.user().getFirebaseUid());
+    }
+
+    // Cursor = base64url("orden|dirección|id|valor"), ligado al orden con el que se generó
+    private String encodeCursor(User last, String sortKey, boolean descending) {
+        String value = switch (sortKey) {
+            case "name" -> last.getName();
+            case "lastName" -> last.getLastName();
+            case "email" -> last.getEmail();
+            case "documentNumber" -> last.getDocumentNumber();
+            default -> "";
+        };
+        String raw = sortKey + "|" + (descending ? "desc" : "asc") + "|" + last.getId() + "|" + (value == null ? "" : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor, String sortKey, boolean descending) {
+        if (cursor == null || cursor.isBlank()) return null;
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+            Integer.parseInt(parts[2]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (parts.length != 4 || !parts[0].equals(sortKey) || !parts[1].equals(descending ? "desc" : "asc")) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        return new String[]{parts[2], parts[3]};
+    }
+
+    /**
+     * 🖼️ Reemplazar mi foto de perfil con una subida en streaming (sin base64)
+     */
+    public Mono<UserDto> updateMyProfileImage(String uid, Flux<DataBuffer> content) {
+        return usersRepository.findByFirebaseUid(uid) // antes de subir: no dejar imágenes de UIDs inexistentes
+                .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
+                .flatMap(existing -> storageService.uploadImageStream("users", content))
+                .flatMap(imageUrl -> patchAndEvict(usersRepository.patchByFirebaseUid(uid, null,
+                        Map.of("profile_image", imageUrl))))
+                .delayUntil(result -> deletePreviousImage(result.previousProfileImage(), result.user().getProfileImage()))
+                .map(result -> toDto(result.user()))
+                .transform(timed("updateMyProfileImage"));
+    }
+
+    // La imagen anterior se encola para borrar solo después de guardar la nueva (misma URL = mismo contenido)
+    private Mono<Void> deletePreviousImage(String previousImage, String currentImage) {
+        if (previousImage == null || previousImage.equals(currentImage)) return Mono.empty();
+        return storageCleanupService.deleteImageLater(previousImage);
+    }
+
+    /**
+     * ⏱️ Mide una operación de principio a fin en {@code user.service{operation,outcome}}
+     * (outcome: success | error | cancelled). Los buckets de SLO se configuran en
+     * {@code management.metrics.distribution.*}.
+     */
+    private <T> Function<Mono<T>, Mono<T>> timed(String operation) {
+        return mono -> Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono
+                    .doOnSuccess(value -> sample.stop(operationTimer(operation, "success")))
+                    .doOnError(e -> sample.stop(operationTimer(operation, "error")))
+                    .doOnCancel(() -> sample.stop(operationTimer(operation, "cancelled")));
+        });
+    }
+
+    // Igual que timed() para los listados: se mide hasta el último elemento
+    private <T> Function<Flux<T>, Flux<T>> timedMany(String operation) {
+        return flux -> Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return flux
+                    .doOnComplete(() -> sample.stop(operationTimer(operation, "success")))
+                    .doOnError(e -> sample.stop(operationTimer(operation, "error")))
+                    .doOnCancel(() -> sample.stop(operationTimer(operation, "cancelled")));
+        });
+    }
+
+    private Timer operationTimer(String operation, String outcome) {
+        return Timer.builder("user.service")
+                .description("Duración de las operaciones de UserService")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     /**
-     * 🔁 Método auxiliar: Entity → DTO
+     * 🔁 Método auxiliar: Entity → DTO (incluye las URLs de las miniaturas)
      */
-    private UserDto toDto(User user) {
+    public UserDto toDto(User user) {
         return new UserDto(
                 user.getId(),
                 user.getFirebaseUid(),
@@ -287,7 +424,9 @@ public class UserService {
                 user.getCellPhone(),
                 user.getEmail(),
                 user.getRole(),
-                user.getProfileImage()
+                user.getProfileImage(),
+                storageService.variantUrls(user.getProfileImage()),
+                user.getVersion()
         );
     }
 }
@@ -0,0 +1,14 @@
+-- Tabla base de usuarios (idempotente: no altera instalaciones existentes)
+CREATE TABLE IF NOT EXISTS users (
+    id              SERIAL PRIMARY KEY,
+    firebase_uid    VARCHAR(128) NOT NULL,
+    name            VARCHAR(100),
+    last_name       VARCHAR(100),
+    document_type   VARCHAR(20),
+    document_number VARCHAR(20),
+    cell_phone      VARCHAR(20),
+    email           VARCHAR(150) NOT NULL,
+    password        VARCHAR(255),
+    role            TEXT[],
+    profile_image   TEXT
+);
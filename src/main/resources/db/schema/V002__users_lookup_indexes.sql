@@ -0,0 +1,3 @@
+-- Búsquedas por UID (/api/users/me) y por email usan índices en lugar de escaneo secuencial
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_firebase_uid ON users (firebase_uid);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email ON users (email);
@@ -0,0 +1,16 @@
+-- Bandeja de salida de correos: /api/auth/forgot-password solo encola, MailOutboxDispatcher envía en lotes
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    id              BIGSERIAL PRIMARY KEY,
+    recipient       VARCHAR(150) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    body            TEXT         NOT NULL,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    sent_at         TIMESTAMPTZ,
+    last_error      TEXT
+);
+
+CREATE INDEX IF NOT EXISTS ix_mail_outbox_due
+    ON mail_outbox (next_attempt_at) WHERE status IN ('PENDING', 'SENDING');
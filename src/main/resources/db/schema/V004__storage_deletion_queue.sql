@@ -0,0 +1,21 @@
+-- Cola de borrados en Supabase Storage: UserService solo encola, StorageCleanupWorker borra en lotes
+CREATE TABLE IF NOT EXISTS storage_deletion_queue (
+    id              BIGSERIAL PRIMARY KEY,
+    object_path     TEXT        NOT NULL,
+    status          VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts        INT         NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    last_error      TEXT
+);
+
+-- Un mismo objeto no se encola dos veces mientras esté pendiente
+CREATE UNIQUE INDEX IF NOT EXISTS ux_storage_deletion_pending
+    ON storage_deletion_queue (object_path) WHERE status IN ('PENDING', 'DELETING');
+
+CREATE INDEX IF NOT EXISTS ix_storage_deletion_due
+    ON storage_deletion_queue (next_attempt_at) WHERE status IN ('PENDING', 'DELETING');
+
+-- La reconciliación de huérfanos comprueba qué URLs siguen referenciadas
+CREATE INDEX IF NOT EXISTS ix_users_profile_image
+    ON users (profile_image) WHERE profile_image IS NOT NULL;
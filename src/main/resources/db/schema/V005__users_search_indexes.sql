@@ -0,0 +1,16 @@
+-- Búsqueda del panel de administración (UserSearchRepository): coincidencias parciales en nombre y
+-- apellido, y por prefijo en documento y celular. Los índices GIN de trigramas sirven tanto para
+-- ILIKE '%texto%' como para LIKE 'prefijo%', también con el patrón como parámetro (plan genérico).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS ix_users_name_trgm
+    ON users USING gin (name gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS ix_users_last_name_trgm
+    ON users USING gin (last_name gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS ix_users_document_number_trgm
+    ON users USING gin (document_number gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS ix_users_cell_phone_trgm
+    ON users USING gin (cell_phone gin_trgm_ops);
@@ -0,0 +1,4 @@
+-- Filtros por rol con role @> ARRAY['ADMIN'] (listado y conteo del panel de administración).
+-- Los roles existentes se normalizan una sola vez en V014.
+CREATE INDEX IF NOT EXISTS ix_users_role
+    ON users USING gin (role);
@@ -0,0 +1,3 @@
+-- Control de concurrencia optimista: cada UPDATE incrementa version (@Version en User y
+-- UPDATE ... WHERE version = ? en UserPatchRepository). Las filas existentes empiezan en 0.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Buckets compartidos del rate limiting (security.rate-limit.backend=postgres).
+-- UNLOGGED: sin WAL; tras una caída la tabla se vacía y, como mucho, se admiten unas peticiones de más
+CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key TEXT   PRIMARY KEY,
+    tat_ms     BIGINT NOT NULL   -- "theoretical arrival time" de GCRA, en ms desde la época (reloj de la BD)
+);
+
+-- La limpieza periódica borra los buckets que ya estarían llenos
+CREATE INDEX IF NOT EXISTS ix_rate_limit_buckets_tat ON rate_limit_buckets (tat_ms);
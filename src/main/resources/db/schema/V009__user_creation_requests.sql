@@ -0,0 +1,26 @@
+-- Registro de pasos de cada alta de usuario (saga idempotente de UserCreationService).
+-- La clave es la cabecera Idempotency-Key; un reintento con la misma clave responde con lo guardado
+CREATE TABLE IF NOT EXISTS user_creation_requests (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    request_hash    CHAR(64)     NOT NULL,                     -- SHA-256 del cuerpo sin la contraseña: misma clave con otro cuerpo → 422
+    email           VARCHAR(150) NOT NULL,
+    firebase_uid    VARCHAR(128) NOT NULL,                     -- generado antes de llamar a Firebase: siempre se puede compensar
+    status          VARCHAR(20)  NOT NULL DEFAULT 'STARTED',   -- STARTED | COMPLETED | FAILED
+    step            VARCHAR(30)  NOT NULL DEFAULT 'RESERVED',  -- último paso terminado
+    profile_image   TEXT,
+    user_id         INT,
+    error           TEXT,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+-- Reserva atómica del email: como mucho un alta en curso por email (al terminar, lo protege ux_users_email)
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_creation_email_started
+    ON user_creation_requests (email) WHERE status = 'STARTED';
+
+-- Altas abandonadas (caída a mitad) que el worker debe compensar
+CREATE INDEX IF NOT EXISTS ix_user_creation_stale
+    ON user_creation_requests (updated_at) WHERE status = 'STARTED';
+
+-- Purga de registros terminados
+CREATE INDEX IF NOT EXISTS ix_user_creation_created_at ON user_creation_requests (created_at);
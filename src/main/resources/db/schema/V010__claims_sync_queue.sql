@@ -0,0 +1,14 @@
+-- Cola de sincronización de custom claims de Firebase: una fila por UID (los cambios de rol se agrupan),
+-- ClaimsSyncWorker aplica el rol actual de users con concurrencia y tasa limitadas
+CREATE TABLE IF NOT EXISTS claims_sync_queue (
+    firebase_uid    VARCHAR(128) PRIMARY KEY,
+    revision        BIGINT      NOT NULL DEFAULT 1,
+    status          VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts        INT         NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    last_error      TEXT
+);
+
+CREATE INDEX IF NOT EXISTS ix_claims_sync_due
+    ON claims_sync_queue (next_attempt_at) WHERE status = 'PENDING';
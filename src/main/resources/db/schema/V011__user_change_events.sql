@@ -0,0 +1,15 @@
+-- Outbox de cambios de usuarios: se escribe en la misma transacción que el cambio y se sirve en
+-- /api/admin/users/events. Los offsets salen en orden de commit (UserChangeEventRepository.append
+-- serializa las inserciones con un advisory lock), así que "offset > último leído" nunca se salta un evento
+CREATE TABLE IF NOT EXISTS user_change_events (
+    event_offset BIGSERIAL PRIMARY KEY,
+    user_id      INT          NOT NULL,
+    firebase_uid VARCHAR(128),
+    type         VARCHAR(20)  NOT NULL,
+    payload      JSONB        NOT NULL,
+    created_at   TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+-- Limpieza por antigüedad (user.events.retention)
+CREATE INDEX IF NOT EXISTS ix_user_change_events_created
+    ON user_change_events (created_at);
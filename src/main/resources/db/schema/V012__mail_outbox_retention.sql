@@ -0,0 +1,4 @@
+-- Purga de mail_outbox: los correos enviados o descartados se borran tras mail.outbox.retention
+-- (MailOutboxDispatcher.purge). Al enviarse ya se vacía el cuerpo con el enlace de restablecimiento
+CREATE INDEX IF NOT EXISTS ix_mail_outbox_finished
+    ON mail_outbox (created_at) WHERE status IN ('SENT', 'FAILED');
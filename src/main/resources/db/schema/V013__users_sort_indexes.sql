@@ -0,0 +1,6 @@
+-- Listado paginado por keyset (UserPagingRepositoryImpl.findPage): ordena por (COALESCE(col, ''), id) y
+-- pide "después de (valor, id)". Sin un índice sobre esa misma expresión cada página recorre y ordena la tabla
+CREATE INDEX IF NOT EXISTS ix_users_sort_name ON users ((COALESCE(name, '')), id);
+CREATE INDEX IF NOT EXISTS ix_users_sort_last_name ON users ((COALESCE(last_name, '')), id);
+CREATE INDEX IF NOT EXISTS ix_users_sort_email ON users ((COALESCE(email, '')), id);
+CREATE INDEX IF NOT EXISTS ix_users_sort_document_number ON users ((COALESCE(document_number, '')), id);
@@ -0,0 +1,32 @@
+-- Migraciones de datos que deben ejecutarse una sola vez: los scripts de db/schema se aplican en cada
+-- arranque (spring.sql.init.mode=always), así que cada una reclama aquí su nombre antes de tocar filas.
+CREATE TABLE IF NOT EXISTS schema_data_migrations (
+    name       TEXT PRIMARY KEY,
+    applied_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Roles en mayúsculas y sin repetir (como los escribe la aplicación desde ahora), para que los
+-- filtros por rol comparen elementos exactos. Solo la primera vez: si el nombre ya estaba
+-- registrado, claimed queda vacío y el UPDATE no lee users.
+WITH claimed AS (
+    INSERT INTO schema_data_migrations (name)
+    VALUES ('users_role_normalization')
+    ON CONFLICT (name) DO NOTHING
+    RETURNING name
+)
+UPDATE users u
+SET role = normalized.role
+FROM (
+    SELECT id, ARRAY(
+        SELECT upper(trim(r.value))
+        FROM unnest(users.role) WITH ORDINALITY AS r(value, position)
+        WHERE trim(r.value) <> ''
+        GROUP BY upper(trim(r.value))
+        ORDER BY min(r.position)
+    ) AS role
+    FROM users
+    WHERE role IS NOT NULL
+) normalized
+WHERE EXISTS (SELECT 1 FROM claimed)
+  AND u.id = normalized.id
+  AND u.role IS DISTINCT FROM normalized.role;
@@ -0,0 +1,15 @@
+-- Emails en minúsculas (Emails.normalize en la aplicación desde ahora), para que ux_users_email, la reserva de
+-- altas y las búsquedas por email no distingan mayúsculas. Una sola vez (ver schema_data_migrations en V014).
+-- Las filas cuyo email en minúsculas ya pertenece a otro usuario se dejan como están: hay que resolverlas a mano.
+WITH claimed AS (
+    INSERT INTO schema_data_migrations (name)
+    VALUES ('users_email_lowercase')
+    ON CONFLICT (name) DO NOTHING
+    RETURNING name
+)
+UPDATE users u
+SET email = lower(trim(u.email))
+WHERE EXISTS (SELECT 1 FROM claimed)
+  AND u.email IS DISTINCT FROM lower(trim(u.email))
+  AND NOT EXISTS (SELECT 1 FROM users other
+                  WHERE other.id <> u.id AND lower(trim(other.email)) = lower(trim(u.email)));
@@ -0,0 +1,62 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.edu.vallegrande.user.service.ImageType;
+import pe.edu.vallegrande.user.service.SupabaseStorageService;
+
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parte local de {@code SupabaseStorageService.uploadBase64Image}: separar el data URI, decodificar el
+ * base64 y detectar el formato por los bytes mágicos, para fotos de {@code kilobytes} KB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class Base64ImageBenchmark {
+
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+
+    @Param({"64", "1024"})
+    public int kilobytes;
+
+    private String dataUri;
+    private byte[] header;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] image = new byte[kilobytes * 1024];
+        ThreadLocalRandom.current().nextBytes(image);
+        System.arraycopy(JPEG_SIGNATURE, 0, image, 0, JPEG_SIGNATURE.length);
+        dataUri = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(image);
+        header = new byte[ImageType.HEADER_BYTES];
+        System.arraycopy(image, 0, header, 0, header.length);
+    }
+
+    @Benchmark
+    public Optional<SupabaseStorageService.DecodedImage> decodeDataUri() {
+        return SupabaseStorageService.decodeDataUri(dataUri);
+    }
+
+    @Benchmark
+    public Optional<ImageType> sniff() {
+        return ImageType.sniff(header);
+    }
+}
@@ -0,0 +1,81 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dos resultados JMH en JSON (p. ej. el de main y el de la rama actual) y termina con código 1
+ * si algún benchmark empeora más de {@code umbral}% y la diferencia supera el error de ambas mediciones.
+ * <pre>
+ * mvn -Pbenchmark test -Djmh.include=UserDto -Djmh.result=bench/main.json      # en main
+ * mvn -Pbenchmark test -Djmh.include=UserDto -Djmh.result=bench/rama.json      # en la rama
+ * mvn -Pbenchmark-compare test -Djmh.baseline=bench/main.json -Djmh.result=bench/rama.json [-Djmh.threshold=10]
+ * </pre>
+ * Para Throughput mayor es mejor; para el resto de modos (avgt, sample, ss) menor es mejor.
+ */
+public final class JmhResultComparator {
+
+    private JmhResultComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: JmhResultComparator <baseline.json> <actual.json> [umbral %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Base", "Actual", "Cambio");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s  (nuevo)%n", entry.getKey(), "-", now.value(), "");
+                continue;
+            }
+            // Cambio positivo = peor, sea cual sea el modo
+            double change = (now.value() - before.value()) / before.value() * 100 * (now.higherIsBetter() ? -1 : 1);
+            boolean beyondError = Math.abs(now.value() - before.value()) > now.error() + before.error();
+            boolean regression = change > threshold && beyondError;
+            if (regression) regressions++;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.value(), now.value(),
+                    change, now.unit(), regression ? "  ❌ REGRESIÓN" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%n%d benchmark(s) empeoran más de %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+        System.out.printf("%nSin regresiones por encima del %.1f%%%n", threshold);
+    }
+
+    // Clave = benchmark + parámetros, p. ej. "UserDtoBenchmark.toDto {size=500}"
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String name = run.get("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String key = params.isEmpty() ? name : name + " " + params;
+
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key, new Score(metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error,
+                    metric.get("scoreUnit").asText(), "thrpt".equals(run.get("mode").asText())));
+        }
+        return scores;
+    }
+
+    private record Score(double value, double error, String unit, boolean higherIsBetter) {
+    }
+}
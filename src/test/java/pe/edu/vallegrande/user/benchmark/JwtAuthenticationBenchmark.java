@@ -0,0 +1,62 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import pe.edu.vallegrande.user.config.CustomAuthenticationToken;
+import pe.edu.vallegrande.user.config.RoleJwtAuthenticationConverter;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión JWT → {@link CustomAuthenticationToken} que se ejecuta en cada petición autenticada
+ * ({@link RoleJwtAuthenticationConverter}, usado por SecurityConfig).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Threads(4)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final String[] ROLES = {"USER", "admin", "User", null};
+
+    private RoleJwtAuthenticationConverter converter;
+    private Jwt[] jwts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter = new RoleJwtAuthenticationConverter();
+        jwts = new Jwt[ROLES.length];
+        Instant now = Instant.now();
+        for (int i = 0; i < ROLES.length; i++) {
+            Jwt.Builder jwt = Jwt.withTokenValue("token-" + i)
+                    .header("alg", "RS256")
+                    .subject("uid-" + i)
+                    .issuer("https://securetoken.google.com/security-prs1")
+                    .issuedAt(now)
+                    .expiresAt(now.plusSeconds(3600));
+            if (ROLES[i] != null) jwt.claim("role", ROLES[i]);
+            jwts[i] = jwt.build();
+        }
+    }
+
+    @Benchmark
+    public CustomAuthenticationToken convert() {
+        return converter.convert(jwts[ThreadLocalRandom.current().nextInt(jwts.length)]).block();
+    }
+}
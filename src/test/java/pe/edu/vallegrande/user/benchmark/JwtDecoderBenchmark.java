@@ -0,0 +1,91 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import pe.edu.vallegrande.user.config.CachingReactiveJwtDecoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de verificar un ID token (RS256, como los de Firebase) por petición, con y sin
+ * {@link CachingReactiveJwtDecoder}, cuando {@code activeTokens} clientes reenvían su token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(4)
+@Fork(1)
+public class JwtDecoderBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Param({"1000"})
+    public int activeTokens;
+
+    private ReactiveJwtDecoder decoder;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchAlgorithmException, JOSEException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        ReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+        decoder = cached
+                ? new CachingReactiveJwtDecoder(nimbus, new SimpleMeterRegistry(), 10_000, Duration.ofHours(1))
+                : nimbus;
+
+        RSASSASigner signer = new RSASSASigner(keyPair.getPrivate());
+        tokens = new String[activeTokens];
+        for (int i = 0; i < activeTokens; i++) {
+            JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                    .subject("uid-" + i)
+                    .issuer("https://securetoken.google.com/security-prs1")
+                    .claim("role", i % 10 == 0 ? "ADMIN" : "USER")
+                    .issueTime(new Date())
+                    .expirationTime(Date.from(Instant.now().plus(Duration.ofHours(1))))
+                    .build();
+            SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+            jwt.sign(signer);
+            tokens[i] = jwt.serialize();
+        }
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(tokens[ThreadLocalRandom.current().nextInt(activeTokens)]).block();
+    }
+}
@@ -0,0 +1,65 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.edu.vallegrande.user.service.PasswordHashingService;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput de BCrypt (hashes/s) a través de {@link PasswordHashingService}
+ * para distintos costes y tamaños de pool, con ráfagas de {@value #BURST} contraseñas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final int BURST = 32;
+
+    @Param({"8", "10", "12"})
+    public String strength;
+
+    @Param({"1", "2", "4", "0"})
+    public int threads;
+
+    private PasswordHashingService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new PasswordHashingService(new SimpleMeterRegistry(), strength, Duration.ofMillis(100), threads, BURST);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public List<String> encodeBurst() {
+        return Flux.range(0, BURST)
+                .flatMap(i -> service.encode("password-" + i))
+                .collectList()
+                .block();
+    }
+}
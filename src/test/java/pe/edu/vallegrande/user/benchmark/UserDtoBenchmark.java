@@ -0,0 +1,99 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import pe.edu.vallegrande.user.config.HttpClientProperties;
+import pe.edu.vallegrande.user.config.OutboundHttpClients;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.service.ImageProcessingService;
+import pe.edu.vallegrande.user.service.SupabaseStorageService;
+import pe.edu.vallegrande.user.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Mapeo Entity → DTO ({@link UserDto#fromEntity} y {@link UserService#toDto}, que además calcula
+ * las URLs de las miniaturas) y serialización Jackson de listas de {@code size} usuarios,
+ * como en los listados de /api/admin/users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class UserDtoBenchmark {
+
+    @Param({"50", "500"})
+    public int size;
+
+    private ImageProcessingService imageProcessing;
+    private UserService userService;
+    private ObjectMapper objectMapper;
+    private List<User> users;
+    private List<UserDto> dtos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        imageProcessing = new ImageProcessingService(registry, true, List.of(64, 256), 0.85f, 1, 1, 40_000_000);
+        OutboundHttpClients httpClients = new OutboundHttpClients(WebClient.builder(), new HttpClientProperties(), registry);
+        SupabaseStorageService storage = new SupabaseStorageService(httpClients, "https://project.supabase.co",
+                "key", "avatars", DataSize.ofMegabytes(5), imageProcessing, registry);
+        userService = new UserService(null, null, null, storage, null, null, null, null, null, null, registry);
+        // Mismos valores por defecto que el ObjectMapper de Spring Boot (p. ej. sin fallar en propiedades desconocidas)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        users = IntStream.rangeClosed(1, size).mapToObj(UserDtoBenchmark::user).toList();
+        dtos = users.stream().map(userService::toDto).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        imageProcessing.shutdown();
+    }
+
+    @Benchmark
+    public List<UserDto> fromEntity() {
+        return users.stream().map(UserDto::fromEntity).toList();
+    }
+
+    @Benchmark
+    public List<UserDto> toDto() {
+        return users.stream().map(userService::toDto).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    private static User user(int i) {
+        // La mitad con foto procesada (tiene miniaturas) y la mitad con una foto antigua
+        String image = i % 2 == 0
+                ? "https://project.supabase.co/storage/v1/object/public/avatars/users/%064x.jpg".formatted(i)
+                : "https://project.supabase.co/storage/v1/object/public/avatars/users/" + i + ".png";
+        return new User(i, "uid-" + i, "Nombre " + i, "Apellido " + i, "DNI", "%08d".formatted(i),
+                "9%08d".formatted(i), "user" + i + "@mail.com", "$2a$10$hash", List.of("USER"), image, 0L);
+    }
+}
@@ -0,0 +1,152 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.UserPagingRepositoryImpl;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exportación de 1M usuarios: streaming con cursor del driver (NDJSON) frente a
+ * cargar toda la tabla en una lista (array JSON). Imprime el pico de heap de cada iteración;
+ * con streaming debe mantenerse plano independientemente del número de filas.
+ * Requiere Docker (Testcontainers).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class UserExportBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    @Param({"stream", "collect"})
+    public String mode;
+
+    private PostgreSQLContainer<?> postgres;
+    private R2dbcEntityTemplate template;
+    private UserPagingRepositoryImpl repository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong peakHeap = new AtomicLong();
+    private volatile boolean sampling;
+    private Thread sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(postgres.getHost())
+                        .port(postgres.getFirstMappedPort())
+                        .database(postgres.getDatabaseName())
+                        .username(postgres.getUsername())
+                        .password(postgres.getPassword())
+                        .build());
+
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(connectionFactory).block();
+
+        template = new R2dbcEntityTemplate(connectionFactory);
+        template.getDatabaseClient().sql("""
+                        INSERT INTO users (firebase_uid, name, last_name, document_type, document_number, cell_phone, email, role, profile_image)
+                        SELECT 'uid-' || g, 'Nombre ' || g, 'Apellido ' || g, 'DNI', lpad(g::text, 8, '0'), '9' || lpad(g::text, 8, '0'),
+                               'user' || g || '@mail.com', ARRAY['USER'], 'https://example.com/users/' || g || '.jpg'
+                        FROM generate_series(1, $1) g
+                        """)
+                .bind(0, ROWS)
+                .then()
+                .block();
+        repository = new UserPagingRepositoryImpl(template);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void startSampling() {
+        System.gc();
+        peakHeap.set(memory.getHeapMemoryUsage().getUsed());
+        sampling = true;
+        sampler = new Thread(() -> {
+            while (sampling) {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopSampling() throws InterruptedException {
+        sampling = false;
+        sampler.join();
+        System.out.printf("%n[%s] pico de heap: %d MB%n", mode, peakHeap.get() / (1024 * 1024));
+    }
+
+    @Benchmark
+    public long export() {
+        if ("stream".equals(mode)) {
+            // Igual que GET /api/admin/users con Accept: application/x-ndjson
+            return repository.streamAll(500)
+                    .map(UserDto::fromEntity)
+                    .map(this::toJson)
+                    .reduce(0L, (bytes, line) -> bytes + line.length)
+                    .block();
+        }
+        // Igual que el array JSON de findAllUsers(): toda la tabla en memoria antes de serializar
+        return Flux.from(template.select(User.class).all())
+                .map(UserDto::fromEntity)
+                .collectList()
+                .map(this::toJson)
+                .map(json -> (long) json.length)
+                .block();
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
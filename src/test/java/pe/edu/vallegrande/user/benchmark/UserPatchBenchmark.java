@@ -0,0 +1,153 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.UserPatchRepositoryImpl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Edición del perfil ({@code updateMyProfile}) como lectura + save de la entidad completa frente a un único
+ * {@code UPDATE ... RETURNING} parcial, con datos que cambian ({@code changed}) o que ya son los guardados
+ * ({@code unchanged}). Además del tiempo, imprime por iteración las sentencias enviadas a Postgres y los
+ * bytes de WAL generados por edición (la amplificación de escritura). Requiere Docker (Testcontainers).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class UserPatchBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"readModifyWrite", "patch"})
+    public String mode;
+
+    @Param({"changed", "unchanged"})
+    public String data;
+
+    private PostgreSQLContainer<?> postgres;
+    private R2dbcEntityTemplate template;
+    private UserPatchRepositoryImpl repository;
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong edits = new AtomicLong();
+    private long walAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        PostgresqlConnectionFactory postgresFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(postgres.getHost())
+                        .port(postgres.getFirstMappedPort())
+                        .database(postgres.getDatabaseName())
+                        .username(postgres.getUsername())
+                        .password(postgres.getPassword())
+                        .build());
+
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(postgresFactory).block();
+        new R2dbcEntityTemplate(postgresFactory).getDatabaseClient().sql("""
+                        INSERT INTO users (firebase_uid, name, last_name, document_type, document_number, cell_phone, email, password, role)
+                        SELECT 'uid-' || g, 'Nombre', 'Apellido', 'DNI', lpad(g::text, 8, '0'), '9' || lpad(g::text, 8, '0'),
+                               'user' || g || '@mail.com', '$2a$10$' || md5(g::text), ARRAY['USER']
+                        FROM generate_series(1, $1) g
+                        """)
+                .bind(0, ROWS)
+                .then()
+                .block();
+
+        // Cuenta las sentencias (round trips) que llegan a Postgres
+        ConnectionFactory counted = ProxyConnectionFactory.builder(postgresFactory)
+                .onAfterQuery(execution -> statements.incrementAndGet())
+                .build();
+        template = new R2dbcEntityTemplate(counted);
+        repository = new UserPatchRepositoryImpl(template);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        walAtStart = walPosition();
+        statements.set(0);
+        edits.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long wal = walPosition() - walAtStart;
+        statements.addAndGet(-1); // la propia lectura de la posición del WAL
+        System.out.printf("%n[%s/%s] %.2f sentencias y %d bytes de WAL por edición%n", mode, data,
+                (double) statements.get() / edits.get(), wal / Math.max(1, edits.get()));
+    }
+
+    @Benchmark
+    public User updateProfile() {
+        edits.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String uid = "uid-" + (1 + random.nextInt(ROWS));
+        String name = "changed".equals(data) ? "Nombre " + random.nextInt() : "Nombre";
+
+        if ("readModifyWrite".equals(mode)) {
+            // Lo que hacía UserService: leer la entidad, modificarla y guardarla completa
+            return template.selectOne(Query.query(Criteria.where("firebase_uid").is(uid)), User.class)
+                    .flatMap(user -> {
+                        user.setName(name);
+                        user.setLastName("Apellido");
+                        user.setDocumentType("DNI");
+                        return template.update(user);
+                    })
+                    .block();
+        }
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", name);
+        changes.put("last_name", "Apellido");
+        changes.put("document_type", "DNI");
+        return repository.patchByFirebaseUid(uid, null, changes)
+                .map(result -> result.user())
+                .block();
+    }
+
+    private long walPosition() {
+        return template.getDatabaseClient().sql("SELECT pg_current_wal_lsn() - '0/0'::pg_lsn")
+                .map(row -> row.get(0, Number.class).longValue())
+                .one()
+                .block();
+    }
+}
@@ -0,0 +1,72 @@
+package pe.edu.vallegrande.user.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.service.NoOpSecondLevelUserCache;
+import pe.edu.vallegrande.user.service.UserProfileCache;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de /api/users/me: latencia por petición (SampleTime → p50/p99/p999)
+ * con y sin {@link UserProfileCache}, frente a una BD simulada de {@code dbLatencyMicros}
+ * y un conjunto de {@code activeUsers} usuarios activos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(16)
+@Fork(1)
+public class UserProfileCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Param({"2000"})
+    public int dbLatencyMicros;
+
+    @Param({"5000"})
+    public int activeUsers;
+
+    private UserProfileCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = new UserProfileCache(new NoOpSecondLevelUserCache(), new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(5));
+    }
+
+    @Benchmark
+    public UserDto getMyProfile() {
+        String uid = "uid-" + ThreadLocalRandom.current().nextInt(activeUsers);
+        Mono<UserDto> lookup = cached
+                ? cache.getByFirebaseUid(uid, () -> loadFromDatabase(uid))
+                : loadFromDatabase(uid);
+        return lookup.block();
+    }
+
+    // Simula la consulta a Postgres (round trip de red + ejecución)
+    private Mono<UserDto> loadFromDatabase(String uid) {
+        return Mono.delay(Duration.ofNanos(dbLatencyMicros * 1000L))
+                .map(tick -> new UserDto(ThreadLocalRandom.current().nextInt(), uid, "Nombre", "Apellido",
+                        "DNI", "12345678", "999999999", uid + "@mail.com", List.of("USER"), null, null, 0L));
+    }
+}
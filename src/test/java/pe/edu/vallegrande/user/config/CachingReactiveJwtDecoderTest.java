@@ -0,0 +1,92 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.*;
+
+public class CachingReactiveJwtDecoderTest {
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2025-01-01T10:00:00Z"));
+    private ReactiveJwtDecoder delegate;
+    private CachingReactiveJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ReactiveJwtDecoder.class);
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        decoder = new CachingReactiveJwtDecoder(delegate, new SimpleMeterRegistry(), 100, Duration.ofHours(1), clock);
+    }
+
+    @Test
+    void shouldVerifyEachTokenOnce_whileItIsValid() {
+        when(delegate.decode("token-a")).thenReturn(Mono.fromSupplier(() -> jwt("uid-a", now.get().plusSeconds(3600))));
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(decoder.decode("token-a"))
+                    .expectNextMatches(jwt -> jwt.getSubject().equals("uid-a"))
+                    .verifyComplete();
+        }
+
+        verify(delegate, times(1)).decode("token-a");
+    }
+
+    @Test
+    void shouldNotServeTokenPastItsExpiry() {
+        when(delegate.decode("token-a")).thenReturn(Mono.fromSupplier(() -> jwt("uid-a", Instant.parse("2025-01-01T10:01:00Z"))));
+
+        decoder.decode("token-a").block();
+        now.set(Instant.parse("2025-01-01T10:02:00Z"));
+
+        // Error (401), no vacío: AuthenticationWebFilter convierte una autenticación vacía en un 500
+        StepVerifier.create(decoder.decode("token-a")).expectError(JwtValidationException.class).verify();
+    }
+
+    @Test
+    void shouldNotCacheVerificationErrors() {
+        when(delegate.decode("bad")).thenReturn(Mono.error(new BadJwtException("firma inválida")));
+
+        StepVerifier.create(decoder.decode("bad")).expectError(BadJwtException.class).verify();
+        StepVerifier.create(decoder.decode("bad")).expectError(BadJwtException.class).verify();
+
+        verify(delegate, times(2)).decode("bad");
+    }
+
+    private static Jwt jwt(String subject, Instant expiresAt) {
+        return Jwt.withTokenValue("t")
+                .header("alg", "RS256")
+                .subject(subject)
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
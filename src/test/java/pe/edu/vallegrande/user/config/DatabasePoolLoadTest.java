@@ -0,0 +1,125 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga del pool de {@link DatabaseConfig}: rendimiento (consultas/s) de la búsqueda
+ * por firebase_uid con 64 peticiones concurrentes, para distintos tamaños de pool.
+ * Cada consulta incluye una espera de 2 ms en Postgres para simular trabajo real.
+ */
+@Slf4j
+@Testcontainers(disabledWithoutDocker = true)
+class DatabasePoolLoadTest {
+
+    private static final int CONCURRENCY = 64;
+    private static final int QUERIES = 4_000;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withCommand("postgres", "-c", "max_connections=200");
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        ConnectionPool pool = pool(4);
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(pool).block();
+        DatabaseClient.create(pool).sql("""
+                        INSERT INTO users (firebase_uid, name, last_name, email, role)
+                        SELECT 'uid-' || g, 'Nombre ' || g, 'Apellido ' || g, 'user' || g || '@mail.com', ARRAY['USER']
+                        FROM generate_series(1, 10000) g
+                        """)
+                .then()
+                .block();
+        pool.dispose();
+    }
+
+    @Test
+    void throughputGrowsWithPoolSize_untilConcurrencyIsCovered() {
+        Map<Integer, Measurement> results = new LinkedHashMap<>();
+        for (int poolSize : List.of(2, 8, 32)) {
+            results.put(poolSize, measure(poolSize));
+        }
+        results.forEach((size, result) -> log.debug("📊 pool={} → {} consultas/s, espera media por conexión {} ms",
+                size, Math.round(result.queriesPerSecond()), String.format("%.2f", result.meanAcquireMillis())));
+
+        assertTrue(results.get(8).queriesPerSecond() > results.get(2).queriesPerSecond() * 2, results.toString());
+        assertTrue(results.get(32).queriesPerSecond() > results.get(8).queriesPerSecond(), results.toString());
+        // Con más conexiones las peticiones esperan menos a que el pool les asigne una
+        assertTrue(results.get(32).meanAcquireMillis() < results.get(2).meanAcquireMillis(), results.toString());
+    }
+
+    @Test
+    void warmupOpensInitialConnections() {
+        MeteredConnectionFactory connectionFactory = new MeteredConnectionFactory(pool(8), new SimpleMeterRegistry());
+        try {
+            assertEquals(8, connectionFactory.unwrap().warmup().block());
+            assertEquals(8, connectionFactory.metrics().allocatedSize());
+        } finally {
+            connectionFactory.dispose();
+        }
+    }
+
+    private Measurement measure(int poolSize) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredConnectionFactory connectionFactory = new MeteredConnectionFactory(pool(poolSize), registry);
+        try {
+            connectionFactory.unwrap().warmup().block();
+            DatabaseClient client = DatabaseClient.create(connectionFactory);
+
+            long start = System.nanoTime();
+            Flux.range(0, QUERIES)
+                    .flatMap(i -> client.sql("SELECT u.id, pg_sleep(0.002) FROM users u WHERE u.firebase_uid = :uid")
+                            .bind("uid", "uid-" + ThreadLocalRandom.current().nextInt(1, 10_001))
+                            .fetch()
+                            .one(), CONCURRENCY)
+                    .blockLast(Duration.ofMinutes(2));
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            return new Measurement(QUERIES / seconds,
+                    registry.get("r2dbc.pool.acquire").tag("outcome", "success").timer().mean(TimeUnit.MILLISECONDS));
+        } finally {
+            connectionFactory.dispose();
+        }
+    }
+
+    private static ConnectionPool pool(int size) {
+        R2dbcProperties properties = new R2dbcProperties();
+        properties.setUrl("r2dbc:postgresql://" + POSTGRES.getHost() + ":" + POSTGRES.getFirstMappedPort() + "/" + POSTGRES.getDatabaseName());
+        properties.setUsername(POSTGRES.getUsername());
+        properties.setPassword(POSTGRES.getPassword());
+        properties.getProperties().put("preparedStatementCacheQueries", "256");
+        properties.getPool().setInitialSize(size);
+        properties.getPool().setMinIdle(size);
+        properties.getPool().setMaxSize(size);
+        properties.getPool().setMaxAcquireTime(Duration.ofSeconds(30));
+        return DatabaseConfig.connectionPool(properties, Duration.ofSeconds(60), new SimpleMeterRegistry());
+    }
+
+    private record Measurement(double queriesPerSecond, double meanAcquireMillis) {
+    }
+}
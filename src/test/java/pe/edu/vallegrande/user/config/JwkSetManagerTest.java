@@ -0,0 +1,167 @@
+package pe.edu.vallegrande.user.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JwkSetManagerTest {
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+    private MockWebServer google;
+    private SimpleMeterRegistry registry;
+    private RSAKey key1;
+    private RSAKey key2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        google = new MockWebServer();
+        google.start();
+        registry = new SimpleMeterRegistry();
+        key1 = new RSAKeyGenerator(2048).keyID("k1").generate();
+        key2 = new RSAKeyGenerator(2048).keyID("k2").generate();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        google.shutdown();
+    }
+
+    @Test
+    void shouldPrefetchKeys_andRefreshOnlyWhenMaxAgeIsNearlyOver() throws Exception {
+        google.enqueue(jwks(key1).setHeader("Cache-Control", "public, max-age=1000"));
+        JwkSetManager manager = manager(null);
+
+        manager.prefetch().block();
+        StepVerifier.create(decoder(manager).decode(token(key1))).expectNextCount(1).verifyComplete();
+        assertEquals(1, google.getRequestCount());
+
+        now.set(now.get().plusSeconds(700)); // < 80% de max-age
+        manager.refreshIfDue().block();
+        assertEquals(1, google.getRequestCount());
+
+        google.enqueue(jwks(key1, key2).setHeader("Cache-Control", "max-age=1000"));
+        now.set(now.get().plusSeconds(200));
+        manager.refreshIfDue().block();
+        assertEquals(2, google.getRequestCount());
+        assertEquals(2.0, registry.get("jwk.keys").gauge().value());
+    }
+
+    @Test
+    void shouldKeepServingStaleKeys_whenRefreshFails() throws Exception {
+        google.enqueue(jwks(key1).setHeader("Cache-Control", "max-age=60"));
+        JwkSetManager manager = manager(null);
+        manager.prefetch().block();
+
+        google.enqueue(new MockResponse().setResponseCode(503));
+        now.set(now.get().plusSeconds(120));
+        manager.refreshIfDue().block();
+
+        StepVerifier.create(decoder(manager).decode(token(key1))).expectNextCount(1).verifyComplete();
+        assertEquals(1.0, registry.get("jwk.refresh.failures").counter().count());
+        assertEquals(1, registry.get("jwk.refresh").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void shouldRefreshOnUnknownKeyId_atMostOncePerInterval() throws Exception {
+        google.enqueue(jwks(key1));
+        JwkSetManager manager = manager(null);
+        manager.prefetch().block();
+
+        // Google rotó las claves: el primer token con k2 fuerza una descarga
+        google.enqueue(jwks(key1, key2));
+        now.set(now.get().plusSeconds(31));
+        ReactiveJwtDecoder decoder = decoder(manager);
+        StepVerifier.create(decoder.decode(token(key2))).expectNextCount(1).verifyComplete();
+        assertEquals(2, google.getRequestCount());
+
+        // Un kid que no existe no provoca otra descarga dentro de min-refresh-interval
+        RSAKey unknown = new RSAKeyGenerator(2048).keyID("k3").generate();
+        StepVerifier.create(decoder.decode(token(unknown))).expectError().verify();
+        assertEquals(2, google.getRequestCount());
+    }
+
+    @Test
+    void shouldUseLocalJwkFile_withoutNetwork(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("jwks.json");
+        Files.writeString(file, new JWKSet(key1.toPublicJWK()).toString());
+        JwkSetManager manager = manager("file:" + file);
+
+        manager.prefetch().block();
+        manager.refreshIfDue().block();
+
+        StepVerifier.create(decoder(manager).decode(token(key1))).expectNextCount(1).verifyComplete();
+        assertEquals(0, google.getRequestCount());
+    }
+
+    private JwkSetManager manager(String localFile) {
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        return new JwkSetManager(WebClient.create(), registry, google.url("/jwks").toString(), localFile,
+                Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(5), clock);
+    }
+
+    private static ReactiveJwtDecoder decoder(JwkSetManager manager) {
+        return NimbusReactiveJwtDecoder.withJwkSource(manager::keysFor).build();
+    }
+
+    private static MockResponse jwks(RSAKey... keys) {
+        JWKSet set = new JWKSet(Arrays.stream(keys).map(k -> (JWK) k.toPublicJWK()).toList());
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(set.toString());
+    }
+
+    private static String token(RSAKey key) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("uid-1")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,137 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundHttpClientTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final HttpClientProperties properties = new HttpClientProperties();
+    private final HttpClientProperties.Client config = new HttpClientProperties.Client();
+    private MockWebServer storage;
+    private OutboundHttpClients clients;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new MockWebServer();
+        storage.start();
+        config.getRetry().setMinBackoff(Duration.ofMillis(10));
+        config.getRetry().setMaxBackoff(Duration.ofMillis(50));
+        properties.getClients().put("storage", config);
+        clients = new OutboundHttpClients(WebClient.builder(), properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        clients.dispose();
+        storage.shutdown();
+    }
+
+    @Test
+    void shouldRetryIdempotentCall_onServerErrorAndSlowResponse() {
+        config.getTimeouts().put("upload", Duration.ofMillis(300));
+        OutboundHttpClient http = clients.client("storage");
+        storage.enqueue(new MockResponse().setResponseCode(503));
+        storage.enqueue(new MockResponse().setBody("lenta").setHeadersDelay(2, TimeUnit.SECONDS)); // latencia inyectada
+        storage.enqueue(new MockResponse().setBody("ok"));
+
+        StepVerifier.create(http.idempotent(put(http, "upload")))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(3, storage.getRequestCount());
+        assertEquals(2, registry.get("http.client.retries").tag("client", "storage").counter().count());
+    }
+
+    @Test
+    void shouldNotRetryClientErrors_norCountThemAsFailures() {
+        config.getCircuitBreaker().setMinimumCalls(1);
+        OutboundHttpClient http = clients.client("storage");
+        storage.enqueue(new MockResponse().setResponseCode(400));
+
+        StepVerifier.create(http.idempotent(put(http, "upload")))
+                .expectErrorMatches(e -> e instanceof WebClientResponseException.BadRequest)
+                .verify();
+
+        assertEquals(1, storage.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, http.circuitState());
+    }
+
+    @Test
+    void shouldOpenCircuit_rejectWithoutCallingServer_andCloseAfterSuccessfulProbe() throws InterruptedException {
+        config.getRetry().setMaxAttempts(1);
+        config.getCircuitBreaker().setMinimumCalls(4);
+        config.getCircuitBreaker().setOpenDuration(Duration.ofMillis(300));
+        config.getCircuitBreaker().setHalfOpenCalls(1);
+        OutboundHttpClient http = clients.client("storage");
+        for (int i = 0; i < 4; i++) storage.enqueue(new MockResponse().setResponseCode(500));
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(http.idempotent(put(http, "upload"))).expectError().verify();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, http.circuitState());
+
+        StepVerifier.create(http.idempotent(put(http, "upload")))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException status
+                        && status.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        assertEquals(4, storage.getRequestCount()); // rechazada sin salir
+        assertEquals(1, registry.get("http.client.circuit.rejected").tag("client", "storage").counter().count());
+        assertEquals(1.0, registry.get("http.client.circuit.state").tag("client", "storage").gauge().value());
+
+        Thread.sleep(400);
+        storage.enqueue(new MockResponse().setBody("ok"));
+        StepVerifier.create(http.idempotent(put(http, "upload"))).expectNext("ok").verifyComplete();
+        assertEquals(CircuitBreaker.State.CLOSED, http.circuitState());
+    }
+
+    @Test
+    void shouldFailFast_whenBurstExceedsPendingAcquireLimit() {
+        config.setMaxConnections(1);
+        config.setPendingAcquireMaxCount(1);
+        config.getCircuitBreaker().setEnabled(false);
+        OutboundHttpClient http = clients.client("storage");
+        for (int i = 0; i < 3; i++) {
+            storage.enqueue(new MockResponse().setBody("ok").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        }
+
+        // 1 conexión + 1 en espera: la tercera petición simultánea no se queda colgada
+        List<String> results = Flux.range(0, 3)
+                .flatMap(i -> http.once(put(http, "upload"))
+                        .onErrorResume(e -> Mono.just(String.valueOf(e.getCause()).contains("PoolAcquirePendingLimit")
+                                ? "rechazada" : "error: " + e)))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(2, results.stream().filter("ok"::equals).count());
+        assertTrue(results.contains("rechazada"), results.toString());
+    }
+
+    private Mono<String> put(OutboundHttpClient http, String operation) {
+        return http.webClient().put()
+                .uri(storage.url("/object/avatars/a.png").uri())
+                .httpRequest(http.responseTimeout(operation))
+                .bodyValue("contenido")
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+}
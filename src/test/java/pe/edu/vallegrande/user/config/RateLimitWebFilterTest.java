@@ -0,0 +1,124 @@
+package pe.edu.vallegrande.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import pe.edu.vallegrande.user.service.RateLimitStore;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitWebFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> bodiesSeenByController = new ArrayList<>();
+    private final WebFilterChain controller = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .map(buffer -> {
+                String body = buffer.toString(StandardCharsets.UTF_8);
+                DataBufferUtils.release(buffer);
+                return body;
+            })
+            .doOnNext(bodiesSeenByController::add)
+            .then();
+
+    @Test
+    void shouldLimitByEmail_acrossIps_andKeepTheBodyReadable() {
+        RateLimitWebFilter filter = filter(new CountingStore());
+
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = forgotPassword("10.0.0." + i, "{\"email\":\"Ana@Mail.com\"}");
+            filter.filter(exchange, controller).block();
+            assertNull(exchange.getResponse().getStatusCode());
+        }
+        assertEquals(List.of("{\"email\":\"Ana@Mail.com\"}", "{\"email\":\"Ana@Mail.com\"}"), bodiesSeenByController);
+
+        // Mismo email normalizado, otra IP: se agota el bucket del email
+        MockServerWebExchange rejected = forgotPassword("10.0.0.9", "{\"email\":\"ana@mail.com \"}");
+        filter.filter(rejected, controller).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1800", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getResponse().getBodyAsString().block().contains("error"));
+        assertEquals(2, bodiesSeenByController.size());
+        assertEquals(1.0, registry.get("rate.limit.requests").tags("key", "email", "outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void shouldLimitByIp_beforeConsumingTheEmailBucket() {
+        CountingStore store = new CountingStore();
+        RateLimitWebFilter filter = filter(store);
+
+        for (int i = 0; i < 4; i++) {
+            filter.filter(forgotPassword("10.0.0.1", "{\"email\":\"u" + i + "@mail.com\"}"), controller).block();
+        }
+
+        assertEquals(3, bodiesSeenByController.size());
+        // La 4.ª petición se corta en el bucket de la IP: el de su email no se toca
+        assertEquals(3, store.attempts.keySet().stream().filter(key -> key.startsWith("forgot:email:")).count());
+    }
+
+    @Test
+    void shouldIgnoreOtherRoutes_andFailOpenWhenTheStoreFails() {
+        RateLimitWebFilter filter = filter((key, capacity, period) -> Mono.error(new IllegalStateException("BD caída")));
+
+        MockServerWebExchange other = MockServerWebExchange.from(MockServerHttpRequest.post("/api/auth/otra").body("x"));
+        filter.filter(other, controller).block();
+        MockServerWebExchange limited = forgotPassword("10.0.0.1", "{\"email\":\"a@mail.com\"}");
+        filter.filter(limited, controller).block();
+
+        assertEquals(List.of("x", "{\"email\":\"a@mail.com\"}"), bodiesSeenByController);
+        assertEquals(1.0, registry.get("rate.limit.requests").tags("outcome", "error").counter().count());
+    }
+
+    private RateLimitWebFilter filter(RateLimitStore store) {
+        RateLimitProperties.Limit byIp = new RateLimitProperties.Limit();
+        byIp.setKey(RateLimitProperties.Key.IP);
+        byIp.setCapacity(3);
+        byIp.setPeriod(Duration.ofMinutes(10));
+        RateLimitProperties.Limit byEmail = new RateLimitProperties.Limit();
+        byEmail.setKey(RateLimitProperties.Key.EMAIL);
+        byEmail.setCapacity(2);
+        byEmail.setPeriod(Duration.ofHours(1));
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setId("forgot");
+        route.setMethod("post");
+        route.setPath("/api/auth/forgot-password");
+        route.setLimits(List.of(byIp, byEmail));
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRoutes(List.of(route));
+        return new RateLimitWebFilter(properties, store, new ObjectMapper(), registry);
+    }
+
+    private static MockServerWebExchange forgotPassword(String ip, String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/auth/forgot-password")
+                .remoteAddress(new InetSocketAddress(ip, 40000))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
+    }
+
+    // Bucket trivial: admite capacity intentos por clave y luego pide esperar medio periodo
+    private static class CountingStore implements RateLimitStore {
+        final Map<String, Integer> attempts = new HashMap<>();
+
+        @Override
+        public Mono<Duration> tryAcquire(String key, int capacity, Duration period) {
+            int count = attempts.merge(key, 1, Integer::sum);
+            return Mono.just(count <= capacity ? Duration.ZERO : period.dividedBy(2));
+        }
+    }
+}
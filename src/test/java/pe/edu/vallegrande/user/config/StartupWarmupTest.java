@@ -0,0 +1,98 @@
+package pe.edu.vallegrande.user.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StartupWarmupTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private StartupWarmup warmup;
+
+    @AfterEach
+    void tearDown() {
+        if (warmup != null) warmup.stop();
+    }
+
+    @Test
+    void shouldStartAllComponentsConcurrently_andBeReadyOnlyWhenAllAreHot() {
+        Sinks.Empty<Void> database = Sinks.empty();
+        Sinks.Empty<Void> jwk = Sinks.empty();
+        AtomicInteger subscribed = new AtomicInteger();
+        warmup = warmup(List.of(
+                new StartupWarmup.Task("database", () -> database.asMono().doOnSubscribe(s -> subscribed.incrementAndGet())),
+                new StartupWarmup.Task("jwk", () -> jwk.asMono().doOnSubscribe(s -> subscribed.incrementAndGet()))
+        ), Duration.ofSeconds(5));
+
+        warmup.start();
+        waitUntil(() -> subscribed.get() == 2); // ninguna espera a la otra
+        assertEquals(Status.OUT_OF_SERVICE, warmup.health().getStatus());
+
+        database.tryEmitEmpty();
+        waitUntil(() -> !"pending".equals(warmup.health().getDetails().get("database")));
+        Health partial = warmup.health();
+        assertEquals(Status.OUT_OF_SERVICE, partial.getStatus());
+        assertEquals("pending", partial.getDetails().get("jwk"));
+        assertEquals(1.0, registry.get("startup.warmup.pending").gauge().value());
+
+        jwk.tryEmitEmpty();
+        waitUntil(() -> warmup.health().getStatus().equals(Status.UP));
+        assertEquals(1, registry.get("startup.warmup").tag("component", "jwk").timer().count());
+        assertEquals(0.0, registry.get("startup.warmup.pending").gauge().value());
+    }
+
+    @Test
+    void shouldRetryFailingComponent_untilItResponds() {
+        AtomicInteger attempts = new AtomicInteger();
+        warmup = warmup(List.of(new StartupWarmup.Task("firebase", () -> Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(new IllegalStateException("sin red"))
+                : Mono.empty()))), Duration.ofSeconds(5));
+
+        warmup.start();
+
+        waitUntil(() -> warmup.health().getStatus().equals(Status.UP));
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, registry.get("startup.warmup.failures").tag("component", "firebase").counter().count());
+    }
+
+    @Test
+    void shouldTimeOutHungAttempt_andTryAgain() {
+        AtomicInteger attempts = new AtomicInteger();
+        warmup = warmup(List.of(new StartupWarmup.Task("database", () -> attempts.incrementAndGet() == 1
+                ? Mono.never()
+                : Mono.empty())), Duration.ofMillis(200));
+
+        warmup.start();
+
+        waitUntil(() -> warmup.health().getStatus().equals(Status.UP));
+        assertEquals(2, attempts.get());
+        Map<String, Object> details = warmup.health().getDetails();
+        assertTrue(details.get("database").toString().endsWith("ms"));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condición no alcanzada en 5 s");
+            LockSupport.parkNanos(Duration.ofMillis(5).toNanos());
+        }
+    }
+
+    private StartupWarmup warmup(List<StartupWarmup.Task> tasks, Duration attemptTimeout) {
+        return new StartupWarmup(tasks, registry, attemptTimeout, Duration.ofMillis(10), Duration.ofMillis(50));
+    }
+}
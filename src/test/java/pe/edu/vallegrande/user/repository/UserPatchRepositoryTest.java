@@ -0,0 +1,109 @@
+package pe.edu.vallegrande.user.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pe.edu.vallegrande.user.repository.UserPatchRepository.PatchResult;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ediciones parciales en una sola sentencia: valores anteriores, version, ediciones sin cambios y conflictos.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserPatchRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static final AtomicInteger statements = new AtomicInteger();
+    static R2dbcEntityTemplate template;
+    static UserPatchRepositoryImpl repository;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(POSTGRES.getHost())
+                        .port(POSTGRES.getFirstMappedPort())
+                        .database(POSTGRES.getDatabaseName())
+                        .username(POSTGRES.getUsername())
+                        .password(POSTGRES.getPassword())
+                        .build());
+
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(connectionFactory).block();
+
+        template = new R2dbcEntityTemplate(ProxyConnectionFactory.builder(connectionFactory)
+                .onAfterQuery(execution -> statements.incrementAndGet())
+                .build());
+        repository = new UserPatchRepositoryImpl(template);
+    }
+
+    @BeforeEach
+    void resetUser() {
+        template.getDatabaseClient().sql("DELETE FROM users").then()
+                .then(template.getDatabaseClient().sql("""
+                        INSERT INTO users (id, firebase_uid, name, email, role, profile_image)
+                        VALUES (1, 'uid-1', 'Ana', 'ana@mail.com', ARRAY['USER'], 'https://example.com/a.jpg')
+                        """).then())
+                .block();
+        statements.set(0);
+    }
+
+    @Test
+    void shouldUpdateOnlyGivenColumns_inOneStatement_andReturnPreviousValues() {
+        PatchResult result = repository.patchByFirebaseUid("uid-1", 0L,
+                Map.of("email", "nuevo@mail.com", "profile_image", "https://example.com/b.jpg", "role", List.of("admin"))).block();
+
+        assertEquals(1, statements.get());
+        assertTrue(result.changed());
+        assertEquals("nuevo@mail.com", result.user().getEmail());
+        assertEquals("Ana", result.user().getName());
+        assertEquals(List.of("ADMIN"), result.user().getRole());
+        assertEquals(1L, result.user().getVersion());
+        assertEquals("ana@mail.com", result.previousEmail());
+        assertEquals("https://example.com/a.jpg", result.previousProfileImage());
+        assertEquals(List.of("USER"), result.previousRole());
+    }
+
+    @Test
+    void shouldNotWrite_whenNothingChanges() {
+        PatchResult result = repository.patchById(1, null, Map.of("name", "Ana")).block();
+
+        assertEquals(1, statements.get());
+        assertFalse(result.changed());
+        assertEquals(0L, result.user().getVersion());
+    }
+
+    @Test
+    void shouldFailWithOptimisticLock_whenVersionIsStale_andCompleteEmpty_whenMissing() {
+        repository.patchById(1, 0L, Map.of("name", "Ana María")).block();
+
+        StepVerifier.create(repository.patchById(1, 0L, Map.of("name", "Otra")))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+        StepVerifier.create(repository.patchById(99, null, Map.of("name", "Nadie")))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,142 @@
+package pe.edu.vallegrande.user.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pe.edu.vallegrande.user.model.User;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Búsqueda del panel de administración sobre 1M de usuarios: los planes usan los índices de trigramas
+ * de V005 (sin Seq Scan), el orden es por relevancia y el statement_timeout corta la consulta.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserSearchRepositoryTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final String[] NAMES = {"Ana", "Luis", "María", "José", "Carmen", "Jorge", "Rosa", "Pedro",
+            "Lucía", "Miguel", "Elena", "Raúl", "Sofía", "Diego", "Valeria", "Andrés"};
+    private static final String[] LAST_NAMES = {"Pérez", "Quispe", "Mamani", "Huamán", "Flores", "Rojas",
+            "Vargas", "Torres", "Ramos", "Castillo", "Chávez", "Mendoza", "Espinoza", "Gutiérrez"};
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static DatabaseClient client;
+    static UserSearchRepositoryImpl repository;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(POSTGRES.getHost())
+                        .port(POSTGRES.getFirstMappedPort())
+                        .database(POSTGRES.getDatabaseName())
+                        .username(POSTGRES.getUsername())
+                        .password(POSTGRES.getPassword())
+                        .build());
+
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(connectionFactory).block();
+
+        client = DatabaseClient.create(connectionFactory);
+        repository = new UserSearchRepositoryImpl(new R2dbcEntityTemplate(connectionFactory),
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory)));
+
+        // Nombres y apellidos repetidos (como en producción) + documento y celular únicos
+        client.sql("""
+                        INSERT INTO users (firebase_uid, name, last_name, document_type, document_number, cell_phone, email, role)
+                        SELECT 'uid-' || g,
+                               n.names[1 + g %% cardinality(n.names)] || CASE WHEN g %% 7 = 0 THEN ' Isabel' ELSE '' END,
+                               n.last_names[1 + (g / 16) %% cardinality(n.last_names)] || ' '
+                                   || n.last_names[1 + (g / 224) %% cardinality(n.last_names)],
+                               'DNI', (10000000 + g)::text, '9' || lpad(g::text, 8, '0'),
+                               'user' || g || '@mail.com', ARRAY['USER']
+                        FROM generate_series(1, %d) g,
+                             (SELECT %s AS names, %s AS last_names) n
+                        """.formatted(ROWS, sqlArray(NAMES), sqlArray(LAST_NAMES)))
+                .then()
+                .then(client.sql("INSERT INTO users (firebase_uid, name, last_name, document_number, cell_phone, email, role) "
+                        + "VALUES ('uid-unico', 'Zacarías', 'Ñahui Paucar', '70000001', '987000001', 'zacarias@mail.com', ARRAY['USER'])").then())
+                .then(client.sql("ANALYZE users").then())
+                .block(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void rareName_usesTrigramIndexes_andRanksExactMatchFirst() {
+        String plan = explain(List.of("zacarías"));
+
+        assertTrue(plan.contains("ix_users_name_trgm"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+
+        List<User> users = repository.search(List.of("zacarías"), 10, 0, Duration.ofSeconds(2)).collectList().block();
+        assertEquals("Zacarías", users.get(0).getName());
+    }
+
+    @Test
+    void documentAndPhonePrefixes_useTrigramIndexes() {
+        String documentPlan = explain(List.of("7000000"));
+        String phonePlan = explain(List.of("98700000"));
+
+        assertTrue(documentPlan.contains("ix_users_document_number_trgm"), documentPlan);
+        assertTrue(phonePlan.contains("ix_users_cell_phone_trgm"), phonePlan);
+        assertFalse(documentPlan.contains("Seq Scan"), documentPlan);
+        assertFalse(phonePlan.contains("Seq Scan"), phonePlan);
+
+        List<User> users = repository.search(List.of("70000001"), 10, 0, Duration.ofSeconds(2)).collectList().block();
+        assertEquals("70000001", users.get(0).getDocumentNumber()); // coincidencia completa antes que prefijos
+    }
+
+    @Test
+    void severalTerms_mustAllMatch_andStayWithinBudget() {
+        long start = System.nanoTime();
+        List<User> users = repository.search(List.of("ñahui", "zacar"), 10, 0, Duration.ofSeconds(2)).collectList().block();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(1, users.size());
+        assertTrue(elapsedMillis < 2000, "La búsqueda tardó " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void commonTerm_exceedingBudget_failsWithTimeout() {
+        // "ana" aparece en ~1/16 de las filas: ordenar todas por relevancia no cabe en 1 ms
+        StepVerifier.create(repository.search(List.of("ana"), 50, 0, Duration.ofMillis(1)))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private static String sqlArray(String[] values) {
+        return "ARRAY['" + String.join("', '", values) + "']";
+    }
+
+    private String explain(List<String> terms) {
+        String sql = "EXPLAIN " + UserSearchRepositoryImpl.searchSql(terms.size());
+        List<String> lines = UserSearchRepositoryImpl.bind(client.sql(sql), terms, 51, 0)
+                .map(row -> row.get(0, String.class))
+                .all()
+                .collectList()
+                .block();
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,130 @@
+package pe.edu.vallegrande.user.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que las búsquedas por firebase_uid y email usan los índices únicos, el filtro por rol
+ * el índice GIN y las páginas del listado los índices de orden, creados por las migraciones de db/schema (EXPLAIN) y no un escaneo secuencial.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UsersRepositoryIndexTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static PostgresqlConnectionFactory connectionFactory;
+    static DatabaseClient client;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        connectionFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(POSTGRES.getHost())
+                        .port(POSTGRES.getFirstMappedPort())
+                        .database(POSTGRES.getDatabaseName())
+                        .username(POSTGRES.getUsername())
+                        .password(POSTGRES.getPassword())
+                        .build());
+
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(connectionFactory).block();
+
+        client = DatabaseClient.create(connectionFactory);
+        client.sql("""
+                        INSERT INTO users (firebase_uid, name, last_name, email, role)
+                        SELECT 'uid-' || g, 'Nombre ' || g, 'Apellido ' || g, 'user' || g || '@mail.com',
+                               CASE WHEN g % 1000 = 0 THEN ARRAY['admin', 'USER', 'Admin'] ELSE ARRAY['USER'] END
+                        FROM generate_series(1, 20000) g
+                        """)
+                .then()
+                .then(client.sql("ANALYZE users").then())
+                .block();
+    }
+
+    @Test
+    void findByFirebaseUid_usesUniqueIndex() {
+        String plan = explain("SELECT * FROM users WHERE firebase_uid = 'uid-12345'");
+
+        assertTrue(plan.contains("ux_users_firebase_uid"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    @Test
+    void findByEmail_usesUniqueIndex() {
+        String plan = explain("SELECT * FROM users WHERE email = 'user12345@mail.com'");
+
+        assertTrue(plan.contains("ux_users_email"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    @Test
+    void roleFilter_usesGinIndex_overNormalizedRoles() {
+        String plan = explain("SELECT count(*) FROM users WHERE role @> ARRAY[CAST('ADMIN' AS text)]");
+
+        assertTrue(plan.contains("ix_users_role"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+
+        // El seed se cargó después de V014: volver a aplicarlo no toca filas (solo se ejecuta una vez)...
+        normalizeRoles();
+        assertEquals(List.of("admin,USER,Admin"), roles(1000));
+
+        // ...salvo que se retire su registro
+        client.sql("DELETE FROM schema_data_migrations WHERE name = 'users_role_normalization'").then().block();
+        normalizeRoles();
+        assertEquals(List.of("ADMIN,USER"), roles(1000));
+    }
+
+    private static void normalizeRoles() {
+        new ResourceDatabasePopulator(new PathMatchingResourcePatternResolver()
+                .getResource("classpath:db/schema/V014__users_role_normalization.sql")).populate(connectionFactory).block();
+    }
+
+    private static List<String> roles(int id) {
+        return client.sql("SELECT array_to_string(role, ',') FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get(0, String.class))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    @Test
+    void keysetPageBySortColumn_usesExpressionIndex() {
+        String plan = explain("""
+                SELECT * FROM users
+                WHERE (COALESCE(last_name, ''), id) > ('Apellido 500', 500)
+                ORDER BY COALESCE(last_name, '') ASC, id ASC LIMIT 21
+                """);
+
+        assertTrue(plan.contains("ix_users_sort_last_name"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+    }
+
+    private String explain(String query) {
+        List<String> lines = client.sql("EXPLAIN " + query)
+                .map(row -> row.get(0, String.class))
+                .all()
+                .collectList()
+                .block();
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,159 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pe.edu.vallegrande.user.model.ClaimsSync;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.ClaimsSyncRepository;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ClaimsSyncWorkerTest {
+
+    private SimpleMeterRegistry registry;
+    private ClaimsSyncRepository claimsSyncRepository;
+    private UsersRepository usersRepository;
+    private ClaimsSyncService claimsSyncService;
+    private InMemoryFirebaseGateway firebaseGateway;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private ClaimsSyncWorker worker;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        claimsSyncRepository = mock(ClaimsSyncRepository.class);
+        when(claimsSyncRepository.removeDone(any(String[].class), any(Long[].class))).thenReturn(Mono.just(1));
+        when(claimsSyncRepository.markForRetry(any(String[].class), any(Long[].class), any(String[].class),
+                anyLong(), anyLong(), anyInt())).thenReturn(Mono.just(1));
+        when(claimsSyncRepository.countPending()).thenReturn(Mono.just(0L));
+        when(claimsSyncRepository.oldestPendingAgeSeconds()).thenReturn(Mono.just(0.0));
+        usersRepository = mock(UsersRepository.class);
+        claimsSyncService = mock(ClaimsSyncService.class);
+        when(claimsSyncService.enqueue(anyCollection())).thenReturn(Mono.empty());
+
+        // Firebase en memoria con latencia, midiendo cuántas llamadas hay en curso a la vez
+        FirebaseExecutionLane lane = new FirebaseExecutionLane(registry, 16, 64, Duration.ofSeconds(5));
+        firebaseGateway = spy(new InMemoryFirebaseGateway(lane, Duration.ofMillis(30)));
+        doAnswer(invocation -> {
+            Mono<Void> call = (Mono<Void>) invocation.callRealMethod();
+            return Mono.defer(() -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                return call;
+            }).doOnTerminate(active::decrementAndGet);
+        }).when(firebaseGateway).setCustomUserClaims(anyString(), anyMap());
+
+        // 3 llamadas a la vez; ráfaga de 4 y luego una cada 100 ms
+        worker = new ClaimsSyncWorker(claimsSyncRepository, usersRepository, firebaseGateway, claimsSyncService,
+                new InMemoryRateLimitStore(registry, 1000, System::nanoTime), registry,
+                50, 3, 4, Duration.ofMillis(400), 3, Duration.ofSeconds(10), Duration.ofMinutes(30),
+                Duration.ofMinutes(2), 2);
+    }
+
+    @Test
+    void shouldApplyCurrentRole_withBoundedConcurrencyAndRate_andRemoveAppliedRevisions() {
+        List<ClaimsSync> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            createAccount("uid-" + i, "USER");
+            tasks.add(task("uid-" + i, 3L, 0, List.of("ADMIN", "USER")));
+        }
+        tasks.add(task("uid-gone", 1L, 0, null)); // el usuario ya no está en users
+        when(claimsSyncRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.fromIterable(tasks));
+
+        long start = System.nanoTime();
+        StepVerifier.create(worker.drain()).verifyComplete();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Map.of("role", "ADMIN"), firebaseGateway.claimsOf("uid-" + i));
+        }
+        assertTrue(maxActive.get() <= 3, "concurrencia máxima: " + maxActive.get());
+        assertTrue(elapsedMs >= 500, "6 llamadas tras la ráfaga a 1 cada 100 ms, tardó " + elapsedMs + " ms");
+        verify(firebaseGateway, never()).setCustomUserClaims(eq("uid-gone"), anyMap());
+
+        ArgumentCaptor<String[]> uids = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<Long[]> revisions = ArgumentCaptor.forClass(Long[].class);
+        verify(claimsSyncRepository).removeDone(uids.capture(), revisions.capture()); // una sola sentencia
+        assertEquals(11, uids.getValue().length);
+        assertTrue(Arrays.asList(uids.getValue()).contains("uid-gone"));
+        assertEquals(Set.of(3L, 1L), Set.copyOf(Arrays.asList(revisions.getValue())));
+        verify(claimsSyncRepository, never()).markForRetry(any(), any(), any(), anyLong(), anyLong(), anyInt());
+        assertEquals(10, registry.get("claims.sync.applied").counter().count());
+    }
+
+    @Test
+    void shouldScheduleRetry_forFailedUids_keepingTheirRevision() {
+        createAccount("uid-ok", "USER");
+        when(claimsSyncRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.just(
+                task("uid-ok", 1L, 0, List.of("ADMIN")),
+                task("uid-missing", 4L, 2, List.of("ADMIN")))); // sin cuenta en Firebase, último intento
+
+        StepVerifier.create(worker.drain()).verifyComplete();
+
+        verify(claimsSyncRepository).removeDone(aryEq(new String[]{"uid-ok"}), aryEq(new Long[]{1L}));
+        ArgumentCaptor<String[]> errors = ArgumentCaptor.forClass(String[].class);
+        verify(claimsSyncRepository).markForRetry(aryEq(new String[]{"uid-missing"}), aryEq(new Long[]{4L}),
+                errors.capture(), eq(10L), eq(1800L), eq(3));
+        assertTrue(errors.getValue()[0].contains("USER_NOT_FOUND"), errors.getValue()[0]);
+        assertEquals(1, registry.get("claims.sync.failed").tag("final", "true").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReconcileByPages_andEnqueueOnlyDriftedUsers() {
+        createAccount("uid-1", "USER");
+        createAccount("uid-2", "USER");  // en la BD es ADMIN
+        createAccount("uid-3", "ADMIN");
+        createAccount("uid-4", "ADMIN"); // en la BD es USER
+        createAccount("uid-5", "USER");  // sin fila en users: no se toca
+        Map<String, List<String>> rolesInDb = Map.of("uid-1", List.of("USER"), "uid-2", List.of("ADMIN", "USER"),
+                "uid-3", List.of("ADMIN"), "uid-4", List.of());
+        when(usersRepository.findAllByFirebaseUids(any(String[].class))).thenAnswer(invocation -> Flux
+                .fromArray((String[]) invocation.getArgument(0))
+                .filter(rolesInDb::containsKey)
+                .map(uid -> user(uid, rolesInDb.get(uid))));
+
+        StepVerifier.create(worker.reconcile()).verifyComplete();
+
+        // page-size = 2 → 3 páginas de listUsers y una consulta a users por página
+        verify(usersRepository, times(3)).findAllByFirebaseUids(any(String[].class));
+        ArgumentCaptor<List<String>> enqueued = ArgumentCaptor.forClass(List.class);
+        verify(claimsSyncService, atLeastOnce()).enqueue(enqueued.capture());
+        assertEquals(List.of("uid-2", "uid-4"), enqueued.getAllValues().stream().flatMap(List::stream).sorted().toList());
+        assertEquals(2, registry.get("claims.sync.drift").counter().count());
+    }
+
+    private void createAccount(String uid, String role) {
+        firebaseGateway.importUsers(List.of(new FirebaseGateway.ImportedAccount(uid, uid + "@vallegrande.edu.pe",
+                "$2a$10$hash", Map.of("role", role)))).block();
+    }
+
+    private static ClaimsSync task(String uid, long revision, int attempts, List<String> role) {
+        return new ClaimsSync(uid, revision, "PENDING", attempts, null, null, null, role);
+    }
+
+    private static User user(String uid, List<String> role) {
+        User user = new User();
+        user.setFirebaseUid(uid);
+        user.setRole(role);
+        return user;
+    }
+}
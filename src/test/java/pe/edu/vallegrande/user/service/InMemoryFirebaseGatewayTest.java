@@ -0,0 +1,111 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryFirebaseGatewayTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FirebaseExecutionLane lane;
+
+    @AfterEach
+    void tearDown() {
+        lane.shutdown();
+    }
+
+    @Test
+    void shouldRunCallsOnFirebaseLane_notOnCallerThread() {
+        lane = new FirebaseExecutionLane(registry, 2, 16, Duration.ofSeconds(1));
+        InMemoryFirebaseGateway gateway = new InMemoryFirebaseGateway(lane, Duration.ZERO);
+
+        StepVerifier.create(gateway.createUser(FirebaseUids.newUid(), "test@email.com", "secret")
+                        .flatMap(uid -> gateway.setCustomUserClaims(uid, Map.of("role", "ADMIN")).thenReturn(uid))
+                        .map(uid -> Thread.currentThread().getName() + "|" + gateway.claimsOf(uid).get("role")))
+                .expectNextMatches(result -> result.startsWith("firebase-") && result.endsWith("|ADMIN"))
+                .verifyComplete();
+
+        assertEquals(2, registry.get("firebase.call").tag("outcome", "success").timers().size());
+    }
+
+    @Test
+    void shouldFailWithTimeout_whenCallExceedsBudget() {
+        lane = new FirebaseExecutionLane(registry, 2, 16, Duration.ofMillis(50));
+        InMemoryFirebaseGateway gateway = new InMemoryFirebaseGateway(lane, Duration.ofMillis(500));
+
+        StepVerifier.create(gateway.createUser(FirebaseUids.newUid(), "slow@email.com", "secret"))
+                .expectError(TimeoutException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectCalls_whenBulkheadIsFull() {
+        lane = new FirebaseExecutionLane(registry, 1, 2, Duration.ofSeconds(5));
+        InMemoryFirebaseGateway gateway = new InMemoryFirebaseGateway(lane, Duration.ofMillis(200));
+
+        long rejected = Flux.range(0, 5)
+                .flatMap(i -> gateway.createUser(FirebaseUids.newUid(), "user" + i + "@email.com", "secret")
+                        .map(uid -> false)
+                        .onErrorResume(RejectedExecutionException.class, e -> Mono.just(true)))
+                .filter(Boolean::booleanValue)
+                .count()
+                .block();
+
+        assertEquals(3, rejected);
+        assertTrue(registry.get("firebase.lane.rejected").counter().count() >= 3);
+    }
+
+    @Test
+    void shouldNeverAdmitMoreThanMaxPending_underConcurrentCallers() throws Exception {
+        lane = new FirebaseExecutionLane(registry, 8, 4, Duration.ofSeconds(5));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // 32 hilos compiten por 4 plazas en el mismo instante
+        ExecutorService callers = Executors.newFixedThreadPool(32);
+        List<Future<Boolean>> admitted = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            admitted.add(callers.submit(() -> {
+                start.await();
+                return lane.execute("test", () -> {
+                            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            Thread.sleep(200);
+                            running.decrementAndGet();
+                            return true;
+                        })
+                        .onErrorResume(RejectedExecutionException.class, e -> Mono.just(false))
+                        .block();
+            }));
+        }
+        start.countDown();
+        int accepted = 0;
+        for (Future<Boolean> result : admitted) {
+            if (result.get(10, TimeUnit.SECONDS)) accepted++;
+        }
+        callers.shutdown();
+
+        assertEquals(4, accepted);
+        assertTrue(peak.get() <= 4, "pico: " + peak.get());
+        assertEquals(28, registry.get("firebase.lane.rejected").counter().count());
+    }
+}
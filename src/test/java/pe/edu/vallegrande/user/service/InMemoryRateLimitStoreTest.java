@@ -0,0 +1,95 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryRateLimitStoreTest {
+
+    private static final int THREADS = 16;
+
+    private final AtomicLong now = new AtomicLong(-5_000_000_000L); // nanoTime puede ser negativo
+    private final InMemoryRateLimitStore store = new InMemoryRateLimitStore(new SimpleMeterRegistry(), 10_000, now::get);
+
+    @Test
+    void shouldAdmitExactlyCapacity_underContention() throws Exception {
+        // 16 hilos × 5000 intentos sobre 4 claves con el reloj parado: ni uno más ni uno menos que capacity por clave
+        List<String> keys = List.of("a", "b", "c", "d");
+        long[] allowed = hammer(keys, 5_000, 1_000, Duration.ofMinutes(1));
+
+        for (long count : allowed) {
+            assertEquals(1_000, count);
+        }
+    }
+
+    @Test
+    void shouldRefillAtTheConfiguredRate_underContention() throws Exception {
+        // 10 por segundo → un token cada 100 ms; el reloj avanza 30 ms entre ráfagas concurrentes
+        long total = 0;
+        for (int step = 0; step <= 100; step++) {
+            total += hammer(List.of("k"), 20, 10, Duration.ofSeconds(1))[0];
+            long elapsedMillis = step * 30L;
+            assertEquals(10 + elapsedMillis / 100, total, "tras " + elapsedMillis + " ms");
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+        }
+    }
+
+    @Test
+    void shouldReportTheWaitUntilTheNextToken() {
+        Duration period = Duration.ofMinutes(1); // 3 por minuto → un token cada 20 s
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.acquire("mail", 3, period));
+        }
+        assertEquals(Duration.ofSeconds(20).toNanos(), store.acquire("mail", 3, period));
+
+        now.addAndGet(Duration.ofSeconds(15).toNanos());
+        assertEquals(Duration.ofSeconds(5).toNanos(), store.acquire("mail", 3, period));
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertEquals(0, store.acquire("mail", 3, period));
+        assertTrue(store.acquire("mail", 3, period) > 0);
+        assertEquals(0, store.acquire("otra", 3, period)); // cada clave tiene su bucket
+    }
+
+    // Lanza THREADS hilos que intentan attempts veces cada clave; devuelve los admitidos por clave
+    private long[] hammer(List<String> keys, int attempts, int capacity, Duration period) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] allowed = new long[keys.size()];
+                    start.await();
+                    for (int i = 0; i < attempts; i++) {
+                        for (int k = 0; k < keys.size(); k++) {
+                            if (store.acquire(keys.get(k), capacity, period) == 0) allowed[k]++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            long[] total = new long[keys.size()];
+            for (Future<long[]> future : futures) {
+                long[] allowed = future.get(30, TimeUnit.SECONDS);
+                for (int k = 0; k < total.length; k++) total[k] += allowed[k];
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package pe.edu.vallegrande.user.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import pe.edu.vallegrande.user.model.MailOutbox;
+import pe.edu.vallegrande.user.repository.MailOutboxRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private MailOutboxRepository outboxRepository;
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(MailOutboxRepository.class);
+        when(outboxRepository.markSent(anyCollection())).thenReturn(Mono.just(1));
+        when(outboxRepository.markForRetry(anyLong(), anyString(), anyLong(), anyInt())).thenReturn(Mono.just(1));
+        when(outboxRepository.countPending()).thenReturn(Mono.just(0L));
+        when(outboxRepository.oldestPendingAgeSeconds()).thenReturn(Mono.just(0.0));
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+    }
+
+    @Test
+    void shouldSendWholeBatchAndMarkItSent() {
+        List<MailOutbox> batch = List.of(mail(1L, "a@email.com", 0), mail(2L, "b@email.com", 0), mail(3L, "c@email.com", 0));
+        when(outboxRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.fromIterable(batch));
+
+        StepVerifier.create(dispatcher().dispatch()).verifyComplete();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        verify(outboxRepository).markSent(List.of(1L, 2L, 3L));
+        verify(outboxRepository, never()).markForRetry(anyLong(), anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldScheduleRetryWithBackoff_whenSmtpIsUnavailable() {
+        mailSender.setPort(1); // nadie escucha
+        when(outboxRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.just(mail(7L, "a@email.com", 2)));
+
+        StepVerifier.create(dispatcher().dispatch()).verifyComplete();
+
+        // tercer intento → 10s * 2^2
+        verify(outboxRepository).markForRetry(eq(7L), anyString(), eq(40L), eq(5));
+        verify(outboxRepository, never()).markSent(anyCollection());
+    }
+
+    @Test
+    void shouldPurgeFinishedMailOlderThanRetention() {
+        when(outboxRepository.purgeFinished(anyLong())).thenReturn(Mono.just(3));
+
+        StepVerifier.create(dispatcher().purge()).verifyComplete();
+
+        verify(outboxRepository).purgeFinished(Duration.ofDays(7).toSeconds());
+    }
+
+    @Test
+    void backoffShouldBeCapped() {
+        assertEquals(Duration.ofMinutes(30), dispatcher().backoff(30));
+    }
+
+    private MailOutboxDispatcher dispatcher() {
+        return new MailOutboxDispatcher(outboxRepository, mailSender, new SimpleMeterRegistry(),
+                50, 5, Duration.ofSeconds(10), Duration.ofMinutes(30), Duration.ofMinutes(2), Duration.ofDays(7));
+    }
+
+    private static MailOutbox mail(Long id, String to, int attempts) {
+        return new MailOutbox(id, to, "🔒 Restablece tu contraseña", "link", "SENDING", attempts,
+                Instant.now(), Instant.now(), null, null);
+    }
+}
@@ -0,0 +1,65 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    void shouldRejectBurstAboveMaxPending_andAcceptAgainOnceDrained() throws InterruptedException {
+        // Coste 12 (cientos de ms): las dos primeras siguen en curso cuando llegan las demás
+        service = new PasswordHashingService(registry, "12", Duration.ofMillis(100), 1, 2);
+
+        List<String> results = Flux.range(0, 5)
+                .flatMap(i -> service.encode("secret" + i)
+                        .map(hash -> "ok")
+                        .onErrorResume(RejectedExecutionException.class, e -> Mono.just("rechazada")))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(2, results.stream().filter("ok"::equals).count(), results.toString());
+        assertEquals(3, registry.get("password.hashing.rejected").counter().count());
+        // El hueco se libera en doFinally, que puede llegar justo después del resultado
+        assertEquals(0.0, pendingOnceSettled());
+
+        String hash = service.encode("secret").block(Duration.ofSeconds(10));
+        assertTrue(service.encoder().matches("secret", hash));
+    }
+
+    private double pendingOnceSettled() throws InterruptedException {
+        double pending = registry.get("password.hashing.pending").gauge().value();
+        for (int i = 0; i < 50 && pending > 0; i++) {
+            Thread.sleep(20);
+            pending = registry.get("password.hashing.pending").gauge().value();
+        }
+        return pending;
+    }
+
+    @Test
+    void shouldCalibrateToTheLowestCostReachingTheTarget_withinBounds() {
+        assertEquals(10, PasswordHashingService.calibrate(Duration.ZERO));
+        assertEquals(14, PasswordHashingService.calibrate(Duration.ofHours(1)));
+
+        service = new PasswordHashingService(registry, "auto", Duration.ofMillis(1), 1, 4);
+        assertEquals(10, service.strength());
+        assertTrue(service.encode("secret").block(Duration.ofSeconds(10)).startsWith("$2a$10$"));
+    }
+}
@@ -0,0 +1,94 @@
+package pe.edu.vallegrande.user.service;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Backend compartido: con muchas conexiones a la vez sobre la misma clave se admiten exactamente capacity.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresRateLimitStoreTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static ConnectionPool pool;
+    static DatabaseClient client;
+    static PostgresRateLimitStore store;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(POSTGRES.getHost())
+                        .port(POSTGRES.getFirstMappedPort())
+                        .database(POSTGRES.getDatabaseName())
+                        .username(POSTGRES.getUsername())
+                        .password(POSTGRES.getPassword())
+                        .build());
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory).maxSize(16).build());
+
+        var scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(r -> r.getFilename()));
+        new ResourceDatabasePopulator(scripts).populate(pool).block();
+        client = DatabaseClient.create(pool);
+        store = new PostgresRateLimitStore(client);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.dispose();
+    }
+
+    @Test
+    void shouldAdmitExactlyCapacity_withConcurrentConnections() {
+        long allowed = Flux.range(0, 500)
+                .flatMap(i -> store.tryAcquire("stress", 50, Duration.ofHours(1)), 16)
+                .filter(Duration::isZero)
+                .count()
+                .block(Duration.ofSeconds(60));
+
+        assertEquals(50, allowed);
+        Duration wait = store.tryAcquire("stress", 50, Duration.ofHours(1)).block();
+        assertTrue(wait.compareTo(Duration.ofSeconds(60)) > 0 && wait.compareTo(Duration.ofSeconds(72)) <= 0, wait.toString());
+    }
+
+    @Test
+    void shouldPurgeOnlyRefilledBuckets() {
+        store.tryAcquire("corto", 1, Duration.ofMillis(1)).block();
+        store.tryAcquire("largo", 1, Duration.ofHours(1)).block();
+        Flux.interval(Duration.ofMillis(20)).take(1).blockLast();
+
+        store.purgeExpired().block();
+
+        assertEquals(0L, count("corto"));
+        assertEquals(1L, count("largo"));
+    }
+
+    private static Long count(String key) {
+        return client.sql("SELECT count(*) AS total FROM rate_limit_buckets WHERE bucket_key = :key")
+                .bind("key", key)
+                .map(row -> row.get("total", Long.class))
+                .one()
+                .block();
+    }
+}
@@ -0,0 +1,154 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import pe.edu.vallegrande.user.config.HttpClientProperties;
+import pe.edu.vallegrande.user.config.OutboundHttpClients;
+import pe.edu.vallegrande.user.model.StorageDeletion;
+import pe.edu.vallegrande.user.repository.StorageDeletionRepository;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class StorageCleanupWorkerTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    private MockWebServer storage;
+    private SimpleMeterRegistry registry;
+    private StorageDeletionRepository deletionRepository;
+    private UsersRepository usersRepository;
+    private SupabaseStorageService storageService;
+    private StorageCleanupWorker worker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new MockWebServer();
+        storage.start();
+        registry = new SimpleMeterRegistry();
+
+        deletionRepository = mock(StorageDeletionRepository.class);
+        when(deletionRepository.removeDone(anyCollection())).thenReturn(Mono.just(1));
+        when(deletionRepository.markForRetry(anyCollection(), anyString(), anyLong(), anyLong(), anyInt())).thenReturn(Mono.just(1));
+        when(deletionRepository.enqueue(any(String[].class))).thenReturn(Mono.just(1));
+        when(deletionRepository.countPending()).thenReturn(Mono.just(0L));
+        when(deletionRepository.oldestPendingAgeSeconds()).thenReturn(Mono.just(0.0));
+        usersRepository = mock(UsersRepository.class);
+        when(usersRepository.findReferencedProfileImages(any(String[].class))).thenReturn(Flux.empty());
+
+        ImageProcessingService imageProcessing = new ImageProcessingService(registry, true, List.of(64, 256), 0.85f, 1, 4, 40_000_000);
+        String projectUrl = storage.url("/").toString().replaceAll("/$", "");
+        OutboundHttpClients httpClients = new OutboundHttpClients(WebClient.builder(), new HttpClientProperties(), registry);
+        storageService = new SupabaseStorageService(httpClients, projectUrl, "test-key", "avatars", DataSize.ofMegabytes(1), imageProcessing, registry);
+        worker = new StorageCleanupWorker(deletionRepository, usersRepository, storageService, imageProcessing,
+                new StorageCleanupService(deletionRepository, storageService), registry,
+                10, 2, 2, 3, Duration.ofSeconds(30), Duration.ofHours(1), Duration.ofMinutes(2),
+                "users", 2, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.shutdown();
+    }
+
+    @Test
+    void shouldDeleteClaimedObjectsInBulkRequests() throws InterruptedException {
+        storage.enqueue(new MockResponse().setBody("[]"));
+        storage.enqueue(new MockResponse().setBody("[]"));
+        when(deletionRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.just(
+                deletion(1L, "users/a.jpg", 0), deletion(2L, "users/b.jpg", 0), deletion(3L, "users/c.jpg", 0)));
+
+        StepVerifier.create(worker.drain()).verifyComplete();
+
+        assertEquals(2, storage.getRequestCount()); // request-size = 2 → [a, b] y [c]
+        RecordedRequest request = storage.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("DELETE", request.getMethod());
+        assertTrue(request.getBody().readUtf8().contains("\"prefixes\""));
+        verify(deletionRepository).removeDone(List.of(1L, 2L));
+        verify(deletionRepository).removeDone(List.of(3L));
+        assertEquals(3, registry.get("storage.cleanup.deleted").counter().count());
+    }
+
+    @Test
+    void shouldNotDeleteObjectsStillReferencedByAUser() throws InterruptedException {
+        storage.enqueue(new MockResponse().setBody("[]"));
+        when(deletionRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.just(
+                deletion(1L, "users/" + HASH + "_64.jpg", 0), deletion(2L, "users/old.png", 0)));
+        // La miniatura pertenece a una foto que un usuario sigue usando
+        when(usersRepository.findReferencedProfileImages(any(String[].class)))
+                .thenReturn(Flux.just(storageService.publicUrl("users/" + HASH + ".jpg")));
+
+        StepVerifier.create(worker.drain()).verifyComplete();
+
+        RecordedRequest request = storage.takeRequest(1, TimeUnit.SECONDS);
+        String body = request.getBody().readUtf8();
+        assertTrue(body.contains("users/old.png"), body);
+        assertFalse(body.contains(HASH), body);
+        verify(deletionRepository).removeDone(List.of(1L, 2L));
+        assertEquals(1, registry.get("storage.cleanup.deleted").counter().count());
+        assertEquals(1, registry.get("storage.cleanup.skipped").counter().count());
+    }
+
+    @Test
+    void shouldScheduleRetry_whenStorageFails() {
+        // El cliente HTTP ya reintenta el DELETE (3 intentos por defecto); después queda para el worker
+        for (int i = 0; i < 3; i++) storage.enqueue(new MockResponse().setResponseCode(503));
+        when(deletionRepository.claimBatch(anyInt(), anyLong())).thenReturn(Flux.just(
+                deletion(1L, "users/a.jpg", 0), deletion(2L, "users/b.jpg", 2)));
+
+        StepVerifier.create(worker.drain()).verifyComplete();
+
+        verify(deletionRepository, never()).removeDone(anyCollection());
+        verify(deletionRepository).markForRetry(eq(List.of(1L, 2L)), anyString(), eq(30L), eq(3600L), eq(3));
+        assertEquals(1, registry.get("storage.cleanup.failed").tag("final", "false").counter().count());
+        assertEquals(1, registry.get("storage.cleanup.failed").tag("final", "true").counter().count());
+    }
+
+    @Test
+    void shouldEnqueueOnlyUnreferencedOldObjects_whenReconciling() {
+        String old = Instant.now().minus(Duration.ofDays(1)).toString();
+        String recent = Instant.now().toString();
+        // Páginas de 2 objetos; la tercera, vacía, marca el fin del listado
+        storage.enqueue(json("[" + object(HASH + ".jpg", old) + "," + object(HASH + "_64.jpg", old) + "]"));
+        storage.enqueue(json("[" + object("orphan.png", old) + "," + object("uploading.png", recent) + "]"));
+        storage.enqueue(json("[]"));
+        String referenced = storageService.publicUrl("users/" + HASH + ".jpg");
+        when(usersRepository.findReferencedProfileImages(any(String[].class)))
+                .thenReturn(Flux.just(referenced), Flux.empty());
+
+        StepVerifier.create(worker.reconcileOrphans()).verifyComplete();
+
+        verify(deletionRepository, times(1)).enqueue(new String[]{"users/orphan.png"});
+        assertEquals(1, registry.get("storage.cleanup.orphans").counter().count());
+    }
+
+    private static StorageDeletion deletion(Long id, String path, int attempts) {
+        return new StorageDeletion(id, path, "DELETING", attempts, Instant.now(), Instant.now(), null);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private static String object(String name, String createdAt) {
+        return "{\"id\":\"" + name.hashCode() + "\",\"name\":\"" + name + "\",\"created_at\":\"" + createdAt + "\"}";
+    }
+}
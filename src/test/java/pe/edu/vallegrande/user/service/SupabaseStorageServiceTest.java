@@ -0,0 +1,200 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.config.HttpClientProperties;
+import pe.edu.vallegrande.user.config.OutboundHttpClients;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SupabaseStorageServiceTest {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13};
+
+    private MockWebServer storage;
+    private SimpleMeterRegistry registry;
+    private SupabaseStorageService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new MockWebServer();
+        storage.start();
+        registry = new SimpleMeterRegistry();
+        service = storageService(false);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.shutdown();
+    }
+
+    private SupabaseStorageService storageService(boolean processImages) {
+        String projectUrl = storage.url("/").toString().replaceAll("/$", "");
+        ImageProcessingService imageProcessing =
+                new ImageProcessingService(registry, processImages, List.of(64, 256), 0.85f, 2, 8, 1_000_000);
+        OutboundHttpClients httpClients = new OutboundHttpClients(WebClient.builder(), new HttpClientProperties(), registry);
+        return new SupabaseStorageService(httpClients, projectUrl, "test-key", "avatars", DataSize.ofKilobytes(64), imageProcessing, registry);
+    }
+
+    @Test
+    void shouldStreamImageToStorage_inSmallChunks() throws InterruptedException {
+        storage.enqueue(new MockResponse().setBody("{\"Key\":\"ok\"}"));
+        byte[] image = image(PNG_SIGNATURE, 20_000);
+
+        StepVerifier.create(service.uploadImageStream("users", chunks(image, 5)))
+                .expectNextMatches(url -> url.contains("/storage/v1/object/public/avatars/users/") && url.endsWith(".png"))
+                .verifyComplete();
+
+        RecordedRequest request = storage.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("PUT", request.getMethod());
+        assertTrue(URLDecoder.decode(request.getPath(), StandardCharsets.UTF_8).startsWith("/storage/v1/object/avatars/users/"));
+        assertEquals("image/png", request.getHeader("Content-Type"));
+        assertArrayEquals(image, request.getBody().readByteArray());
+        assertEquals(20_000, registry.get("storage.upload.bytes").summary().totalAmount());
+        assertEquals(5, registry.get("storage.upload.chunk.max").summary().max());
+    }
+
+    @Test
+    void shouldRejectUnsupportedContent_withoutCallingStorage() {
+        byte[] notAnImage = "<html><body>hola</body></html>".getBytes();
+
+        StepVerifier.create(service.uploadImageStream("users", chunks(notAnImage, 4)))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse
+                        && rse.getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .verify();
+
+        assertEquals(0, storage.getRequestCount());
+    }
+
+    @Test
+    void shouldAbortUpload_whenSizeLimitIsExceeded() {
+        storage.enqueue(new MockResponse().setBody("{}"));
+        byte[] tooLarge = image(PNG_SIGNATURE, 100_000);
+
+        StepVerifier.create(service.uploadImageStream("users", chunks(tooLarge, 8192)))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse
+                        && rse.getStatusCode() == HttpStatus.PAYLOAD_TOO_LARGE)
+                .verify();
+    }
+
+    @Test
+    void shouldStoreDownscaledJpegVariants_underPathsUniquePerUpload() throws Exception {
+        for (int i = 0; i < 3; i++) storage.enqueue(new MockResponse().setBody("{}"));
+        SupabaseStorageService processing = storageService(true);
+        byte[] png = png(800, 400);
+
+        String url = processing.uploadImageStream("users", chunks(png, 4096)).block(Duration.ofSeconds(10));
+
+        assertTrue(url.matches(".*/object/public/avatars/users/[0-9a-f]{32}\\.jpg"), url);
+        Map<String, String> variants = processing.variantUrls(url);
+        assertEquals(List.of("64", "256", "original"), List.copyOf(variants.keySet()));
+
+        Map<String, BufferedImage> uploaded = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            RecordedRequest request = storage.takeRequest(1, TimeUnit.SECONDS);
+            assertEquals("image/jpeg", request.getHeader("Content-Type"));
+            String path = URLDecoder.decode(request.getPath(), StandardCharsets.UTF_8);
+            uploaded.put(path.substring(path.lastIndexOf('/') + 1),
+                    ImageIO.read(new ByteArrayInputStream(request.getBody().readByteArray())));
+        }
+        assertEquals(64, uploaded.get(fileName(variants.get("64"))).getWidth());
+        assertEquals(128, uploaded.get(fileName(variants.get("256"))).getHeight());
+        assertEquals(800, uploaded.get(fileName(url)).getWidth());
+    }
+
+    @Test
+    void shouldNotShareObjects_betweenUploadsOfTheSameImage() throws Exception {
+        for (int i = 0; i < 6; i++) storage.enqueue(new MockResponse().setBody("{}"));
+        SupabaseStorageService processing = storageService(true);
+        byte[] png = png(300, 300);
+
+        String first = processing.uploadImageStream("users", chunks(png, 4096)).block(Duration.ofSeconds(10));
+        String second = processing.uploadImageStream("users", chunks(png, 4096)).block(Duration.ofSeconds(10));
+
+        // Borrar la foto de un usuario no puede borrar la de otro que subió el mismo archivo
+        assertNotEquals(first, second);
+        assertNotNull(processing.variantUrls(second));
+    }
+
+    @Test
+    void shouldRejectImageDeclaringTooManyPixels_withoutDecodingNorUploading() throws Exception {
+        SupabaseStorageService processing = storageService(true);
+        // Pocos bytes, pero la cabecera IHDR declara 20000x20000 (más del límite de 1M de píxeles del test)
+        byte[] bomb = withDeclaredSize(png(10, 10), 20_000, 20_000);
+
+        StepVerifier.create(processing.uploadImageStream("users", chunks(bomb, 4096)))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse
+                        && rse.getStatusCode() == HttpStatus.PAYLOAD_TOO_LARGE)
+                .verify(Duration.ofSeconds(10));
+        assertEquals(0, storage.getRequestCount());
+    }
+
+    // Reescribe ancho y alto del chunk IHDR (y su CRC) de un PNG
+    private static byte[] withDeclaredSize(byte[] png, int width, int height) {
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        buffer.putInt(16, width).putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(png, 12, 17); // tipo "IHDR" + 13 bytes de datos
+        buffer.putInt(29, (int) crc.getValue());
+        return png;
+    }
+
+    private static String fileName(String url) {
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private static byte[] image(byte[] signature, int size) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) 7);
+        System.arraycopy(signature, 0, data, 0, signature.length);
+        return data;
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] data, int chunkSize) {
+        return Flux.range(0, (data.length + chunkSize - 1) / chunkSize)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(
+                        Arrays.copyOfRange(data, i * chunkSize, Math.min(data.length, (i + 1) * chunkSize))));
+    }
+}
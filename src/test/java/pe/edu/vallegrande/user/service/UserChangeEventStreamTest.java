@@ -0,0 +1,139 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.dto.UserChangeEventDto;
+import pe.edu.vallegrande.user.model.UserChangeEvent;
+import pe.edu.vallegrande.user.repository.UserChangeEventRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class UserChangeEventStreamTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<UserChangeEvent> table = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Sinks.Many<Long> notifications = Sinks.many().multicast().directBestEffort();
+    private UserChangeEventRepository repository;
+    private UserChangeEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserChangeEventRepository.class);
+        when(repository.findAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return Flux.fromIterable(table).filter(event -> event.getOffset() > after).take(limit);
+        });
+        when(repository.lastOffset()).thenAnswer(invocation -> Mono.fromSupplier(() -> table.isEmpty()
+                ? 0L : table.get(table.size() - 1).getOffset()));
+        // Como la secuencia de Postgres: con la tabla vacía, el siguiente offset que se asignaría
+        when(repository.firstOffset()).thenAnswer(invocation -> Mono.fromSupplier(() -> table.isEmpty()
+                ? sequence.get() + 1 : table.get(0).getOffset()));
+
+        for (long offset = 1; offset <= 5; offset++) append(offset);
+        // Sondeo muy espaciado: en estas pruebas solo despiertan al lector los NOTIFY
+        stream = new UserChangeEventStream(repository, notifications::asFlux, registry, Duration.ofHours(1),
+                2, 16, Duration.ofDays(7));
+        stream.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.stop();
+    }
+
+    @Test
+    void shouldReplayHistoryFromOffset_thenContinueLive_withoutGapsOrDuplicates() {
+        StepVerifier.create(stream.events(2L).map(UserChangeEventDto::getOffset))
+                .expectNext(3L, 4L, 5L) // historial en páginas de 2
+                .then(() -> notify(6, 7))
+                .expectNext(6L, 7L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0.0, registry.get("user.events.subscribers").gauge().value());
+    }
+
+    @Test
+    void shouldFanOutEachNotification_withOneReadForAllSubscribers() {
+        List<Long> first = new CopyOnWriteArrayList<>();
+        List<Long> second = new CopyOnWriteArrayList<>();
+        var a = stream.events(null).subscribe(event -> first.add(event.getOffset()));
+        var b = stream.events(null).subscribe(event -> second.add(event.getOffset()));
+        assertEquals(2.0, registry.get("user.events.subscribers").gauge().value());
+        clearInvocations(repository);
+
+        notify(6);
+
+        assertEquals(List.of(6L), first);
+        assertEquals(List.of(6L), second);
+        verify(repository, times(1)).findAfter(anyLong(), anyInt());
+        assertEquals(1.0, registry.get("user.events.published").counter().count());
+        a.dispose();
+        b.dispose();
+    }
+
+    @Test
+    void shouldAnswerGone_whenOffsetWasAlreadyPurged() {
+        table.removeIf(event -> event.getOffset() <= 3);
+
+        StepVerifier.create(stream.events(1L))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException status
+                        && status.getStatusCode() == HttpStatus.GONE)
+                .verify(Duration.ofSeconds(5));
+        // El último offset borrado aún sirve: no falta ningún evento posterior
+        StepVerifier.create(stream.events(3L).map(UserChangeEventDto::getOffset))
+                .expectNext(4L, 5L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldAnswerGone_evenWhenRetentionEmptiedTheTable() {
+        table.clear();
+
+        StepVerifier.create(stream.events(2L))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException status
+                        && status.getStatusCode() == HttpStatus.GONE)
+                .verify(Duration.ofSeconds(5));
+        // Quien ya había leído hasta el último evento no perdió nada
+        StepVerifier.create(stream.events(5L).map(UserChangeEventDto::getOffset))
+                .then(() -> notify(6))
+                .expectNext(6L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private void notify(long... offsets) {
+        for (long offset : offsets) append(offset);
+        notifications.tryEmitNext(offsets[offsets.length - 1]);
+    }
+
+    private void append(long offset) {
+        table.add(event(offset));
+        sequence.set(offset);
+    }
+
+    private static UserChangeEvent event(long offset) {
+        return new UserChangeEvent(offset, (int) offset, "uid-" + offset, UserChangeEvent.Type.UPDATED.name(),
+                "{\"id\":" + offset + "}", Instant.now());
+    }
+}
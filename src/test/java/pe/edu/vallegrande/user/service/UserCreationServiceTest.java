@@ -0,0 +1,207 @@
+package pe.edu.vallegrande.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.user.dto.UserCreateDto;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.model.UserCreationRequest;
+import pe.edu.vallegrande.user.repository.UserCreationRequestRepository;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class UserCreationServiceTest {
+
+    private static final String IMAGE = "data:image/png;base64,AAAA";
+    private static final String IMAGE_URL = "https://example.supabase.co/storage/v1/object/public/b/users/a.png";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // Registro de pasos en memoria: clave → fila
+    private final Map<String, UserCreationRequest> log = new ConcurrentHashMap<>();
+    private FirebaseExecutionLane lane;
+    private PasswordHashingService passwordHashingService;
+    private InMemoryFirebaseGateway firebaseGateway;
+    private UsersRepository usersRepository;
+    private SupabaseStorageService storageService;
+    private StorageCleanupService storageCleanupService;
+    private UserCreationRequestRepository requests;
+    private UserChangeOutbox userChangeOutbox;
+    private UserCreationService service;
+
+    @BeforeEach
+    void setUp() {
+        lane = new FirebaseExecutionLane(registry, 2, 16, Duration.ofSeconds(5));
+        firebaseGateway = new InMemoryFirebaseGateway(lane, Duration.ZERO);
+        passwordHashingService = new PasswordHashingService(registry, "4", Duration.ofMillis(100), 2, 64);
+        usersRepository = mock(UsersRepository.class);
+        storageService = mock(SupabaseStorageService.class);
+        storageCleanupService = mock(StorageCleanupService.class);
+        when(storageService.uploadBase64Image("users", IMAGE)).thenReturn(Mono.just(IMAGE_URL));
+        when(storageCleanupService.deleteImageLater(anyString())).thenReturn(Mono.empty());
+
+        requests = mock(UserCreationRequestRepository.class);
+        when(requests.reserve(anyString(), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            UserCreationRequest row = new UserCreationRequest(key, invocation.getArgument(1), invocation.getArgument(2),
+                    invocation.getArgument(3), UserCreationRequest.STARTED, "RESERVED", null, null, null, null, null);
+            return Mono.just(log.putIfAbsent(key, row) == null ? 1 : 0);
+        });
+        when(requests.findById(anyString())).thenAnswer(invocation -> Mono.justOrEmpty(log.get(invocation.<String>getArgument(0))));
+        when(requests.markStep(anyString(), anyString())).thenAnswer(invocation -> update(invocation.getArgument(0),
+                row -> row.setStep(invocation.getArgument(1))));
+        when(requests.markImageUploaded(anyString(), anyString())).thenAnswer(invocation -> update(invocation.getArgument(0), row -> {
+            row.setStep("IMAGE_UPLOADED");
+            row.setProfileImage(invocation.getArgument(1));
+        }));
+        when(requests.complete(anyString(), any())).thenAnswer(invocation -> update(invocation.getArgument(0), row -> {
+            row.setStatus(UserCreationRequest.COMPLETED);
+            row.setUserId(invocation.getArgument(1));
+        }));
+        when(requests.fail(anyString(), anyString())).thenAnswer(invocation -> update(invocation.getArgument(0), row -> {
+            row.setStatus(UserCreationRequest.FAILED);
+            row.setError(invocation.getArgument(1));
+        }));
+        when(requests.deleteFailed(anyString())).thenAnswer(invocation -> Mono.just(
+                log.remove(invocation.<String>getArgument(0)) != null ? 1 : 0));
+
+        TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        userChangeOutbox = mock(UserChangeOutbox.class);
+        when(userChangeOutbox.append(any(), any())).thenReturn(Mono.empty());
+
+        UserService userService = new UserService(usersRepository, passwordHashingService, mock(EmailService.class),
+                storageService, firebaseGateway, mock(UserProfileCache.class), storageCleanupService,
+                mock(ClaimsSyncService.class), userChangeOutbox, transactionalOperator, registry);
+        service = new UserCreationService(requests, usersRepository, passwordHashingService, firebaseGateway, storageService,
+                storageCleanupService, userService, transactionalOperator, userChangeOutbox, new ObjectMapper(), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lane.shutdown();
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void shouldAnswerRetriesFromTheStoredResult_withoutCallingFirebaseAgain() {
+        when(usersRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(7);
+            when(usersRepository.findById(7)).thenReturn(Mono.just(user));
+            return Mono.just(user);
+        });
+
+        UserDto created = service.create(user("Ana@Mail.com"), "key-1").block(Duration.ofSeconds(10));
+        UserDto retried = service.create(user("Ana@Mail.com"), "key-1").block(Duration.ofSeconds(10));
+
+        assertEquals(7, created.getId());
+        assertEquals("ana@mail.com", created.getEmail());
+        assertEquals(IMAGE_URL, created.getProfileImage());
+        assertEquals(created.getFirebaseUid(), retried.getFirebaseUid());
+        assertEquals(Map.of("role", "ADMIN"), firebaseGateway.claimsOf(created.getFirebaseUid()));
+        assertEquals(1, firebaseGateway.accountCount());
+        assertEquals(1, registry.get("firebase.call").tag("operation", "createUser").timer().count());
+        verify(usersRepository, times(1)).save(any(User.class));
+        verify(storageService, times(1)).uploadBase64Image("users", IMAGE);
+        assertEquals(1.0, registry.get("user.creation").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void shouldLeaveThePasswordOutOfTheStoredRequestHash() {
+        when(usersRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(9);
+            when(usersRepository.findById(9)).thenReturn(Mono.just(user));
+            return Mono.just(user);
+        });
+        UserDto created = service.create(user("ana@mail.com"), "key-5").block(Duration.ofSeconds(10));
+
+        // La huella no depende de la contraseña (la tabla no sirve para adivinarla): es un replay, no un 422
+        UserCreateDto otherPassword = user("ana@mail.com");
+        otherPassword.setPassword("otra-clave");
+        UserDto replayed = service.create(otherPassword, "key-5").block(Duration.ofSeconds(10));
+
+        assertEquals(created.getFirebaseUid(), replayed.getFirebaseUid());
+        assertEquals(1.0, registry.get("user.creation").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void shouldCompensateFirebaseAndImage_whenTheInsertFails() {
+        when(usersRepository.save(any(User.class))).thenReturn(Mono.error(new IllegalStateException("BD caída")));
+
+        StepVerifier.create(service.create(user("ana@mail.com"), "key-2"))
+                .expectErrorMessage("BD caída")
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(0, firebaseGateway.accountCount());
+        verify(storageCleanupService).deleteImageLater(IMAGE_URL);
+        assertEquals(UserCreationRequest.FAILED, log.get("key-2").getStatus());
+        assertEquals("IMAGE_UPLOADED", log.get("key-2").getStep());
+
+        // Un reintento tras el fallo vuelve a empezar
+        when(usersRepository.save(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        StepVerifier.create(service.create(user("ana@mail.com"), "key-2"))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(1, firebaseGateway.accountCount());
+    }
+
+    @Test
+    void shouldRejectConflicts_inProgressKeys_andReusedKeys() {
+        firebaseGateway.createUser(FirebaseUids.newUid(), "en-firebase@mail.com", "secret").block();
+
+        // Email que solo existe en Firebase: no se crea nada y no hay nada que borrar
+        StepVerifier.create(service.create(user("en-firebase@mail.com"), "key-3"))
+                .expectError(DuplicateKeyException.class)
+                .verify(Duration.ofSeconds(10));
+        assertEquals(1, firebaseGateway.accountCount());
+
+        log.put("key-4", new UserCreationRequest("key-4", log.get("key-3").getRequestHash().replace('a', 'b'), "x@mail.com",
+                "uid", UserCreationRequest.STARTED, "RESERVED", null, null, null, null, null));
+        StepVerifier.create(service.create(user("en-firebase@mail.com"), "key-4"))
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+
+        log.get("key-4").setRequestHash(log.get("key-3").getRequestHash());
+        StepVerifier.create(service.create(user("en-firebase@mail.com"), "key-4"))
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.CONFLICT, ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+
+        StepVerifier.create(service.create(user("a@mail.com"), "k".repeat(101)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(requests, never()).reserve(eq("k".repeat(101)), anyString(), anyString(), anyString());
+    }
+
+    private Mono<Integer> update(String key, Consumer<UserCreationRequest> change) {
+        UserCreationRequest row = log.get(key);
+        if (row == null || !UserCreationRequest.STARTED.equals(row.getStatus())) return Mono.just(0);
+        change.accept(row);
+        return Mono.just(1);
+    }
+
+    private static UserCreateDto user(String email) {
+        return new UserCreateDto("Ana", "Pérez", "DNI", "12345678", "999999999", email, "secret1",
+                List.of("admin", "USER"), IMAGE);
+    }
+}
@@ -0,0 +1,155 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.user.dto.UserCreateDto;
+import pe.edu.vallegrande.user.dto.UserImportResultDto;
+import pe.edu.vallegrande.user.dto.UserImportResultDto.Status;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UserImportServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FirebaseExecutionLane lane;
+    private PasswordHashingService passwordHashingService;
+    private InMemoryFirebaseGateway firebaseGateway;
+    private UsersRepository usersRepository;
+    private UserChangeOutbox userChangeOutbox;
+    private TransactionalOperator transactionalOperator;
+    private final List<List<User>> inserts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lane = new FirebaseExecutionLane(registry, 2, 16, Duration.ofSeconds(5));
+        firebaseGateway = new InMemoryFirebaseGateway(lane, Duration.ZERO);
+        passwordHashingService = new PasswordHashingService(registry, "4", Duration.ofMillis(100), 2, 64);
+        usersRepository = mock(UsersRepository.class);
+        userChangeOutbox = mock(UserChangeOutbox.class);
+        when(userChangeOutbox.appendAll(any(), any())).thenReturn(Mono.empty());
+        transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AtomicInteger ids = new AtomicInteger();
+        when(usersRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            inserts.add(users);
+            return Flux.fromIterable(users).map(user -> {
+                user.setId(ids.incrementAndGet());
+                return user;
+            });
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        lane.shutdown();
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void shouldImportCsvInChunks_withOneInsertAndOneFirebaseImportPerChunk() {
+        when(usersRepository.findExistingEmails(any())).thenAnswer(invocation -> Flux.fromArray((String[]) invocation.getArgument(0))
+                .filter("taken@mail.com"::equals));
+        UserImportService service = new UserImportService(usersRepository, passwordHashingService, firebaseGateway, userChangeOutbox,
+                transactionalOperator, registry, 2, 4);
+
+        List<UserImportResultDto> results = service.importCsv(Flux.just(
+                "email,password,name,last_name,role",
+                "Ana@Mail.com,secret1,Ana,Pérez,ADMIN|USER",
+                "\"luis@mail.com\",secret2,\"Luis, Jr\",Díaz,",
+                "taken@mail.com,secret3,Eva,Ruiz,USER",
+                "ana@mail.com,secret4,Ana,Otra,USER",
+                "sin-arroba,secret5,X,Y,USER",
+                "\"rota@mail.com,secret6"
+        )).collectList().block(Duration.ofSeconds(10));
+
+        assertEquals(List.of(Status.CREATED, Status.CREATED, Status.DUPLICATE, Status.DUPLICATE, Status.INVALID, Status.INVALID),
+                results.stream().map(UserImportResultDto::getStatus).toList());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), results.stream().map(UserImportResultDto::getRow).toList());
+
+        // 6 filas en lotes de 2: solo el primer lote tiene filas nuevas → un único INSERT con ambas
+        assertEquals(1, inserts.size());
+        User ana = inserts.get(0).get(0);
+        assertEquals("ana@mail.com", ana.getEmail());
+        assertEquals(List.of("ADMIN", "USER"), ana.getRole());
+        assertTrue(ana.getPassword().startsWith("$2a$04$"));
+        assertEquals("Luis, Jr", inserts.get(0).get(1).getName());
+        assertEquals(List.of("USER"), inserts.get(0).get(1).getRole());
+
+        assertEquals(Map.of("role", "ADMIN"), firebaseGateway.claimsOf(ana.getFirebaseUid()));
+        assertEquals(2, firebaseGateway.accountCount());
+        assertEquals(1, registry.get("firebase.call").tag("operation", "importUsers").timer().count());
+        assertEquals(2.0, registry.get("user.import.rows").tag("status", "CREATED").counter().count());
+    }
+
+    @Test
+    void shouldReportEmailsWithOnlyAFirebaseAccount_asDuplicates_withoutImportingThem() {
+        when(usersRepository.findExistingEmails(any())).thenReturn(Flux.empty());
+        firebaseGateway.createUser(FirebaseUids.newUid(), "solo-en-firebase@mail.com", "secret").block();
+        UserImportService service = new UserImportService(usersRepository, passwordHashingService, firebaseGateway, userChangeOutbox,
+                transactionalOperator, registry, 1000, 4);
+
+        List<UserImportResultDto> results = service.importUsers(Flux.just(
+                user("solo-en-firebase@mail.com"), user("nuevo@mail.com")
+        )).collectList().block(Duration.ofSeconds(10));
+
+        // importUsers no rechaza emails repetidos: sin la consulta previa habría una segunda cuenta
+        assertEquals(Status.DUPLICATE, results.get(0).getStatus());
+        assertEquals(Status.CREATED, results.get(1).getStatus());
+        assertEquals(1, inserts.get(0).size());
+        assertEquals(2, firebaseGateway.accountCount());
+        assertEquals(1, registry.get("firebase.call").tag("operation", "getUsers").timer().count());
+    }
+
+    @Test
+    void shouldLookUpFirebaseEmails_inBatchesOfOneHundred() {
+        when(usersRepository.findExistingEmails(any())).thenReturn(Flux.empty());
+        firebaseGateway.createUser(FirebaseUids.newUid(), "user149@mail.com", "secret").block();
+        UserImportService service = new UserImportService(usersRepository, passwordHashingService, firebaseGateway, userChangeOutbox,
+                transactionalOperator, registry, 1000, 4);
+
+        List<UserImportResultDto> results = service.importUsers(Flux.range(0, 150).map(i -> user("User" + i + "@mail.com")))
+                .collectList().block(Duration.ofSeconds(30));
+
+        assertEquals(Status.DUPLICATE, results.get(149).getStatus());
+        assertEquals(149, results.stream().filter(result -> result.getStatus() == Status.CREATED).count());
+        assertEquals(2, registry.get("firebase.call").tag("operation", "getUsers").timer().count());
+    }
+
+    @Test
+    void shouldDeleteFirebaseAccounts_whenInsertFails() {
+        when(usersRepository.findExistingEmails(any())).thenReturn(Flux.empty());
+        doReturn(Flux.error(new IllegalStateException("BD caída"))).when(usersRepository).insertAll(any());
+        UserImportService service = new UserImportService(usersRepository, passwordHashingService, firebaseGateway, userChangeOutbox,
+                transactionalOperator, registry, 1000, 4);
+
+        List<UserImportResultDto> results = service.importUsers(Flux.just(user("a@mail.com"), user("b@mail.com")))
+                .collectList().block(Duration.ofSeconds(10));
+
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == Status.FAILED));
+        assertEquals(0, firebaseGateway.accountCount()); // compensado: se puede reintentar el archivo
+        verify(usersRepository, times(1)).insertAll(any());
+    }
+
+    private static UserCreateDto user(String email) {
+        return new UserCreateDto("Nombre", "Apellido", "DNI", "12345678", "999999999", email, "secret1",
+                List.of("USER"), null);
+    }
+}
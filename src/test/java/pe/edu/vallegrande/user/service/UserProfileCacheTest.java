@@ -0,0 +1,75 @@
+package pe.edu.vallegrande.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user.dto.UserChangeEventDto;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.model.User;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class UserProfileCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private UserProfileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserProfileCache(new NoOpSecondLevelUserCache(), new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void shouldDropLocalEntries_whenAnotherInstanceChangesTheUser() {
+        cache.getByFirebaseUid("uid-1", () -> load(profile("ana@mail.com", 1L))).block();
+        UserChangeEventStream stream = mock(UserChangeEventStream.class);
+        UserProfileCacheInvalidator invalidator = new UserProfileCacheInvalidator(stream, cache, new ObjectMapper());
+
+        // Otra instancia cambió el correo: el evento trae el nuevo, el antiguo sale de la caché
+        invalidator.evict(new UserChangeEventDto(10L, "UPDATED", 1, "uid-1", Instant.now(),
+                "{\"id\":1,\"email\":\"nueva@mail.com\",\"version\":2}"));
+
+        assertEquals(2L, cache.getById(1, () -> load(profile("nueva@mail.com", 2L))).block().getVersion());
+        assertEquals(2L, cache.getByFirebaseUid("uid-1", () -> load(profile("nueva@mail.com", 2L))).block().getVersion());
+        assertEquals(3L, cache.getByEmail("ana@mail.com", () -> load(profile("nueva@mail.com", 3L))).block().getVersion());
+        assertEquals(3, loads.get()); // la carga por id vuelve a rellenar uid
+    }
+
+    @Test
+    void shouldNotPopulateSiblings_withAProfileLoadedBeforeAConcurrentEvict() {
+        Sinks.One<UserDto> slowLoad = Sinks.one();
+        var pending = cache.getByFirebaseUid("uid-1", () -> slowLoad.asMono()).toFuture();
+
+        cache.evict(new User(1, "uid-1", null, null, null, null, null, "ana@mail.com", null, List.of("USER"), null, 2L))
+                .block();
+        slowLoad.tryEmitValue(profile("ana@mail.com", 1L)); // leído antes de la escritura
+        assertEquals(1L, pending.join().getVersion());
+
+        assertEquals(2L, cache.getById(1, () -> load(profile("ana@mail.com", 2L))).block().getVersion());
+    }
+
+    private Mono<UserDto> load(UserDto dto) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return dto;
+        });
+    }
+
+    private static UserDto profile(String email, Long version) {
+        UserDto dto = new UserDto();
+        dto.setId(1);
+        dto.setFirebaseUid("uid-1");
+        dto.setEmail(email);
+        dto.setVersion(version);
+        return dto;
+    }
+}
@@ -0,0 +1,86 @@
+package pe.edu.vallegrande.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.dto.UserSearchPageDto;
+import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class UserSearchServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private UsersRepository usersRepository;
+    private UserSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        usersRepository = mock(UsersRepository.class);
+        UserService userService = mock(UserService.class);
+        when(userService.toDto(any())).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            return new UserDto(user.getId(), null, user.getName(), null, null, null,
+                    null, null, null, null, null, null);
+        });
+        service = new UserSearchService(usersRepository, userService, registry, Duration.ofMillis(200), 120);
+    }
+
+    @Test
+    void shouldSplitTerms_andRequestOneExtraRowToDetectNextPage() {
+        when(usersRepository.search(any(), anyInt(), anyInt(), any())).thenReturn(Flux.fromIterable(users(51)));
+
+        UserSearchPageDto page = service.search("  Ana   PÉREZ ana ", 1, 50).block();
+
+        verify(usersRepository).search(eq(List.of("ana", "pérez")), eq(51), eq(50), eq(Duration.ofMillis(200)));
+        assertEquals(50, page.getItems().size());
+        assertEquals(1, page.getPage());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void shouldStopPagination_atMaxResults() {
+        when(usersRepository.search(any(), anyInt(), anyInt(), any())).thenReturn(Flux.fromIterable(users(21)));
+
+        UserSearchPageDto page = service.search("ana", 2, 50).block();
+
+        // 120 resultados como máximo: la tercera página solo tiene 20 y no hay siguiente
+        verify(usersRepository).search(any(), eq(21), eq(100), any());
+        assertEquals(20, page.getItems().size());
+        assertFalse(page.isHasMore());
+
+        StepVerifier.create(service.search("ana", 3, 50)).expectError(IllegalArgumentException.class).verify();
+        StepVerifier.create(service.search("a b", 0, 50)).expectError(IllegalArgumentException.class).verify();
+    }
+
+    @Test
+    void shouldFailWithTimeout_whenTheQueryExceedsTheBudget() {
+        when(usersRepository.search(any(), anyInt(), anyInt(), any())).thenReturn(Flux.never());
+
+        StepVerifier.create(service.search("ana", 0, 10))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(2));
+        assertEquals(1, registry.get("user.search").tag("outcome", "timeout").timer().count());
+    }
+
+    private static List<User> users(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(id -> new User(id, "uid-" + id, "Ana", "Pérez", null, null, null, null, null, null, null, 0L))
+                .toList();
+    }
+}
@@ -1,32 +1,62 @@
 package pe.edu.vallegrande.user.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import pe.edu.vallegrande.user.dto.UserDto;
+import pe.edu.vallegrande.user.dto.UserPageDto;
 import pe.edu.vallegrande.user.model.User;
+import pe.edu.vallegrande.user.repository.UserPatchRepository.PatchResult;
 import pe.edu.vallegrande.user.repository.UsersRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 public class UserServiceTest {
 
     private UsersRepository usersRepository;
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     private EmailService emailService;
     private SupabaseStorageService storageService; // ✅ nuevo mock
+    private FirebaseGateway firebaseGateway;
+    private UserProfileCache userProfileCache;
+    private StorageCleanupService storageCleanupService;
+    private ClaimsSyncService claimsSyncService;
+    private UserChangeOutbox userChangeOutbox;
     private UserService userService;
 
     @BeforeEach
     void setUp() {
         usersRepository = mock(UsersRepository.class);
-        passwordEncoder = mock(PasswordEncoder.class);
+        passwordHashingService = mock(PasswordHashingService.class);
         emailService = mock(EmailService.class);
         storageService = mock(SupabaseStorageService.class); // ✅ instanciar mock
+        firebaseGateway = mock(FirebaseGateway.class);
+        userProfileCache = new UserProfileCache(new NoOpSecondLevelUserCache(), new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+
+        storageCleanupService = mock(StorageCleanupService.class);
+        claimsSyncService = mock(ClaimsSyncService.class);
+        userChangeOutbox = mock(UserChangeOutbox.class);
+        when(userChangeOutbox.append(any(), any())).thenReturn(Mono.empty());
+        TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        userService = new UserService(usersRepository, passwordEncoder, emailService, storageService); // ✅ incluir
+        userService = new UserService(usersRepository, passwordHashingService, emailService, storageService,
+                firebaseGateway, userProfileCache, storageCleanupService, claimsSyncService, userChangeOutbox,
+                transactionalOperator, new SimpleMeterRegistry()); // ✅ incluir
     }
 
     @Test
@@ -36,12 +66,157 @@ public class UserServiceTest {
         mockUser.setFirebaseUid(uid);
         mockUser.setEmail("test@email.com");
 
-        when(usersRepository.findAll()).thenReturn(Mono.just(mockUser).flux());
+        when(usersRepository.findByFirebaseUid(uid)).thenReturn(Mono.just(mockUser));
 
         Mono<UserDto> result = userService.findMyProfile(uid);
 
         StepVerifier.create(result)
                 .expectNextMatches(userDto -> userDto.getEmail().equals("test@email.com"))
                 .verifyComplete();
+
+        verify(usersRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldServeProfileFromCache_untilUserIsUpdated() {
+        String uid = "abc123";
+        User mockUser = new User();
+        mockUser.setId(1);
+        mockUser.setFirebaseUid(uid);
+        mockUser.setEmail("test@email.com");
+
+        when(usersRepository.findByFirebaseUid(uid)).thenReturn(Mono.just(mockUser));
+        when(usersRepository.patchByFirebaseUid(eq(uid), isNull(), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> changes = inv.getArgument(2);
+            mockUser.setName((String) changes.get("name"));
+            return Mono.just(new PatchResult(mockUser, true, mockUser.getEmail(), null, null));
+        });
+
+        userService.findMyProfile(uid).block();
+        userService.findMyProfile(uid).block();
+        // Cargado por uid → también responde por id y email sin ir a la BD
+        userService.findById(1).block();
+        verify(usersRepository, times(1)).findByFirebaseUid(uid);
+        verify(usersRepository, never()).findById(1);
+
+        UserDto changes = new UserDto();
+        changes.setName("Nuevo");
+        userService.updateMyProfile(uid, changes).block();
+
+        StepVerifier.create(userService.findMyProfile(uid))
+                .expectNextMatches(userDto -> "Nuevo".equals(userDto.getName()))
+                .verifyComplete();
+        // La edición es un único UPDATE: solo se vuelve a leer al recargar la caché
+        verify(usersRepository, times(2)).findByFirebaseUid(uid);
+        verify(usersRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void shouldKeepCache_whenPatchChangesNothing_andPropagateVersionConflicts() {
+        String uid = "abc123";
+        User mockUser = new User();
+        mockUser.setId(1);
+        mockUser.setFirebaseUid(uid);
+        mockUser.setName("Igual");
+        mockUser.setVersion(3L);
+
+        when(usersRepository.findByFirebaseUid(uid)).thenReturn(Mono.just(mockUser));
+        when(usersRepository.patchByFirebaseUid(eq(uid), eq(3L), anyMap()))
+                .thenReturn(Mono.just(new PatchResult(mockUser, false, null, null, null)));
+        when(usersRepository.patchByFirebaseUid(eq(uid), eq(2L), anyMap()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("versión 3")));
+
+        userService.findMyProfile(uid).block();
+        UserDto sameData = new UserDto();
+        sameData.setName("Igual");
+        sameData.setVersion(3L);
+        userService.updateMyProfile(uid, sameData).block();
+        userService.findMyProfile(uid).block();
+        verify(usersRepository, times(1)).findByFirebaseUid(uid); // sin cambios no se invalida
+
+        sameData.setVersion(2L);
+        StepVerifier.create(userService.updateMyProfile(uid, sameData))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldLookUpAndStoreEmailsLowercased_whateverCaseTheUserTypes() {
+        User user = new User();
+        user.setId(1);
+        user.setFirebaseUid("abc123");
+        user.setEmail("nueva@mail.com");
+        when(usersRepository.findByEmail("nueva@mail.com")).thenReturn(Mono.empty(), Mono.just(user));
+        when(firebaseGateway.updateEmail("abc123", "nueva@mail.com")).thenReturn(Mono.empty());
+        when(usersRepository.patchByFirebaseUid(eq("abc123"), isNull(), anyMap()))
+                .thenReturn(Mono.just(new PatchResult(user, true, "Ana@Mail.com", null, null)));
+
+        userService.changeEmail("abc123", " Nueva@Mail.COM ").block();
+        verify(usersRepository).patchByFirebaseUid("abc123", null, Map.of("email", "nueva@mail.com"));
+
+        StepVerifier.create(userService.findByEmail("NUEVA@mail.com"))
+                .expectNextMatches(dto -> dto.getId() == 1)
+                .verifyComplete();
+        verify(usersRepository, times(2)).findByEmail("nueva@mail.com");
+    }
+
+    @Test
+    void shouldQueueClaimsSync_onlyWhenRoleChanges() {
+        User user = new User();
+        user.setId(1);
+        user.setFirebaseUid("abc123");
+        user.setRole(List.of("ADMIN"));
+        when(claimsSyncService.syncLater("abc123")).thenReturn(Mono.empty());
+        when(usersRepository.patchById(eq(1), isNull(), anyMap()))
+                .thenReturn(Mono.just(new PatchResult(user, true, null, null, List.of("USER"))))
+                .thenReturn(Mono.just(new PatchResult(user, true, null, null, List.of("ADMIN"))));
+
+        UserDto changes = new UserDto();
+        changes.setRole(List.of("ADMIN"));
+        userService.updateUser(1, changes).block();
+        userService.updateUser(1, changes).block(); // mismo rol: Firebase ya está al día
+
+        verify(claimsSyncService, times(1)).syncLater("abc123");
+        verify(firebaseGateway, never()).setCustomUserClaims(any(), anyMap());
+    }
+
+    @Test
+    void shouldPageUsersByCursor_andResumeAfterLastRow() {
+        User first = new User();
+        first.setId(1);
+        first.setName("Ana");
+        User second = new User();
+        second.setId(2);
+        second.setName("Beto");
+        User third = new User();
+        third.setId(3);
+        third.setName("Carla");
+
+        when(usersRepository.findPage("name", false, null, null, null, 3))
+                .thenReturn(Flux.just(first, second, third));
+        when(usersRepository.findPage("name", false, "Beto", 2, null, 3))
+                .thenReturn(Flux.just(third));
+
+        UserPageDto page = userService.findUsersPage(null, 2, "name", "asc").block();
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+
+        StepVerifier.create(userService.findUsersPage(page.getNextCursor(), 2, "name", "asc"))
+                .expectNextMatches(next -> next.getItems().size() == 1 && next.getNextCursor() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectCursor_whenSortChanges() {
+        User user = new User();
+        user.setId(1);
+        when(usersRepository.findPage("id", false, null, null, null, 2)).thenReturn(Flux.just(user, user));
+
+        String cursor = userService.findUsersPage(null, 1, "id", "asc").block().getNextCursor();
+
+        StepVerifier.create(userService.findUsersPage(cursor, 1, "email", "asc"))
+                .expectError(IllegalArgumentException.class)
+                .verify();
     }
 }